@@ -0,0 +1,97 @@
+package com.lmk.ct.benchmark;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import com.lmk.ct.utils.DateUtils;
+
+/**
+ * 日期格式化、解析的基准测试，与每次创建SimpleDateFormat的原实现对比
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateUtilsBenchmark {
+
+	/** 日期格式 */
+	@Param({"yyyy-MM-dd", "yyyy-MM-dd HH:mm:ss", "yyyy年MM月dd日  HH时mm分ss秒SSS毫秒"})
+	public String pattern;
+
+	/** 每次调用处理的日期数 */
+	private static final int SIZE = 1000;
+
+	private Date[] dates;
+
+	private String[] texts;
+
+	@Setup
+	public void setup(){
+		Random random = new Random(42);
+		long now = System.currentTimeMillis();
+		dates = new Date[SIZE];
+		texts = new String[SIZE];
+		for(int i = 0; i < SIZE; i++){
+			dates[i] = new Date(now - (long) (random.nextDouble() * 10L * 365 * 24 * 3600 * 1000));
+			texts[i] = legacyFormat(dates[i], pattern);
+		}
+	}
+
+	@Benchmark
+	public void formatLegacy(Blackhole blackhole){
+		for(Date date : dates)
+			blackhole.consume(legacyFormat(date, pattern));
+	}
+
+	@Benchmark
+	public void format(Blackhole blackhole){
+		for(Date date : dates)
+			blackhole.consume(DateUtils.format(date, pattern));
+	}
+
+	@Benchmark
+	public void parseLegacy(Blackhole blackhole){
+		for(String text : texts)
+			blackhole.consume(legacyParse(text, pattern));
+	}
+
+	@Benchmark
+	public void parse(Blackhole blackhole){
+		for(String text : texts)
+			blackhole.consume(DateUtils.parse(text, pattern));
+	}
+
+	/**
+	 * 原DateUtils.format()的实现
+	 */
+	private static String legacyFormat(Date date, String pattern) {
+		String returnValue = "";
+		if (date != null) {
+			SimpleDateFormat df = new SimpleDateFormat(pattern);
+			returnValue = df.format(date);
+		}
+		return (returnValue);
+	}
+
+	/**
+	 * 原DateUtils.parse()的实现
+	 */
+	private static Date legacyParse(String strDate, String pattern) {
+		SimpleDateFormat df = new SimpleDateFormat(pattern);
+		try {
+			return df.parse(strDate);
+		} catch (ParseException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+}
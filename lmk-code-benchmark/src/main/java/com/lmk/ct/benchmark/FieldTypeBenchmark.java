@@ -0,0 +1,36 @@
+package com.lmk.ct.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 字段解析的基准测试：字段名转换、类型映射及键类型判断
+ * 即从数据库读取字段信息之后的全部处理，不含数据库访问
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldTypeBenchmark {
+
+	/** 模拟的表数目 */
+	@Param({"10", "1000", "20000"})
+	public int tables;
+
+	private SyntheticSchema schema;
+
+	@Setup
+	public void setup(){
+		schema = new SyntheticSchema(tables);
+	}
+
+	@Benchmark
+	public Object buildFields(){
+		return schema.buildFields();
+	}
+}
@@ -0,0 +1,58 @@
+package com.lmk.ct.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import com.lmk.ct.bean.Entity;
+import com.lmk.ct.utils.CodeUtils;
+
+/**
+ * 外键关联的基准测试：由全部外键建立多对一、一对多、多对多关联
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForeignKeyBenchmark {
+
+	/** 模拟的表数目 */
+	@Param({"10", "1000", "20000"})
+	public int tables;
+
+	private SyntheticSchema schema;
+
+	private List<Entity> entitys;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		CodeUtils.buildManyToOne = true;
+		CodeUtils.buildManyToMany = true;
+		CodeUtils.buildOneToMany = true;
+		schema = new SyntheticSchema(tables);
+		entitys = schema.buildEntities();
+	}
+
+	/**
+	 * 每次调用前清空上次建立的关联
+	 */
+	@Setup(Level.Invocation)
+	public void clearRelations(){
+		for(Entity entity : entitys){
+			entity.getManyToOnes().clear();
+			entity.getMtms().clear();
+			entity.getChildren().clear();
+			entity.getChildMap().clear();
+		}
+	}
+
+	@Benchmark
+	public List<Entity> linkForeignKeys(){
+		CodeUtils.linkForeignKeys(entitys, schema.getForeignKeys(), "benchmark");
+		return entitys;
+	}
+}
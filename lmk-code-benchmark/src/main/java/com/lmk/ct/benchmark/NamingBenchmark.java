@@ -0,0 +1,52 @@
+package com.lmk.ct.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import com.lmk.ct.utils.CodeUtils;
+
+/**
+ * 表名、字段名转换的基准测试
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NamingBenchmark {
+
+	/** 模拟的表数目 */
+	@Param({"10", "1000", "20000"})
+	public int tables;
+
+	private String[] tableNames;
+
+	private String[] columnNames;
+
+	@Setup
+	public void setup(){
+		SyntheticSchema schema = new SyntheticSchema(tables);
+		tableNames = schema.getTableMap().keySet().toArray(new String[0]);
+		columnNames = schema.getColumnMap().values().stream()
+				.flatMap(List::stream)
+				.map(column -> column[0])
+				.toArray(String[]::new);
+	}
+
+	@Benchmark
+	public void convertToEntityName(Blackhole blackhole){
+		for(String tableName : tableNames)
+			blackhole.consume(CodeUtils.convertToEntityName(tableName, true));
+	}
+
+	@Benchmark
+	public void convertToFieldName(Blackhole blackhole){
+		for(String columnName : columnNames)
+			blackhole.consume(CodeUtils.convertToFieldName(columnName));
+	}
+}
@@ -0,0 +1,88 @@
+package com.lmk.ct.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import com.lmk.ct.bean.Entity;
+import com.lmk.ct.config.AppConfig;
+import com.lmk.ct.utils.CodeUtils;
+import com.lmk.ct.utils.FileUtils;
+import com.lmk.ct.utils.FreeMarkerUtils;
+
+/**
+ * 模板输出的基准测试：按模板分别输出所有实体的代码文件
+ * 输出到临时目录，测试结束后删除
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+	/** 模拟的表数目 */
+	@Param({"10", "1000", "20000"})
+	public int tables;
+
+	/** 模板文件 */
+	@Param({"entity.ftl", "dao.ftl", "service.ftl", "serviceImpl.ftl", "controller.ftl", "mapper.ftl"})
+	public String template;
+
+	/** 临时输出目录 */
+	private File outputFolder;
+
+	/** 每个实体的数据模型 */
+	private List<Map<String, Object>> models;
+
+	/** 每个实体的输出文件 */
+	private List<String> targetFiles;
+
+	@Setup
+	public void setup() throws IOException {
+		CodeUtils.buildManyToOne = true;
+		CodeUtils.buildManyToMany = true;
+		CodeUtils.buildOneToMany = false;
+		SyntheticSchema schema = new SyntheticSchema(tables);
+		List<Entity> entitys = schema.buildEntities();
+		CodeUtils.linkForeignKeys(entitys, schema.getForeignKeys(), "benchmark");
+
+		outputFolder = Files.createTempDirectory("lmk-render-").toFile();
+		AppConfig.javaRootFolder = new File(outputFolder, "java").getPath();
+		AppConfig.mapperRootFolder = new File(outputFolder, "mapper").getPath();
+
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put("author", "LaoMake");
+		data.put("email", "laomake@hotmail.com");
+		data.put("version", "1.0");
+		data.put("date", "2021-01-01");
+		data.put("packageName", "com.lmk");
+
+		models = new ArrayList<Map<String, Object>>(entitys.size());
+		targetFiles = new ArrayList<String>(entitys.size());
+		for(Entity entity : entitys){
+			String targetFile = CodeUtils.getTargetFiles(entity).get(template);
+			FileUtils.makeSureFolderExits(new File(targetFile).getParent());
+			models.add(CodeUtils.buildModel(entity, data));
+			targetFiles.add(targetFile);
+		}
+		FreeMarkerUtils.warmUp();
+	}
+
+	@TearDown
+	public void tearDown(){
+		FileUtils.delFolder(outputFolder.getPath());
+	}
+
+	@Benchmark
+	public void makeFile(){
+		for(int i = 0; i < models.size(); i++)
+			FreeMarkerUtils.makeFile(models.get(i), template, targetFiles.get(i));
+	}
+}
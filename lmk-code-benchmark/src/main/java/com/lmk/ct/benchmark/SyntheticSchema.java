@@ -0,0 +1,113 @@
+package com.lmk.ct.benchmark;
+
+import java.util.*;
+import com.lmk.ct.bean.*;
+import com.lmk.ct.utils.CodeUtils;
+
+/**
+ * 基准测试使用的模拟表结构
+ * 表名、字段、外键及中间表均由表的序号确定，相同的表数目总是得到相同的表结构
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class SyntheticSchema {
+
+	/** 模块数目 */
+	private static final int MODULE_COUNT = 8;
+
+	/** 普通字段的类型，依次循环使用 */
+	private static final String[] COLUMN_TYPES = {
+			"varchar(50)", "int(11)", "bigint(20)", "tinyint(1)", "decimal(10,2)",
+			"datetime", "text", "date", "smallint(6)", "double"};
+
+	/** 每隔多少张表生成一张两个外键的中间表 */
+	private static final int JOIN_TABLE_STEP = 10;
+
+	/** 每隔多少张表生成一张三个外键的中间表 */
+	private static final int WIDE_JOIN_TABLE_STEP = 50;
+
+	/** 表名 -> 表注释 */
+	private final Map<String, String> tableMap = new LinkedHashMap<String, String>();
+
+	/** 表名 -> 字段，每个字段依次为：字段名、类型、是否可为空、默认值、注释、键类型 */
+	private final Map<String, List<String[]>> columnMap = new LinkedHashMap<String, List<String[]>>();
+
+	/** 所有外键 */
+	private final List<ForeignKey> foreignKeys = new ArrayList<ForeignKey>();
+
+	/**
+	 * 生成模拟表结构
+	 * @param tableCount	表数目
+	 */
+	public SyntheticSchema(int tableCount) {
+		List<String> tableNames = new ArrayList<String>(tableCount);
+		for(int i = 0; i < tableCount; i++)
+			tableNames.add("m" + (i % MODULE_COUNT) + "_order_item_" + i);
+
+		for(int i = 0; i < tableCount; i++){
+			String tableName = tableNames.get(i);
+			tableMap.put(tableName, "模拟表" + i);
+
+			List<String[]> columns = new ArrayList<String[]>();
+			columns.add(new String[]{"id", "bigint(20)", "NO", null, "主键", "PRI"});
+			columns.add(new String[]{"item_code", "varchar(32)", "NO", null, "编码", "UNI"});
+			for(int j = 0; j < COLUMN_TYPES.length; j++)
+				columns.add(new String[]{"col_value_" + j, COLUMN_TYPES[(i + j) % COLUMN_TYPES.length], j % 2 == 0 ? "YES" : "NO", j % 3 == 0 ? "0" : null, "字段" + j, ""});
+
+			// 除第一张表外，每张表都有指向上级表的外键
+			if(i > 0){
+				columns.add(new String[]{"parent_id", "bigint(20)", "YES", null, "上级", "MUL"});
+				foreignKeys.add(new ForeignKey("parent_id", tableName, tableNames.get((i - 1) / 2)));
+			}
+			columnMap.put(tableName, columns);
+
+			if(i > 0 && i % JOIN_TABLE_STEP == 0){
+				String joinTableName = "m0_rel_" + i;
+				foreignKeys.add(new ForeignKey("source_id", joinTableName, tableName));
+				foreignKeys.add(new ForeignKey("target_id", joinTableName, tableNames.get(i / 3)));
+			}
+			if(i > 0 && i % WIDE_JOIN_TABLE_STEP == 0){
+				String joinTableName = "m0_wide_rel_" + i;
+				foreignKeys.add(new ForeignKey("a_id", joinTableName, tableName));
+				foreignKeys.add(new ForeignKey("b_id", joinTableName, tableNames.get(i / 5)));
+				foreignKeys.add(new ForeignKey("c_id", joinTableName, tableNames.get(i / 7)));
+			}
+		}
+	}
+
+	/**
+	 * 解析所有字段
+	 * @return 表名 -> 字段
+	 */
+	public Map<String, List<DbField>> buildFields(){
+		Map<String, List<DbField>> fieldMap = new LinkedHashMap<String, List<DbField>>(tableMap.size() * 2);
+		for(Map.Entry<String, List<String[]>> item : columnMap.entrySet()){
+			List<DbField> fields = new ArrayList<DbField>(item.getValue().size());
+			for(String[] column : item.getValue())
+				CodeUtils.addField(fields, column[0], column[1], column[2], column[3], column[4], column[5]);
+			fieldMap.put(item.getKey(), fields);
+		}
+		return fieldMap;
+	}
+
+	/**
+	 * 解析所有实体，不含关联关系
+	 * @return
+	 */
+	public List<Entity> buildEntities(){
+		return CodeUtils.parseEntities(tableMap, buildFields(), new HashSet<String>());
+	}
+
+	public Map<String, String> getTableMap() {
+		return tableMap;
+	}
+
+	public Map<String, List<String[]>> getColumnMap() {
+		return columnMap;
+	}
+
+	public List<ForeignKey> getForeignKeys() {
+		return foreignKeys;
+	}
+}
@@ -0,0 +1,186 @@
+package com.lmk.ct.maven;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import com.lmk.ct.CodeGenerator;
+import com.lmk.ct.config.CodeConfig;
+import com.lmk.ct.config.GeneratorConfig;
+import com.lmk.ct.utils.FileUtils;
+import com.lmk.ct.utils.OutputManifest;
+
+/**
+ * 在Maven构建中生成代码：在构建JVM内调用CodeGenerator，不另起进程
+ * Java源码加入编译目录，映射文件加入资源目录；输入（配置、DDL脚本、快照或数据库中各表的版本、模板）不变时跳过生成
+ *
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
+public class GenerateMojo extends AbstractMojo {
+
+	/** 上次生成时输入指纹的存放文件 */
+	private static final String INPUT_FILE_NAME = "input.sha1";
+
+	@Parameter(defaultValue = "${project}", readonly = true, required = true)
+	private MavenProject project;
+
+	/** 输出目录 */
+	@Parameter(property = "lmk.outputDirectory", defaultValue = "${project.build.directory}/generated-sources/lmk")
+	private File outputDirectory;
+
+	/** 跳过生成 */
+	@Parameter(property = "lmk.skip", defaultValue = "false")
+	private boolean skip;
+
+	/** DDL脚本文件或目录 */
+	@Parameter
+	private List<File> ddlFiles = new ArrayList<File>();
+
+	/** 表结构快照文件 */
+	@Parameter(property = "lmk.snapshotFile")
+	private File snapshotFile;
+
+	/** 数据库地址 */
+	@Parameter(property = "lmk.url")
+	private String url;
+
+	/** 数据库用户名 */
+	@Parameter(property = "lmk.user")
+	private String user;
+
+	/** 数据库密码 */
+	@Parameter(property = "lmk.password")
+	private String password;
+
+	/** 数据库名称 */
+	@Parameter(property = "lmk.dataBase")
+	private String dataBase;
+
+	/** 模板目录，不指定时使用lmk-code-tools中的模板 */
+	@Parameter(property = "lmk.templateFolder")
+	private File templateFolder;
+
+	/** 基础包名 */
+	@Parameter(property = "lmk.packageName", defaultValue = "com.lmk")
+	private String packageName;
+
+	/** 作者 */
+	@Parameter(property = "lmk.author")
+	private String author;
+
+	/** 邮箱 */
+	@Parameter(property = "lmk.email")
+	private String email;
+
+	/** 版本号 */
+	@Parameter(property = "lmk.version", defaultValue = "${project.version}")
+	private String version;
+
+	/** 是否将表名的前缀解析为模块名 */
+	@Parameter(property = "lmk.tablePrefix", defaultValue = "true")
+	private boolean tablePrefix;
+
+	/** 是否解析、生成多对一关系 */
+	@Parameter(property = "lmk.manyToOne", defaultValue = "false")
+	private boolean manyToOne;
+
+	/** 是否解析、生成多对多关系 */
+	@Parameter(property = "lmk.manyToMany", defaultValue = "true")
+	private boolean manyToMany;
+
+	/** 是否解析、生成一对多关系 */
+	@Parameter(property = "lmk.oneToMany", defaultValue = "false")
+	private boolean oneToMany;
+
+	/** 输出代码的并发线程数，小于等于0时使用CPU核数 */
+	@Parameter(property = "lmk.renderParallelism", defaultValue = "0")
+	private int renderParallelism;
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		if(skip){
+			getLog().info("跳过代码生成");
+			return;
+		}
+
+		File javaFolder = new File(outputDirectory, CodeConfig.SOURCE_NAME_JAVA);
+		File mapperFolder = new File(outputDirectory, CodeConfig.SOURCE_NAME_MAPPER);
+		File manifestFile = new File(outputDirectory, CodeConfig.MANIFEST_FILE_NAME);
+		File inputFile = new File(outputDirectory, INPUT_FILE_NAME);
+
+		CodeGenerator generator = new CodeGenerator(buildConfig());
+		String fingerprint = generator.inputFingerprint();
+		if(fingerprint != null && manifestFile.exists() && inputFile.exists()
+				&& fingerprint.equals(FileUtils.readFileByText(inputFile).trim())){
+			getLog().info("输入未变化，跳过代码生成：" + outputDirectory);
+		}else{
+			generate(generator, manifestFile);
+			if(fingerprint != null)
+				FileUtils.writeToFile(fingerprint, inputFile, false);
+			else
+				inputFile.delete();
+		}
+
+		project.addCompileSourceRoot(javaFolder.getAbsolutePath());
+
+		Resource resource = new Resource();
+		resource.setDirectory(mapperFolder.getAbsolutePath());
+		resource.setTargetPath(CodeConfig.SOURCE_NAME_MAPPER);
+		project.addResource(resource);
+	}
+
+	/**
+	 * 生成代码，内容不变的文件不再写入，不再输出的文件被删除
+	 */
+	private void generate(CodeGenerator generator, File manifestFile) throws MojoExecutionException {
+		Map<String, byte[]> files;
+		try {
+			files = generator.generate();
+		} catch (RuntimeException e) {
+			throw new MojoExecutionException("代码生成失败：" + e.getMessage(), e);
+		}
+
+		FileUtils.makeSureFolderExits(outputDirectory.getPath());
+		OutputManifest manifest = new OutputManifest(outputDirectory.getPath(), manifestFile);
+		for(Map.Entry<String, byte[]> file : files.entrySet()){
+			File targetFile = new File(outputDirectory, file.getKey());
+			FileUtils.makeSureFolderExits(targetFile.getParent());
+			manifest.write(targetFile.getPath(), file.getValue());
+		}
+		manifest.removeOrphans();
+		manifest.save();
+		getLog().info(String.format("生成代码：%d个文件，写入%d个，删除%d个", files.size(), manifest.getWrittenCount(), manifest.getDeletedCount()));
+	}
+
+	private GeneratorConfig buildConfig() {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setUrl(url);
+		config.setUser(user);
+		config.setPassword(password);
+		config.setDataBase(dataBase);
+		config.setDdlFiles(ddlFiles != null ? ddlFiles : Collections.<File>emptyList());
+		config.setSnapshotFile(snapshotFile);
+		config.setTemplateFolder(templateFolder);
+		config.setPackageName(packageName);
+		config.setAuthor(author);
+		config.setEmail(email);
+		config.setVersion(version);
+		config.setTablePrefix(tablePrefix);
+		config.setManyToOne(manyToOne);
+		config.setManyToMany(manyToMany);
+		config.setOneToMany(oneToMany);
+		config.setRenderParallelism(renderParallelism);
+		return config;
+	}
+}
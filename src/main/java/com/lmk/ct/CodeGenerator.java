@@ -0,0 +1,270 @@
+package com.lmk.ct;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.lmk.ct.bean.DbField;
+import com.lmk.ct.bean.Entity;
+import com.lmk.ct.bean.ForeignKey;
+import com.lmk.ct.bean.SchemaSnapshot;
+import com.lmk.ct.config.CodeConfig;
+import com.lmk.ct.config.GeneratorConfig;
+import com.lmk.ct.utils.*;
+import freemarker.cache.ClassTemplateLoader;
+import freemarker.cache.FileTemplateLoader;
+import freemarker.cache.TemplateLoader;
+import freemarker.template.Configuration;
+import freemarker.template.TemplateException;
+
+/**
+ * 嵌入式代码生成器，在当前JVM内生成代码并返回文件内容，不写入磁盘
+ * 每个实例持有独立的配置及模板缓存，可在同一JVM内（如Maven构建、IDE插件）反复调用
+ * 生成规则通过参数传递，不修改CodeUtils、AppConfig中的全局配置
+ *
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class CodeGenerator {
+
+	/** 日志记录器 */
+	private static Logger log = LoggerFactory.getLogger(CodeGenerator.class);
+
+	/** classpath中模板的存放目录 */
+	private static final String TEMPLATE_PATH = "/template";
+
+	/** 生成配置 */
+	private final GeneratorConfig config;
+
+	/** Freemaker配置，模板解析后由其缓存 */
+	private final Configuration freeMakerConfig;
+
+	public CodeGenerator(GeneratorConfig config) {
+		this.config = config;
+		this.freeMakerConfig = FreeMarkerUtils.createFreeMakerConfig(createTemplateLoader(config.getTemplateFolder()));
+	}
+
+	/**
+	 * 生成所有实体的代码
+	 * @return 相对路径 -> 文件内容（UTF-8），如：java/com/lmk/shop/entity/User.java、mapper/shop/userDao.xml
+	 */
+	public Map<String, byte[]> generate() {
+		List<Entity> entitys = parseEntitys();
+
+		// 模板中的注释信息不允许为null
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put("author", Objects.toString(config.getAuthor(), ""));
+		data.put("email", Objects.toString(config.getEmail(), ""));
+		data.put("version", Objects.toString(config.getVersion(), ""));
+		data.put("date", config.getDate() != null ? config.getDate() : DateUtils.format(new Date(), DateUtils.FORMAT_LONG));
+		data.put("packageName", config.getPackageName());
+
+		return render(entitys, data);
+	}
+
+	/**
+	 * 计算输入的指纹：生成配置（不含生成日期）、表结构来源及模板的内容
+	 * 表结构来源为DDL脚本、表结构快照的内容，或数据库中各表的版本（一次查询，不读取字段）
+	 * 指纹不变时生成结果不变，调用方可据此跳过生成
+	 * @return 无法查询数据库中表的版本时返回null
+	 */
+	public String inputFingerprint() {
+		StringBuilder sb = new StringBuilder(config.describe());
+		if(!config.getDdlFiles().isEmpty() || config.getSnapshotFile() != null){
+			for(File ddlFile : config.getDdlFiles())
+				appendFiles(sb, ddlFile, ".sql");
+			if(config.getSnapshotFile() != null)
+				appendFiles(sb, config.getSnapshotFile(), null);
+		}else if(config.getUrl() != null){
+			Map<String, String> tableVersions;
+			try (Connection conn = openConnection()) {
+				tableVersions = CodeUtils.getTableVersions(conn, config.getDataBase());
+			} catch (SQLException e) {
+				log.warn("无法查询表的版本：{}", e.getMessage());
+				return null;
+			}
+			if(tableVersions.isEmpty())
+				return null;
+			for(Map.Entry<String, String> item : new TreeMap<String, String>(tableVersions).entrySet())
+				sb.append('\n').append(item.getKey()).append('=').append(item.getValue());
+		}else
+			return null;
+
+		if(config.getTemplateFolder() != null){
+			appendFiles(sb, config.getTemplateFolder(), FreeMarkerUtils.TEMPLATE_SUFFIX);
+		}else{
+			for(String templateFile : getTemplateNames()){
+				try (InputStream in = CodeGenerator.class.getResourceAsStream(TEMPLATE_PATH + "/" + templateFile)) {
+					if(in != null)
+						sb.append('\n').append(templateFile).append('=').append(DigestUtils.sha1Hex(readAll(in)));
+				} catch (IOException e) {
+					throw new UncheckedIOException("无法读取模板：" + templateFile, e);
+				}
+			}
+		}
+		return DigestUtils.sha1Hex(sb.toString());
+	}
+
+	/**
+	 * 解析表结构，来源按优先级依次为：DDL脚本、表结构快照、数据库
+	 * @return
+	 */
+	private List<Entity> parseEntitys() {
+		if(!config.getDdlFiles().isEmpty()){
+			DdlParser parser = new DdlParser();
+			for(File ddlFile : config.getDdlFiles()){
+				try {
+					parser.parse(ddlFile);
+				} catch (IOException e) {
+					throw new UncheckedIOException("无法读取DDL脚本：" + ddlFile.getPath(), e);
+				}
+			}
+			log.info("DDL脚本解析完成：{}条语句，{}张表，{}条语句解析失败", parser.getStatementCount(), parser.getTableCount(), parser.getErrorCount());
+			return buildEntitys(parser.getTableMap(), parser.getFieldMap(), parser.getForeignKeys());
+		}
+
+		if(config.getSnapshotFile() != null){
+			SchemaSnapshot snapshot = SnapshotUtils.load(config.getSnapshotFile());
+			if(snapshot == null)
+				throw new IllegalStateException("无法读取表结构快照：" + config.getSnapshotFile().getPath());
+			String rulesHash = SnapshotUtils.rulesHash(config.isTablePrefix(), config.isManyToOne(), config.isManyToMany(), config.isOneToMany());
+			if(!rulesHash.equals(snapshot.getRulesHash()))
+				throw new IllegalStateException("表结构快照的生成规则（表名前缀、关联关系）与当前配置不一致，请重新导出：" + config.getSnapshotFile().getPath());
+			return snapshot.getEntitys();
+		}
+
+		if(config.getUrl() == null)
+			throw new IllegalStateException("未指定表结构的来源：DDL脚本、表结构快照或数据库");
+
+		// 只需三次批量查询
+		try (Connection conn = openConnection()) {
+			Map<String, String> tableMap = CodeUtils.getTableNames(conn, config.getDataBase());
+			Map<String, List<DbField>> fieldMap = CodeUtils.getTableFields(conn, config.getDataBase());
+			return buildEntitys(tableMap, fieldMap, CodeUtils.getForeignKeys(conn, config.getDataBase()));
+		} catch (SQLException e) {
+			throw new IllegalStateException("无法连接数据库：" + config.getUrl(), e);
+		}
+	}
+
+	/**
+	 * 打开独立的数据库连接，不占用、不修改JdbcUtils的全局连接池（调用方可能正在使用）
+	 */
+	private Connection openConnection() throws SQLException {
+		try {
+			Class.forName(CodeConfig.DRIVER_CLASS_NAME);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("无法加载数据库驱动：" + CodeConfig.DRIVER_CLASS_NAME, e);
+		}
+		return DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword());
+	}
+
+	/**
+	 * 解析实体并关联外键
+	 */
+	private List<Entity> buildEntitys(Map<String, String> tableMap, Map<String, List<DbField>> fieldMap, List<ForeignKey> foreignKeys) {
+		List<Entity> entitys = CodeUtils.parseEntities(tableMap, fieldMap, new HashSet<String>(), config.isTablePrefix(), config.getParallelism());
+		CodeUtils.linkForeignKeys(entitys, foreignKeys, config.getDataBase(), config.isManyToOne(), config.isManyToMany(), config.isOneToMany());
+		return entitys;
+	}
+
+	/**
+	 * 并发渲染所有实体的代码，结果按实体及模板的顺序排列
+	 * @param entitys
+	 * @param data
+	 * @return
+	 */
+	private Map<String, byte[]> render(List<Entity> entitys, Map<String, Object> data) {
+		String javaRootFolder = CodeConfig.SOURCE_NAME_JAVA + "/" + config.getPackageName().replace('.', '/');
+		String mapperRootFolder = CodeConfig.SOURCE_NAME_MAPPER;
+
+		int threads = config.getRenderParallelism() > 0 ? config.getRenderParallelism() : Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, entitys.size())));
+		try {
+			Map<String, Future<byte[]>> futures = new LinkedHashMap<String, Future<byte[]>>();
+			for(Entity entity : entitys){
+				final Map<String, Object> model = CodeUtils.buildModel(entity, data);
+				for(Map.Entry<String, String> target : CodeUtils.getTargetFiles(entity, javaRootFolder, mapperRootFolder).entrySet()){
+					final String templateFile = target.getKey();
+					futures.put(target.getValue().replace(File.separatorChar, '/'), executor.submit(() -> render(model, templateFile)));
+				}
+			}
+
+			Map<String, byte[]> files = new LinkedHashMap<String, byte[]>(futures.size() * 2);
+			for(Map.Entry<String, Future<byte[]>> item : futures.entrySet())
+				files.put(item.getKey(), item.getValue().get());
+			log.info("生成代码：{}个实体，{}个文件", entitys.size(), files.size());
+			return files;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("生成代码时被中断", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("生成代码失败", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * 渲染单个模板
+	 */
+	private byte[] render(Map<String, Object> model, String templateFile) throws IOException, TemplateException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		freeMakerConfig.getTemplate(templateFile).process(model, writer);
+		writer.flush();
+		return out.toByteArray();
+	}
+
+	/**
+	 * 创建模板加载器：指定了模板目录时从目录加载，否则从classpath加载
+	 */
+	private static TemplateLoader createTemplateLoader(File templateFolder) {
+		if(templateFolder == null)
+			return new ClassTemplateLoader(CodeGenerator.class, TEMPLATE_PATH);
+		try {
+			return new FileTemplateLoader(templateFolder);
+		} catch (IOException e) {
+			throw new UncheckedIOException("无法读取模板目录：" + templateFolder.getPath(), e);
+		}
+	}
+
+	/**
+	 * 生成代码用到的所有模板
+	 */
+	private static Collection<String> getTemplateNames() {
+		return CodeUtils.getTargetFiles(new Entity(), "", "").keySet();
+	}
+
+	/**
+	 * 追加文件或目录下指定扩展名的所有文件的摘要
+	 */
+	private static void appendFiles(StringBuilder sb, File file, String suffix) {
+		if(file.isDirectory()){
+			File[] files = file.listFiles((dir, name) -> suffix == null || name.endsWith(suffix));
+			if(files != null){
+				Arrays.sort(files);
+				for(File item : files)
+					appendFiles(sb, item, suffix);
+			}
+		}else if(file.exists()){
+			sb.append('\n').append(file.getPath()).append('=').append(DigestUtils.sha1Hex(FileUtils.readFileByBinary(file)));
+		}else{
+			sb.append('\n').append(file.getPath()).append("=missing");
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+		byte[] buffer = new byte[FileUtils.BUFFER_SIZE];
+		int length;
+		while((length = in.read(buffer)) != -1)
+			out.write(buffer, 0, length);
+		return out.toByteArray();
+	}
+}
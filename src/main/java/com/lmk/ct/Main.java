@@ -1,11 +1,18 @@
 package com.lmk.ct;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.lmk.ct.bean.DbField;
 import com.lmk.ct.bean.Entity;
+import com.lmk.ct.bean.SchemaSnapshot;
 import com.lmk.ct.utils.*;
 import com.lmk.ct.config.AppConfig;
+import com.lmk.ct.config.SnapshotMode;
+import com.lmk.ct.utils.ReportUtils.Phase;
 
 /**
  * 主程序
@@ -26,28 +33,180 @@ public class Main {
 	 */
 	public static void main(String[] args) {
 		// 初始化配置
+		ReportUtils.reset();
 		AppConfig.init();
 
-		//读取表名
-		Map<String, String> tableMap = CodeUtils.getTableNames(AppConfig.dataBase);
-		
+		// 监视模式：在解析表结构之前记录版本
+		SchemaWatcher watcher = null;
+		if(AppConfig.watch){
+			if(AppConfig.archiveFile != null)
+				log.warn("输出到压缩包时不支持监视模式");
+			else if(AppConfig.ddlFiles.length == 0 && AppConfig.snapshotMode == SnapshotMode.Offline)
+				log.warn("离线快照模式下不支持监视模式");
+			else
+				watcher = new SchemaWatcher();
+		}
+
 		// 解析表结构
-		List<Entity> entitys = new ArrayList<Entity>();
+		List<Entity> entitys = parseEntitys();
+		if(watcher == null)
+			JdbcUtils.shutdown();
+
 		Set<String> modules = new HashSet<String>();
-		Set<String> tableNames = tableMap.keySet();
-		for(String tableName : tableNames)
-			entitys.add(CodeUtils.parseEntity(tableName, tableMap.get(tableName), modules));
-		
-		// 解析外键关联
-		CodeUtils.parseForeignKey(entitys, AppConfig.dataBase);
+		for(Entity entity : entitys)
+			modules.add(entity.getModuleName());
 		
+		ReportUtils.setEntityCount(entitys.size());
+
 		// 初始化所有模块
+		long begin = System.nanoTime();
 		Map<String, Object> data = AppConfig.parseMoudle(modules);
+		ReportUtils.end(Phase.Folders, begin);
+
+		// 输出到压缩包：全部实体直接写入压缩包，不使用输出清单及增量生成
+		if(AppConfig.archiveFile != null){
+			begin = System.nanoTime();
+			try (ZipOutput output = new ZipOutput(AppConfig.sourceRootFolder, new File(AppConfig.archiveFile))) {
+				CodeUtils.makeFiles(entitys, data, output);
+				output.finish();
+			} catch (IOException e) {
+				throw new UncheckedIOException("无法输出压缩包：" + AppConfig.archiveFile, e);
+			}
+			ReportUtils.end(Phase.Output, begin);
+			report();
+			return;
+		}
+
+		// 输出代码文件：内容不变的文件不再写入，增量生成时只输出有变化的实体
+		OutputManifest manifest = new OutputManifest(AppConfig.sourceRootFolder, AppConfig.getManifestFile());
+		List<Entity> changed = entitys;
+		Map<String, String> fingerprints = null;
+		if(AppConfig.incremental){
+			begin = System.nanoTime();
+			fingerprints = FingerprintUtils.compute(entitys, data);
+			changed = FingerprintUtils.selectChanged(entitys, FingerprintUtils.load(AppConfig.getFingerprintFile()), fingerprints);
+			for(Entity entity : entitys){
+				for(String targetFile : CodeUtils.getTargetFiles(entity).values())
+					manifest.keep(targetFile);
+			}
+			ReportUtils.end(Phase.Fingerprint, begin);
+		}
+
+		begin = System.nanoTime();
+		CodeUtils.makeFiles(changed, data, manifest);
+		if(fingerprints != null)
+			FingerprintUtils.save(AppConfig.getFingerprintFile(), fingerprints);
 
-		// 输出代码文件
-		for(Entity entity : entitys){
-			data.put("entity", entity);
-			CodeUtils.makeFile(entity, data);
+		// 删除不再输出的文件
+		manifest.removeOrphans();
+		manifest.save();
+		ReportUtils.end(Phase.Output, begin);
+		report();
+
+		// 常驻监视，表结构有变化时只重新生成受影响的实体
+		if(watcher != null){
+			watcher.watch(entitys, data);
+			JdbcUtils.shutdown();
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * 输出运行报告：各阶段耗时及吞吐量，并根据配置保存JSON格式的报告
+	 */
+	static void report() {
+		log.info(ReportUtils.summary());
+		if(AppConfig.reportFile != null)
+			ReportUtils.save(new File(AppConfig.reportFile));
+	}
+
+	/**
+	 * 解析表结构，根据配置读取或导出表结构快照
+	 * @return
+	 */
+	private static List<Entity> parseEntitys() {
+		if(AppConfig.ddlFiles.length > 0)
+			return parseDdlFiles();
+
+		File snapshotFile = new File(AppConfig.snapshotFile);
+		SnapshotMode mode = AppConfig.snapshotMode;
+
+		if(mode == SnapshotMode.Offline){
+			long begin = System.nanoTime();
+			SchemaSnapshot snapshot = SnapshotUtils.load(snapshotFile);
+			ReportUtils.end(Phase.Tables, begin);
+			if(snapshot == null)
+				throw new IllegalStateException("无法读取表结构快照：" + snapshotFile.getPath());
+			if(!SnapshotUtils.rulesHash().equals(snapshot.getRulesHash()))
+				throw new IllegalStateException("表结构快照的生成规则（表名前缀、关联关系）与当前配置不一致，请重新导出：" + snapshotFile.getPath());
+			return snapshot.getEntitys();
+		}
+
+		// 先读取各表的版本，解析期间表结构若有变化，下次运行时将重新解析
+		long begin = System.nanoTime();
+		Map<String, String> tableVersions = null;
+		if(mode == SnapshotMode.Auto || mode == SnapshotMode.Export)
+			tableVersions = CodeUtils.getTableVersions(AppConfig.dataBase);
+
+		if(mode == SnapshotMode.Auto && snapshotFile.exists()){
+			SchemaSnapshot snapshot = SnapshotUtils.load(snapshotFile);
+			if(SnapshotUtils.isUpToDate(snapshot, tableVersions)){
+				ReportUtils.end(Phase.Tables, begin);
+				log.info("表结构未变化，使用表结构快照");
+				return snapshot.getEntitys();
+			}
+			log.info("表结构或生成规则已变化，重新解析");
+		}
+
+		//读取表名
+		Map<String, String> tableMap = CodeUtils.getTableNames(AppConfig.dataBase);
+		ReportUtils.end(Phase.Tables, begin);
+
+		//一次性读取所有表的字段
+		begin = System.nanoTime();
+		Map<String, List<DbField>> fieldMap = CodeUtils.getTableFields(AppConfig.dataBase);
+
+		// 解析表结构
+		List<Entity> entitys = CodeUtils.parseEntities(tableMap, fieldMap, new HashSet<String>());
+		ReportUtils.end(Phase.Fields, begin);
+
+		// 解析外键关联
+		begin = System.nanoTime();
+		CodeUtils.parseForeignKey(entitys, AppConfig.dataBase);
+		ReportUtils.end(Phase.Relations, begin);
+
+		if(tableVersions != null)
+			SnapshotUtils.save(snapshotFile, new SchemaSnapshot(AppConfig.dataBase, System.currentTimeMillis(), SnapshotUtils.rulesHash(), tableVersions, entitys));
+
+		return entitys;
+	}
+
+	/**
+	 * 从DDL脚本解析表结构，不连接数据库
+	 * @return
+	 */
+	static List<Entity> parseDdlFiles() {
+		long begin = System.nanoTime();
+		DdlParser parser = new DdlParser();
+		for(String ddlFile : AppConfig.ddlFiles){
+			try {
+				parser.parse(new File(ddlFile));
+			} catch (IOException e) {
+				throw new UncheckedIOException("无法读取DDL脚本：" + ddlFile, e);
+			}
+		}
+		log.info("DDL脚本解析完成：{}条语句，{}张表，{}条语句解析失败", parser.getStatementCount(), parser.getTableCount(), parser.getErrorCount());
+		ReportUtils.end(Phase.Tables, begin);
+
+		// 解析表结构
+		begin = System.nanoTime();
+		List<Entity> entitys = CodeUtils.parseEntities(parser.getTableMap(), parser.getFieldMap(), new HashSet<String>());
+		ReportUtils.end(Phase.Fields, begin);
+
+		// 解析外键关联
+		begin = System.nanoTime();
+		CodeUtils.linkForeignKeys(entitys, parser.getForeignKeys(), AppConfig.dataBase);
+		ReportUtils.end(Phase.Relations, begin);
+
+		return entitys;
+	}
+}
@@ -0,0 +1,211 @@
+package com.lmk.ct;
+
+import java.io.File;
+import java.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.lmk.ct.bean.DbField;
+import com.lmk.ct.bean.Entity;
+import com.lmk.ct.bean.SchemaSnapshot;
+import com.lmk.ct.config.AppConfig;
+import com.lmk.ct.config.SnapshotMode;
+import com.lmk.ct.utils.*;
+import com.lmk.ct.utils.ReportUtils.Phase;
+
+/**
+ * 表结构监视器：常驻运行，定时检查表结构（或DDL脚本）是否变化，有变化时只重新生成受影响的实体
+ * 已解析的实体及模板保留在内存中，数据库模式下只重新查询有变化的表
+ * 注意：模板已被缓存，修改模板后需重新启动
+ *
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class SchemaWatcher {
+
+	/** 日志记录器 */
+	private static Logger log = LoggerFactory.getLogger(SchemaWatcher.class);
+
+	/** 有变化的表超过该数目时，一次性查询所有字段，而非逐表查询 */
+	private static final int BULK_QUERY_THRESHOLD = 16;
+
+	/** 是否从DDL脚本解析表结构 */
+	private final boolean ddlMode;
+
+	/** 上次生成时的版本：表名（或DDL脚本） -> 版本 */
+	private Map<String, String> versions;
+
+	/** 上次生成时的实体：表名 -> 实体 */
+	private Map<String, Entity> entityMap;
+
+	/** 上次生成时的指纹 */
+	private Map<String, String> fingerprints;
+
+	/**
+	 * 记录当前的版本，须在首次解析表结构之前创建，解析期间的变化将在首次检查时发现
+	 */
+	public SchemaWatcher() {
+		this.ddlMode = AppConfig.ddlFiles.length > 0;
+		this.versions = readVersions();
+	}
+
+	/**
+	 * 持续监视，直到线程被中断
+	 * @param entitys	首次生成的实体
+	 * @param data	首次生成的基础信息
+	 */
+	public void watch(List<Entity> entitys, Map<String, Object> data) {
+		this.entityMap = toMap(entitys);
+		this.fingerprints = FingerprintUtils.compute(entitys, data);
+
+		log.info("监视{}变化：每{}毫秒检查一次，按Ctrl+C退出", ddlMode ? "DDL脚本" : "表结构", AppConfig.watchInterval);
+		while(!Thread.currentThread().isInterrupted()){
+			try {
+				Thread.sleep(AppConfig.watchInterval);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+
+			try {
+				Map<String, String> newVersions = readVersions();
+				if(newVersions.isEmpty() && !versions.isEmpty()){
+					log.warn("无法读取{}，稍后重试", ddlMode ? "DDL脚本" : "表结构");
+					continue;
+				}
+				if(!newVersions.equals(versions))
+					regenerate(newVersions);
+			} catch (RuntimeException e) {
+				// 本次失败时不更新版本，下次检查时重试
+				log.error("重新生成失败，稍后重试", e);
+			}
+		}
+		log.info("停止监视");
+	}
+
+	/**
+	 * 重新解析表结构，只输出有变化的实体
+	 * @param newVersions
+	 */
+	private void regenerate(Map<String, String> newVersions) {
+		long start = System.currentTimeMillis();
+		ReportUtils.reset();
+		List<Entity> entitys = ddlMode ? Main.parseDdlFiles() : reparse(newVersions);
+		ReportUtils.setEntityCount(entitys.size());
+
+		long begin = System.nanoTime();
+		Set<String> modules = new HashSet<String>();
+		for(Entity entity : entitys)
+			modules.add(entity.getModuleName());
+		Map<String, Object> data = AppConfig.parseMoudle(modules);
+		ReportUtils.end(Phase.Folders, begin);
+
+		begin = System.nanoTime();
+		Map<String, String> newPrints = FingerprintUtils.compute(entitys, data);
+		List<Entity> changed = FingerprintUtils.selectChanged(entitys, fingerprints, newPrints);
+
+		OutputManifest manifest = new OutputManifest(AppConfig.sourceRootFolder, AppConfig.getManifestFile());
+		for(Entity entity : entitys){
+			for(String targetFile : CodeUtils.getTargetFiles(entity).values())
+				manifest.keep(targetFile);
+		}
+		ReportUtils.end(Phase.Fingerprint, begin);
+
+		begin = System.nanoTime();
+		if(!changed.isEmpty())
+			CodeUtils.makeFiles(changed, data, manifest);
+		manifest.removeOrphans();
+		manifest.save();
+		FingerprintUtils.save(AppConfig.getFingerprintFile(), newPrints);
+		ReportUtils.end(Phase.Output, begin);
+
+		if(!ddlMode && (AppConfig.snapshotMode == SnapshotMode.Auto || AppConfig.snapshotMode == SnapshotMode.Export))
+			SnapshotUtils.save(new File(AppConfig.snapshotFile), new SchemaSnapshot(AppConfig.dataBase, System.currentTimeMillis(), SnapshotUtils.rulesHash(), newVersions, entitys));
+
+		versions = newVersions;
+		entityMap = toMap(entitys);
+		fingerprints = newPrints;
+		log.info("重新生成完成：{}/{}个实体，写入{}个文件，删除{}个文件，耗时{}毫秒", changed.size(), entitys.size(),
+				manifest.getWrittenCount(), manifest.getDeletedCount(), System.currentTimeMillis() - start);
+		Main.report();
+	}
+
+	/**
+	 * 只重新解析版本有变化、新增或注释有变化的表，其余表沿用上次的实体，再重新关联所有外键
+	 * @param newVersions
+	 * @return
+	 */
+	private List<Entity> reparse(Map<String, String> newVersions) {
+		Set<String> changedTables = new HashSet<String>();
+		for(Map.Entry<String, String> item : newVersions.entrySet()){
+			if(!item.getValue().equals(versions.get(item.getKey())))
+				changedTables.add(item.getKey());
+		}
+		log.info("表结构有变化：{}", changedTables);
+
+		long begin = System.nanoTime();
+		Map<String, String> tableMap = CodeUtils.getTableNames(AppConfig.dataBase);
+		ReportUtils.end(Phase.Tables, begin);
+		if(tableMap.isEmpty() && !newVersions.isEmpty())
+			throw new IllegalStateException("无法查询表结构");
+
+		begin = System.nanoTime();
+		Map<String, List<DbField>> fieldMap = null;
+		if(changedTables.size() > BULK_QUERY_THRESHOLD)
+			fieldMap = CodeUtils.getTableFields(AppConfig.dataBase);
+
+		Set<String> modules = new HashSet<String>();
+		List<Entity> entitys = new ArrayList<Entity>(tableMap.size());
+		for(Map.Entry<String, String> table : tableMap.entrySet()){
+			String tableName = table.getKey();
+			Entity entity = entityMap.get(tableName);
+			if(entity == null || changedTables.contains(tableName) || !table.getValue().equals(entity.getEntityComment())){
+				entity = CodeUtils.parseEntity(tableName, table.getValue(), fieldMap == null ? null : fieldMap.get(tableName), modules);
+			}else{
+				// 关联关系由外键重新建立
+				entity.getMtms().clear();
+				entity.getManyToOnes().clear();
+				entity.getChildren().clear();
+				entity.getChildMap().clear();
+				modules.add(entity.getModuleName());
+			}
+			entitys.add(entity);
+		}
+		ReportUtils.end(Phase.Fields, begin);
+
+		begin = System.nanoTime();
+		CodeUtils.parseForeignKey(entitys, AppConfig.dataBase);
+		ReportUtils.end(Phase.Relations, begin);
+		return entitys;
+	}
+
+	/**
+	 * 读取当前的版本：数据库模式下为各表的版本，DDL模式下为各脚本的修改时间及大小
+	 * @return
+	 */
+	private Map<String, String> readVersions() {
+		if(!ddlMode)
+			return CodeUtils.getTableVersions(AppConfig.dataBase);
+
+		Map<String, String> stamps = new LinkedHashMap<String, String>();
+		for(String ddlFile : AppConfig.ddlFiles){
+			File file = new File(ddlFile);
+			File[] files = file.isDirectory() ? file.listFiles((dir, name) -> name.endsWith(".sql")) : new File[]{ file };
+			if(files == null)
+				continue;
+			Arrays.sort(files);
+			for(File item : files){
+				if(item.isFile())
+					stamps.put(item.getPath(), item.lastModified() + "|" + item.length());
+			}
+		}
+		return stamps;
+	}
+
+	private static Map<String, Entity> toMap(List<Entity> entitys) {
+		Map<String, Entity> map = new HashMap<String, Entity>(entitys.size() * 2);
+		for(Entity entity : entitys)
+			map.put(entity.getTableName(), entity);
+		return map;
+	}
+}
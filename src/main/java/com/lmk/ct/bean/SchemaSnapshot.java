@@ -0,0 +1,70 @@
+package com.lmk.ct.bean;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表结构快照
+ * 保存解析后的全部实体，以及生成快照时各表的创建、更新时间和生成规则的摘要
+ * @author LaoMake
+ *
+ */
+public class SchemaSnapshot {
+	private String dataBase;
+	private long createTime;
+	private String rulesHash;
+	private Map<String, String> tableVersions;
+	private List<Entity> entitys;
+
+	public SchemaSnapshot() {
+	}
+
+	public SchemaSnapshot(String dataBase, long createTime, String rulesHash, Map<String, String> tableVersions, List<Entity> entitys) {
+		super();
+		this.dataBase = dataBase;
+		this.createTime = createTime;
+		this.rulesHash = rulesHash;
+		this.tableVersions = tableVersions;
+		this.entitys = entitys;
+	}
+
+	public String getDataBase() {
+		return dataBase;
+	}
+
+	public void setDataBase(String dataBase) {
+		this.dataBase = dataBase;
+	}
+
+	public long getCreateTime() {
+		return createTime;
+	}
+
+	public void setCreateTime(long createTime) {
+		this.createTime = createTime;
+	}
+
+	public String getRulesHash() {
+		return rulesHash;
+	}
+
+	public void setRulesHash(String rulesHash) {
+		this.rulesHash = rulesHash;
+	}
+
+	public Map<String, String> getTableVersions() {
+		return tableVersions;
+	}
+
+	public void setTableVersions(Map<String, String> tableVersions) {
+		this.tableVersions = tableVersions;
+	}
+
+	public List<Entity> getEntitys() {
+		return entitys;
+	}
+
+	public void setEntitys(List<Entity> entitys) {
+		this.entitys = entitys;
+	}
+}
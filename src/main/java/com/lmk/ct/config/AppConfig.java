@@ -17,6 +17,9 @@ public class AppConfig {
     /** ClassPath类路径 */
     public static String ClassPathRoot;
 
+    /** 源码输出的根目录 */
+    public static String sourceRootFolder;
+
     /** Java源码输出目录 */
     public static String javaRootFolder;
 
@@ -38,6 +41,30 @@ public class AppConfig {
     /** 版本号 */
     public static String version;
 
+    /** 是否增量生成：只重新生成表结构有变化的实体 */
+    public static boolean incremental;
+
+    /** 表结构快照的使用方式 */
+    public static SnapshotMode snapshotMode;
+
+    /** 表结构快照文件 */
+    public static String snapshotFile;
+
+    /** DDL脚本文件或目录，不为空时从脚本解析表结构，不连接数据库 */
+    public static String[] ddlFiles;
+
+    /** 代码压缩包（.zip或.jar），不为空时代码直接输出到压缩包，不输出到目录 */
+    public static String archiveFile;
+
+    /** JSON格式的运行报告文件，不为空时每次生成后保存 */
+    public static String reportFile;
+
+    /** 是否常驻监视表结构（或DDL脚本）的变化，有变化时重新生成 */
+    public static boolean watch;
+
+    /** 监视时检查变化的间隔（毫秒） */
+    public static long watchInterval;
+
     public static void init(){
         // 初始化类路径的根目录
         ClassPathRoot = FileUtils.getRootClassPath(AppConfig.class);
@@ -55,6 +82,18 @@ public class AppConfig {
         String port = pu.getString("db.port");
         String url = String.format(CodeConfig.TEMPLATE_URL, host, port, dataBase);
 
+        // 缓存预编译语句时使用服务端预编译
+        int statementCacheSize = pu.getInt("db.pool.statementCacheSize", 64);
+        if(statementCacheSize > 0)
+            url += CodeConfig.URL_SERVER_PREPARE;
+
+        JdbcUtils.setPoolConfig(
+                pu.getInt("db.pool.minSize", 1),
+                pu.getInt("db.pool.maxSize", 10),
+                pu.getInt("db.pool.maxWait", 30000),
+                pu.getInt("db.pool.idleTimeout", 600000),
+                pu.getBoolean("db.pool.validateOnBorrow", true),
+                statementCacheSize);
         JdbcUtils.init(user, password, url, CodeConfig.DRIVER_CLASS_NAME);
 
         //初始化代码配置
@@ -62,12 +101,38 @@ public class AppConfig {
         author = pu.getString("code.author");
         email = pu.getString("code.email");
         version = pu.getString("code.version");
+        incremental = pu.getBoolean("code.incremental", false);
+
+        // 初始化表结构快照
+        sourceRootFolder = ClassPathRoot + File.separator + CodeConfig.SOURCE_NAME + File.separator;
+        snapshotMode = SnapshotMode.parse(pu.getString("code.snapshot", SnapshotMode.None.name()));
+        snapshotFile = pu.getString("code.snapshotFile", sourceRootFolder + CodeConfig.SNAPSHOT_FILE_NAME);
+
+        // 初始化DDL脚本，多个文件或目录以逗号分隔
+        String ddl = pu.getString("code.ddlFiles", "");
+        ddlFiles = ddl.trim().isEmpty() ? new String[0] : ddl.trim().split("\\s*,\\s*");
+
+        // 初始化代码压缩包
+        archiveFile = pu.getString("code.archiveFile", "").trim();
+        if(archiveFile.isEmpty())
+            archiveFile = null;
+
+        // 初始化运行报告
+        reportFile = pu.getString("code.reportFile", "").trim();
+        if(reportFile.isEmpty())
+            reportFile = null;
+
+        // 初始化监视模式
+        watch = pu.getBoolean("code.watch", false);
+        watchInterval = pu.getInt("code.watchInterval", 3000);
 
         // 初始化代码生成规则
         CodeUtils.parseTablePrefix = pu.getBoolean("code.tablePrefix", true);
         CodeUtils.buildManyToOne = pu.getBoolean("code.manyToOne", false);
         CodeUtils.buildManyToMany = pu.getBoolean("code.manyToMany", true);
         CodeUtils.buildOneToMany = pu.getBoolean("code.oneToMany", false);
+        CodeUtils.parallelism = pu.getInt("code.parallelism", 1);
+        CodeUtils.renderParallelism = pu.getInt("code.renderParallelism", 0);
     }
 
 
@@ -79,6 +144,11 @@ public class AppConfig {
         // 初始化代码文件目录
         String[] packageNameItem = packageName.split("\\.");
 
+        // 没有输出清单时（首次输出）清空输出目录，此后由输出清单删除不再输出的文件
+        // 输出到压缩包时不创建、也不清空输出目录
+        boolean makeFolder = archiveFile == null;
+        boolean clearFolder = makeFolder && !getManifestFile().exists();
+
         // Java源码目录
         StringBuffer sb = new StringBuffer()
                 .append(ClassPathRoot).append(File.separator)
@@ -89,8 +159,10 @@ public class AppConfig {
             sb.append(nameItem).append(File.separator);
 
         javaRootFolder = sb.toString();
-        FileUtils.makeSureFolderExits(javaRootFolder);
-        FileUtils.clearFolder(javaRootFolder);
+        if(makeFolder)
+            FileUtils.makeSureFolderExits(javaRootFolder);
+        if(clearFolder)
+            FileUtils.clearFolder(javaRootFolder);
 
         // 映射文件源码目录
         sb = new StringBuffer()
@@ -99,13 +171,15 @@ public class AppConfig {
                 .append(CodeConfig.SOURCE_NAME_MAPPER).append(File.separator);
 
         mapperRootFolder = sb.toString();
-        FileUtils.makeSureFolderExits(mapperRootFolder);
-        FileUtils.clearFolder(mapperRootFolder);
+        if(makeFolder)
+            FileUtils.makeSureFolderExits(mapperRootFolder);
+        if(clearFolder)
+            FileUtils.clearFolder(mapperRootFolder);
 
         // 初始化各子模块的源码目录
         String javaFolderPath;
         String entityFolder, daoFolder, serviceFolder, serviceImplFolder, webFolder;
-        for(String moduleName : modules){
+        for(String moduleName : makeFolder ? modules : Collections.<String>emptySet()){
 
             javaFolderPath = javaRootFolder + moduleName + File.separator;
             entityFolder = javaFolderPath + CodeConfig.SOURCE_NAME_ENTITY + File.separator;
@@ -119,6 +193,7 @@ public class AppConfig {
             FileUtils.makeSureFolderExits(serviceFolder);
             FileUtils.makeSureFolderExits(serviceImplFolder);
             FileUtils.makeSureFolderExits(webFolder);
+            FileUtils.makeSureFolderExits(mapperRootFolder + moduleName + File.separator);
         }
 
         // 构建代码注释等信息
@@ -132,4 +207,20 @@ public class AppConfig {
         return data;
     }
 
+    /**
+     * 获取输出清单文件
+     * @return
+     */
+    public static File getManifestFile(){
+        return new File(sourceRootFolder + CodeConfig.MANIFEST_FILE_NAME);
+    }
+
+    /**
+     * 获取表结构指纹文件
+     * @return
+     */
+    public static File getFingerprintFile(){
+        return new File(sourceRootFolder + CodeConfig.FINGERPRINT_FILE_NAME);
+    }
+
 }
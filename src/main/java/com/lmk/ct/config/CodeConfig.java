@@ -11,24 +11,44 @@ public class CodeConfig {
     /** 数据库链接地址模板 */
     public static final String TEMPLATE_URL = "jdbc:mysql://%s:%s/%s?serverTimezone=Asia/Shanghai&useUnicode=true&characterEncoding=utf-8";
 
+    /** 使用服务端预编译，与连接池的预编译语句缓存配合，重复的SQL不再由服务端解析 */
+    public static final String URL_SERVER_PREPARE = "&useServerPrepStmts=true";
+
     /** 查询所有表 */
     public static final String SQL_TABLE_NAMES = "SELECT table_name, table_comment FROM information_schema.tables WHERE table_schema = ?";
 
-    /** 统计主键的数目 */
-    public static final String SQL_COUNT_PRIMARY_KEY = "SELECT COUNT(k.column_name) FROM information_schema.key_column_usage k WHERE k.constraint_name = 'PRIMARY' AND k.table_schema = ? AND k.table_name = ?";
+    /** 查询所有表的创建、更新时间、表注释及字段数目、字段定义和外键的校验和（ALTER TABLE不一定更新update_time，修改表注释、在已有索引的列上增删外键不改变字段定义） */
+    public static final String SQL_TABLE_VERSIONS = "SELECT t.table_name, t.create_time, t.update_time, t.table_comment, COUNT(c.column_name) AS column_count, "
+            + "SUM(CRC32(CONCAT_WS('|', c.column_name, c.ordinal_position, c.column_type, c.is_nullable, c.column_default, c.column_comment, c.column_key))) AS column_checksum, "
+            + "(SELECT SUM(CRC32(CONCAT_WS('|', k.constraint_name, k.column_name, k.ordinal_position, k.referenced_table_name, k.referenced_column_name))) "
+            + "FROM information_schema.key_column_usage k WHERE k.table_schema = t.table_schema AND k.table_name = t.table_name AND k.referenced_table_name IS NOT NULL) AS foreign_key_checksum "
+            + "FROM information_schema.tables t LEFT JOIN information_schema.columns c ON c.table_schema = t.table_schema AND c.table_name = t.table_name "
+            + "WHERE t.table_schema = ? GROUP BY t.table_schema, t.table_name, t.create_time, t.update_time, t.table_comment ORDER BY t.table_name";
+
+    /** 统计所有表的主键数目 */
+    public static final String SQL_COUNT_ALL_PRIMARY_KEY = "SELECT k.table_name, COUNT(k.column_name) AS key_count FROM information_schema.key_column_usage k WHERE k.constraint_name = 'PRIMARY' AND k.table_schema = ? GROUP BY k.table_name";
+
+    /** 查询所有表的所有字段，按表名、字段顺序排列 */
+    public static final String SQL_ALL_TABLE_FIELDS = "SELECT c.table_name, c.column_name, c.column_type, c.is_nullable, c.column_default, c.column_comment, c.column_key FROM information_schema.columns c WHERE c.table_schema = ? ORDER BY c.table_name, c.ordinal_position";
 
     /** 查询表的所有字段 */
     public static final String SQL_TABLE_FIELDS = "SHOW FULL FIELDS FROM ";
 
     /** 查询所有外键关联 */
-    public static final String SQL_ALL_FOREIGN_KEY = "SELECT table_name AS source_table, column_name AS source_column, referenced_table_name AS target_table, referenced_column_name AS target_column FROM information_schema.key_column_usage WHERE referenced_table_name IS NOT NULL AND table_schema = ?";
-
-    /** 查询多对多中间表的Key */
-    public static final String SQL_MANY_TO_MANY = "SELECT DISTINCT k.REFERENCED_TABLE_NAME AS table_name, k.COLUMN_NAME AS column_name FROM information_schema.KEY_COLUMN_USAGE k WHERE k.CONSTRAINT_SCHEMA = ? AND k.REFERENCED_TABLE_NAME IS NOT NULL AND k.TABLE_NAME = ?";
+    public static final String SQL_ALL_FOREIGN_KEY = "SELECT table_name AS source_table, column_name AS source_column, referenced_table_name AS target_table, referenced_column_name AS target_column FROM information_schema.key_column_usage WHERE referenced_table_name IS NOT NULL AND table_schema = ? ORDER BY table_name, constraint_name, ordinal_position";
 
     /** 源码目录名称 */
     public static final String SOURCE_NAME = "sourceCodes";
 
+    /** 表结构指纹文件名称，位于源码目录下 */
+    public static final String FINGERPRINT_FILE_NAME = "fingerprint.properties";
+
+    /** 输出清单文件名称，位于源码目录下 */
+    public static final String MANIFEST_FILE_NAME = "manifest.properties";
+
+    /** 表结构快照文件名称，默认位于源码目录下 */
+    public static final String SNAPSHOT_FILE_NAME = "schema.snapshot";
+
     /** Java源码目录名称 */
     public static final String SOURCE_NAME_JAVA = "java";
 
@@ -0,0 +1,233 @@
+package com.lmk.ct.config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 代码生成配置，供嵌入式调用（如Maven插件）使用，与app.properties中的配置项一一对应
+ * 表结构的来源按优先级依次为：DDL脚本、表结构快照、数据库
+ */
+public class GeneratorConfig {
+
+    /** 数据库地址，如：jdbc:mysql://127.0.0.1:3306/db */
+    private String url;
+
+    /** 数据库用户名 */
+    private String user;
+
+    /** 数据库密码 */
+    private String password;
+
+    /** 数据库名称 */
+    private String dataBase;
+
+    /** DDL脚本文件或目录 */
+    private List<File> ddlFiles = new ArrayList<File>();
+
+    /** 表结构快照文件 */
+    private File snapshotFile;
+
+    /** 模板目录，为null时使用classpath中的template目录 */
+    private File templateFolder;
+
+    /** 基础包名 */
+    private String packageName = "com.lmk";
+
+    /** 作者 */
+    private String author;
+
+    /** 邮箱 */
+    private String email;
+
+    /** 版本号 */
+    private String version;
+
+    /** 代码注释中的生成日期，为null时使用当前时间 */
+    private String date;
+
+    /** 是否将表名的前缀解析为模块名 */
+    private boolean tablePrefix = true;
+
+    /** 是否解析、生成多对一关系 */
+    private boolean manyToOne = false;
+
+    /** 是否解析、生成多对多关系 */
+    private boolean manyToMany = true;
+
+    /** 是否解析、生成一对多关系 */
+    private boolean oneToMany = false;
+
+    /** 解析实体的并发线程数，小于等于1时串行解析 */
+    private int parallelism = 1;
+
+    /** 输出代码的并发线程数，小于等于0时使用CPU核数 */
+    private int renderParallelism = 0;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public String getDataBase() {
+        return dataBase;
+    }
+
+    public void setDataBase(String dataBase) {
+        this.dataBase = dataBase;
+    }
+
+    public List<File> getDdlFiles() {
+        return ddlFiles;
+    }
+
+    public void setDdlFiles(List<File> ddlFiles) {
+        this.ddlFiles = ddlFiles;
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public void setSnapshotFile(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public File getTemplateFolder() {
+        return templateFolder;
+    }
+
+    public void setTemplateFolder(File templateFolder) {
+        this.templateFolder = templateFolder;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public void setPackageName(String packageName) {
+        this.packageName = packageName;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    public boolean isTablePrefix() {
+        return tablePrefix;
+    }
+
+    public void setTablePrefix(boolean tablePrefix) {
+        this.tablePrefix = tablePrefix;
+    }
+
+    public boolean isManyToOne() {
+        return manyToOne;
+    }
+
+    public void setManyToOne(boolean manyToOne) {
+        this.manyToOne = manyToOne;
+    }
+
+    public boolean isManyToMany() {
+        return manyToMany;
+    }
+
+    public void setManyToMany(boolean manyToMany) {
+        this.manyToMany = manyToMany;
+    }
+
+    public boolean isOneToMany() {
+        return oneToMany;
+    }
+
+    public void setOneToMany(boolean oneToMany) {
+        this.oneToMany = oneToMany;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getRenderParallelism() {
+        return renderParallelism;
+    }
+
+    public void setRenderParallelism(int renderParallelism) {
+        this.renderParallelism = renderParallelism;
+    }
+
+    /**
+     * 生成规则的描述，不含数据库密码及生成日期，用于判断配置是否变化
+     * @return
+     */
+    public String describe() {
+        return new StringBuilder()
+                .append("url=").append(url)
+                .append(", user=").append(user)
+                .append(", dataBase=").append(dataBase)
+                .append(", ddlFiles=").append(ddlFiles)
+                .append(", snapshotFile=").append(snapshotFile)
+                .append(", templateFolder=").append(templateFolder)
+                .append(", packageName=").append(packageName)
+                .append(", author=").append(author)
+                .append(", email=").append(email)
+                .append(", version=").append(version)
+                .append(", tablePrefix=").append(tablePrefix)
+                .append(", manyToOne=").append(manyToOne)
+                .append(", manyToMany=").append(manyToMany)
+                .append(", oneToMany=").append(oneToMany)
+                .toString();
+    }
+}
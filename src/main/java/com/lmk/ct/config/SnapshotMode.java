@@ -0,0 +1,31 @@
+package com.lmk.ct.config;
+
+/**
+ * 表结构快照的使用方式
+ */
+public enum SnapshotMode {
+    /** 不使用快照 */
+    None,
+
+    /** 从数据库解析表结构，并导出快照 */
+    Export,
+
+    /** 只从快照读取表结构，不连接数据库 */
+    Offline,
+
+    /** 各表的创建、更新时间与快照一致时使用快照，否则重新解析并导出快照 */
+    Auto;
+
+    /**
+     * 解析配置值，忽略大小写
+     * @param value
+     * @return 无法识别时返回None
+     */
+    public static SnapshotMode parse(String value){
+        for(SnapshotMode mode : values()){
+            if(mode.name().equalsIgnoreCase(value))
+                return mode;
+        }
+        return None;
+    }
+}
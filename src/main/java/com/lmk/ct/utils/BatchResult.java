@@ -0,0 +1,179 @@
+package com.lmk.ct.utils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 分批执行的结果及进度：已执行、已提交、失败的行数，受影响的记录数，每批的失败原因
+ * 执行期间每批结束后传给进度回调，回调中读取到的是当时的进度
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class BatchResult {
+
+	/**
+	 * 执行失败的一批
+	 */
+	public static class Failure {
+
+		/** 该批第一行在参数中的位置，从0开始 */
+		private final long firstRow;
+
+		/** 该批的行数 */
+		private final int rowCount;
+
+		/** 失败原因 */
+		private final SQLException cause;
+
+		Failure(long firstRow, int rowCount, SQLException cause) {
+			this.firstRow = firstRow;
+			this.rowCount = rowCount;
+			this.cause = cause;
+		}
+
+		public long getFirstRow() {
+			return firstRow;
+		}
+
+		public int getRowCount() {
+			return rowCount;
+		}
+
+		public SQLException getCause() {
+			return cause;
+		}
+
+		@Override
+		public String toString() {
+			if(rowCount == 0)
+				return cause.getMessage();
+			return "第" + firstRow + "~" + (firstRow + rowCount - 1) + "行：" + cause.getMessage();
+		}
+	}
+
+	/** 已执行的行数（含尚未提交的） */
+	private long rows;
+
+	/** 已提交的行数 */
+	private long committedRows;
+
+	/** 失败的行数，单个事务时还包括随事务回滚的行 */
+	private long failedRows;
+
+	/** 受影响的记录数，多行VALUES改写后由数据库按语句返回 */
+	private long affectedRows;
+
+	/** 已执行的批数 */
+	private int chunks;
+
+	/** 失败的批 */
+	private final List<Failure> failures = new ArrayList<Failure>();
+
+	/** 开始时间（纳秒） */
+	private final long startNanos = System.nanoTime();
+
+	/** 结束时间（纳秒），执行期间为0 */
+	private long endNanos;
+
+	BatchResult() {
+	}
+
+	/**
+	 * 记录执行成功的一批
+	 */
+	void chunkDone(int rowCount, long affected, boolean committed) {
+		rows += rowCount;
+		affectedRows += affected;
+		chunks++;
+		if(committed)
+			committedRows += rowCount;
+	}
+
+	/**
+	 * 记录执行失败的一批，该批已回滚
+	 */
+	void chunkFailed(long firstRow, int rowCount, SQLException cause) {
+		failedRows += rowCount;
+		chunks++;
+		failures.add(new Failure(firstRow, rowCount, cause));
+	}
+
+	/**
+	 * 单个事务提交成功
+	 */
+	void commitAll() {
+		committedRows = rows;
+	}
+
+	/**
+	 * 单个事务已回滚，此前执行成功的行也计为失败
+	 */
+	void rollbackAll() {
+		failedRows += rows - committedRows;
+		affectedRows = 0;
+		rows = committedRows;
+	}
+
+	void finish() {
+		endNanos = System.nanoTime();
+	}
+
+	/**
+	 * 是否全部成功
+	 * @return
+	 */
+	public boolean isSuccess() {
+		return failures.isEmpty();
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getCommittedRows() {
+		return committedRows;
+	}
+
+	public long getFailedRows() {
+		return failedRows;
+	}
+
+	public long getAffectedRows() {
+		return affectedRows;
+	}
+
+	public int getChunks() {
+		return chunks;
+	}
+
+	public List<Failure> getFailures() {
+		return Collections.unmodifiableList(failures);
+	}
+
+	/**
+	 * 耗时（毫秒），执行期间为已耗时
+	 * @return
+	 */
+	public long getElapsedMillis() {
+		return ((endNanos == 0 ? System.nanoTime() : endNanos) - startNanos) / 1000000;
+	}
+
+	/**
+	 * 每秒执行的行数
+	 * @return
+	 */
+	public double getRowsPerSecond() {
+		long nanos = (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+		return nanos == 0 ? 0 : (rows + failedRows) * 1e9 / nanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "执行%d行，提交%d行，失败%d行，影响%d条记录，%d批，耗时%d毫秒，%.0f行/秒",
+				rows, committedRows, failedRows, affectedRows, chunks, getElapsedMillis(), getRowsPerSecond());
+	}
+}
@@ -0,0 +1,25 @@
+package com.lmk.ct.utils;
+
+/**
+ * 代码输出目标，可被多个输出线程同时使用
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public interface CodeOutput {
+
+	/**
+	 * 输出文件
+	 * @param targetFile	目标文件
+	 * @param content	文件内容
+	 * @return 是否写入了文件
+	 */
+	boolean write(String targetFile, byte[] content);
+
+	/**
+	 * 保留上次输出的文件，用于本次未重新输出（或渲染失败）的文件
+	 * 不能保留上次输出的输出目标（如压缩包）应抛出IllegalStateException
+	 * @param targetFile	目标文件
+	 */
+	void keep(String targetFile);
+}
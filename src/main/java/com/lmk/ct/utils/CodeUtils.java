@@ -2,10 +2,12 @@ package com.lmk.ct.utils;
 
 import java.io.File;
 import java.util.*;
-import java.security.SecureRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Statement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.commons.lang3.StringUtils;
@@ -23,9 +25,6 @@ public class CodeUtils {
 	/** 日志记录器 */
 	private static Logger log = LoggerFactory.getLogger(CodeUtils.class);
 	
-	/** 安全的随机数生成器 */
-	private static SecureRandom random = new SecureRandom();
-
 	/** 生成一对多映射 */
 	public static Boolean parseTablePrefix = true;
 
@@ -38,38 +37,74 @@ public class CodeUtils {
 	/** 生成一对多映射 */
 	public static Boolean buildOneToMany = false;
 
+	/** 解析实体的并发线程数，小于等于1时串行解析 */
+	public static Integer parallelism = 1;
+
+	/** 输出代码的并发线程数，小于等于0时使用CPU核数 */
+	public static Integer renderParallelism = 0;
+
 	/**
 	 * 查询所有实体名
+	 * 一次性统计所有表的主键数目，排除多对多的关联表
 	 * @param dataBaseName
 	 * @return
 	 */
 	public static Map<String, String> getTableNames(final String dataBaseName){
+		Connection conn = JdbcUtils.getConn();
+		try {
+			return getTableNames(conn, dataBaseName);
+		} finally {
+			JdbcUtils.close(conn);
+		}
+	}
+	
+	/**
+	 * 使用指定的连接查询所有实体名，不关闭连接
+	 * @param conn
+	 * @param dataBaseName
+	 * @return
+	 */
+	public static Map<String, String> getTableNames(Connection conn, final String dataBaseName){
 		log.info("查询表结构...");
 		Map<String, String> tableNames = new LinkedHashMap<>();
 		
-		Connection conn = JdbcUtils.getConn();
 		if(conn != null){
 			PreparedStatement ps = null;
 			ResultSet rs = null;
 			try {
+				// 统计各表的主键数目
+				Map<String, Long> keyCounts = new HashMap<String, Long>();
+				ps = conn.prepareStatement(CodeConfig.SQL_COUNT_ALL_PRIMARY_KEY);
+				if(ps != null){
+					ps.setString(1, dataBaseName);
+					rs = ps.executeQuery();
+					ReportUtils.roundTrip();
+					while(rs.next())
+						keyCounts.put(rs.getString("table_name"), rs.getLong("key_count"));
+				}
+				JdbcUtils.close(rs);
+				JdbcUtils.close(ps);
+				
 				ps = conn.prepareStatement(CodeConfig.SQL_TABLE_NAMES);
 				if(ps != null){
 					ps.setString(1, dataBaseName);
 					rs = ps.executeQuery();
+					ReportUtils.roundTrip();
 					String tableName, entityComment;
 					while(rs.next()){
 						tableName = rs.getString("table_name");
 						entityComment = rs.getString("table_comment");
 						if(entityComment == null)
 							entityComment = "";//避免FreeMarker报null错误
-						if(checkRealEntity(dataBaseName, tableName))
+						if(isRealEntity(keyCounts.get(tableName)))
 							tableNames.put(tableName, entityComment);
 					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
 			} finally {
-				JdbcUtils.close(rs, ps, conn);
+				JdbcUtils.close(rs);
+				JdbcUtils.close(ps);
 			}
 		}
 		
@@ -77,16 +112,208 @@ public class CodeUtils {
 	}
 	
 	/**
-	 * 解析实体类
+	 * 查询所有表的版本：创建时间、更新时间、字段数目、字段定义及外键的校验和、表注释，用于判断表结构快照是否过期、表结构是否变化
+	 * @param dataBaseName
+	 * @return 表名 -> 版本
+	 */
+	public static Map<String, String> getTableVersions(final String dataBaseName){
+		Connection conn = JdbcUtils.getConn();
+		try {
+			return getTableVersions(conn, dataBaseName);
+		} finally {
+			JdbcUtils.close(conn);
+		}
+	}
+	
+	/**
+	 * 使用指定的连接查询所有表的版本，不关闭连接
+	 * @param conn
+	 * @param dataBaseName
+	 * @return 表名 -> 版本
+	 */
+	public static Map<String, String> getTableVersions(Connection conn, final String dataBaseName){
+		Map<String, String> tableVersions = new LinkedHashMap<>();
+		
+		if(conn != null){
+			PreparedStatement ps = null;
+			ResultSet rs = null;
+			try {
+				ps = conn.prepareStatement(CodeConfig.SQL_TABLE_VERSIONS);
+				if(ps != null){
+					ps.setString(1, dataBaseName);
+					rs = ps.executeQuery();
+					ReportUtils.roundTrip();
+					while(rs.next())
+						tableVersions.put(rs.getString("table_name"), rs.getString("create_time") + "|" + rs.getString("update_time")
+								+ "|" + rs.getLong("column_count") + "|" + rs.getString("column_checksum")
+								+ "|" + rs.getString("foreign_key_checksum") + "|" + rs.getString("table_comment"));
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			} finally {
+				JdbcUtils.close(rs);
+				JdbcUtils.close(ps);
+			}
+		}
+		
+		return tableVersions;
+	}
+	
+	/**
+	 * 一次性查询所有表的字段
+	 * 注意：对于唯一索引，需要将其Index_type设置为UNIQUE
+	 * @param dataBaseName
+	 * @return 表名 -> 字段列表
+	 */
+	public static Map<String, List<DbField>> getTableFields(final String dataBaseName){
+		Connection conn = JdbcUtils.getConn();
+		try {
+			return getTableFields(conn, dataBaseName);
+		} finally {
+			JdbcUtils.close(conn);
+		}
+	}
+	
+	/**
+	 * 使用指定的连接一次性查询所有表的字段，不关闭连接
+	 * @param conn
+	 * @param dataBaseName
+	 * @return 表名 -> 字段列表
+	 */
+	public static Map<String, List<DbField>> getTableFields(Connection conn, final String dataBaseName){
+		log.info("查询所有字段...");
+		Map<String, List<DbField>> tableFields = new LinkedHashMap<>();
+		
+		if(conn != null){
+			PreparedStatement ps = null;
+			ResultSet rs = null;
+			try {
+				ps = conn.prepareStatement(CodeConfig.SQL_ALL_TABLE_FIELDS);
+				if(ps != null){
+					ps.setString(1, dataBaseName);
+					rs = ps.executeQuery();
+					ReportUtils.roundTrip();
+					String tableName;
+					List<DbField> fields = null;
+					String lastTableName = null;
+					while(rs.next()){
+						tableName = rs.getString("table_name");
+						if(!tableName.equals(lastTableName)){
+							fields = tableFields.computeIfAbsent(tableName, k -> new ArrayList<DbField>());
+							lastTableName = tableName;
+						}
+						addField(fields,
+								rs.getString("column_name"),
+								rs.getString("column_type"),
+								rs.getString("is_nullable"),
+								rs.getString("column_default"),
+								rs.getString("column_comment"),
+								rs.getString("column_key"));
+					}
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			} finally {
+				JdbcUtils.close(rs);
+				JdbcUtils.close(ps);
+			}
+		}
+		
+		return tableFields;
+	}
+	
+	/**
+	 * 解析所有实体类，并发数由parallelism指定，返回的实体顺序与tableMap一致
+	 * @param tableMap	表名 -> 表注释
+	 * @param fieldMap	表名 -> 已查询的字段，为null时逐表查询
+	 * @param modules	模块名集合
+	 * @return
+	 */
+	public static List<Entity> parseEntities(Map<String, String> tableMap, Map<String, List<DbField>> fieldMap, Set<String> modules){
+		return parseEntities(tableMap, fieldMap, modules, parseTablePrefix, parallelism);
+	}
+	
+	/**
+	 * 解析所有实体类，返回的实体顺序与tableMap一致
+	 * @param tableMap	表名 -> 表注释
+	 * @param fieldMap	表名 -> 已查询的字段，为null时逐表查询
+	 * @param modules	模块名集合
+	 * @param parseTablePrefix	是否将表名的前缀解析为模块名
+	 * @param parallelism	并发数，小于等于1时串行解析；fieldMap不为null时解析只在内存中进行，建议串行
+	 * @return
+	 */
+	public static List<Entity> parseEntities(Map<String, String> tableMap, Map<String, List<DbField>> fieldMap, Set<String> modules, boolean parseTablePrefix, int parallelism){
+		List<Entity> entitys = new ArrayList<Entity>(tableMap.size());
+		int threads = Math.min(parallelism, tableMap.size());
+		if(threads <= 1){
+			for(Map.Entry<String, String> table : tableMap.entrySet())
+				entitys.add(parseEntity(table.getKey(), table.getValue(), fieldMap == null ? null : fieldMap.get(table.getKey()), modules, parseTablePrefix));
+			return entitys;
+		}
+
+		log.info("并发解析：{}个线程", threads);
+		Set<String> concurrentModules = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = newExecutor("CodeUtils-parser", threads);
+		try {
+			List<Future<Entity>> futures = new ArrayList<Future<Entity>>(tableMap.size());
+			for(Map.Entry<String, String> table : tableMap.entrySet()){
+				final String tableName = table.getKey();
+				final String tableComment = table.getValue();
+				final List<DbField> fields = fieldMap == null ? null : fieldMap.get(tableName);
+				futures.add(executor.submit(() -> parseEntity(tableName, tableComment, fields, concurrentModules, parseTablePrefix)));
+			}
+
+			// 按提交顺序收集结果，保证实体顺序不变
+			for(Future<Entity> future : futures)
+				entitys.add(future.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("解析实体时被中断", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("解析实体失败", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		modules.addAll(concurrentModules);
+
+		return entitys;
+	}
+	
+	/**
+	 * 解析实体类，逐表查询字段
 	 * @param tableName
 	 * @param tableComment
 	 * @param modules
 	 * @return
 	 */
 	public static Entity parseEntity(String tableName, String tableComment, Set<String> modules) {
+		return parseEntity(tableName, tableComment, null, modules);
+	}
+	
+	/**
+	 * 解析实体类
+	 * @param tableName
+	 * @param tableComment
+	 * @param fields	已查询的字段，为null时逐表查询
+	 * @param modules
+	 * @return
+	 */
+	public static Entity parseEntity(String tableName, String tableComment, List<DbField> fields, Set<String> modules) {
+		return parseEntity(tableName, tableComment, fields, modules, parseTablePrefix);
+	}
+	
+	/**
+	 * 解析实体类
+	 * @param tableName
+	 * @param tableComment
+	 * @param fields	已查询的字段，为null时逐表查询
+	 * @param modules
+	 * @param parseTablePrefix	是否将表名的前缀解析为模块名
+	 * @return
+	 */
+	public static Entity parseEntity(String tableName, String tableComment, List<DbField> fields, Set<String> modules, boolean parseTablePrefix) {
 		log.info("分析：{}", tableName);
 		Entity entity = new Entity();
-		entity.setSerialVersionUID(String.valueOf(random.nextLong()));
 		entity.setTableName(tableName);
 		entity.setEntityComment(tableComment);
 		
@@ -100,7 +327,8 @@ public class CodeUtils {
 		entity.setEntityName(entityName);
 		entity.setEntityNameLower(Character.toLowerCase(entityName.charAt(0)) + entityName.substring(1));
 		
-		List<DbField> fields = getFields(tableName);
+		if(fields == null)
+			fields = getFields(tableName);
 		entity.setFields(fields);
 		
 		//判断是否有日期类型
@@ -123,6 +351,9 @@ public class CodeUtils {
 		
 		entity.setHasDateType(hasDateType);
 		
+		// 由表结构计算序列化版本号，表结构不变时生成的代码也不变
+		entity.setSerialVersionUID(String.valueOf(FingerprintUtils.serialVersionUID(entity)));
+		
 		return entity;
 	}
 	
@@ -134,12 +365,31 @@ public class CodeUtils {
 	 */
 	public static void parseForeignKey(List<Entity> entitys, String dataBaseName){
 		log.info("关联所有外键...");
-		Map<String, Entity> entityMap = new HashMap<String, Entity>();
-		for(Entity entity : entitys)
-			entityMap.put(entity.getTableName(), entity);
-		
-		List<ForeignKey> foreignKeys = new ArrayList<>();
+		linkForeignKeys(entitys, getForeignKeys(dataBaseName), dataBaseName);
+	}
+	
+	/**
+	 * 一次性查询所有外键
+	 * @param dataBaseName
+	 * @return
+	 */
+	public static List<ForeignKey> getForeignKeys(String dataBaseName){
 		Connection conn = JdbcUtils.getConn();
+		try {
+			return getForeignKeys(conn, dataBaseName);
+		} finally {
+			JdbcUtils.close(conn);
+		}
+	}
+	
+	/**
+	 * 使用指定的连接一次性查询所有外键，不关闭连接
+	 * @param conn
+	 * @param dataBaseName
+	 * @return
+	 */
+	public static List<ForeignKey> getForeignKeys(Connection conn, String dataBaseName){
+		List<ForeignKey> foreignKeys = new ArrayList<>();
 		if(conn != null){
 			PreparedStatement ps = null;
 			ResultSet rs = null;
@@ -148,6 +398,7 @@ public class CodeUtils {
 				if(ps != null){
 					ps.setString(1, dataBaseName);
 					rs = ps.executeQuery();
+					ReportUtils.roundTrip();
 					while(rs.next()){
 						foreignKeys.add(new ForeignKey(
 								rs.getString("source_column"), 
@@ -158,41 +409,68 @@ public class CodeUtils {
 			} catch (Exception e) {
 				e.printStackTrace();
 			} finally {
-				JdbcUtils.close(rs, ps, conn);
+				JdbcUtils.close(rs);
+				JdbcUtils.close(ps);
 			}
-			
-			Entity sourceEntity;
-			Entity targetEntity;
-			ManyToOne mto = null;
-			Set<String> mtmTableSet = new HashSet<String>();
-			for(ForeignKey foreignKey : foreignKeys){
-				sourceEntity = entityMap.get(foreignKey.getSourceTableName());
-				if(sourceEntity != null){//排除多对多关联
-					targetEntity = entityMap.get(foreignKey.getTargetTableName());
-					if(targetEntity != null){
-						//生成一对多
-						if(buildOneToMany){
-							targetEntity.getChildren().add(sourceEntity);
-							targetEntity.getChildMap().put(sourceEntity.getEntityName(), foreignKey.getColumnName());
-						}
-						
-						//生成多对一
-						if(buildManyToOne){
-							mto = new ManyToOne(targetEntity.getTableName(), foreignKey.getColumnName(), targetEntity.getModuleName(), targetEntity.getEntityName(), targetEntity.getEntityNameLower());
-							mto.setEntityComment(targetEntity.getEntityComment());
-							sourceEntity.getManyToOnes().add(mto);
-						}
+		}
+		return foreignKeys;
+	}
+	
+	/**
+	 * 根据外键建立实体间的关联，不访问数据库
+	 * 源表为实体的外键生成多对一、一对多关联，源表不是实体的视为中间表，生成多对多关联
+	 * @param entitys	实体
+	 * @param foreignKeys	所有外键
+	 * @param dataBaseName
+	 */
+	public static void linkForeignKeys(List<Entity> entitys, List<ForeignKey> foreignKeys, String dataBaseName){
+		linkForeignKeys(entitys, foreignKeys, dataBaseName, buildManyToOne, buildManyToMany, buildOneToMany);
+	}
+	
+	/**
+	 * 根据外键建立实体间的关联，不访问数据库
+	 * @param entitys	实体
+	 * @param foreignKeys	所有外键
+	 * @param dataBaseName
+	 * @param buildManyToOne	是否生成多对一关联
+	 * @param buildManyToMany	是否生成多对多关联
+	 * @param buildOneToMany	是否生成一对多关联
+	 */
+	public static void linkForeignKeys(List<Entity> entitys, List<ForeignKey> foreignKeys, String dataBaseName, boolean buildManyToOne, boolean buildManyToMany, boolean buildOneToMany){
+		Map<String, Entity> entityMap = new HashMap<String, Entity>();
+		for(Entity entity : entitys)
+			entityMap.put(entity.getTableName(), entity);
+		
+		Entity sourceEntity;
+		Entity targetEntity;
+		ManyToOne mto = null;
+		Map<String, List<ForeignKey>> joinTableMap = new LinkedHashMap<String, List<ForeignKey>>();
+		for(ForeignKey foreignKey : foreignKeys){
+			sourceEntity = entityMap.get(foreignKey.getSourceTableName());
+			if(sourceEntity != null){//排除多对多关联
+				targetEntity = entityMap.get(foreignKey.getTargetTableName());
+				if(targetEntity != null){
+					//生成一对多
+					if(buildOneToMany){
+						targetEntity.getChildren().add(sourceEntity);
+						targetEntity.getChildMap().put(sourceEntity.getEntityName(), foreignKey.getColumnName());
 					}
-				}else
-					mtmTableSet.add(foreignKey.getSourceTableName());
-			}
-			
-			//生成多对多
-			if(buildManyToMany){
-				Iterator<String> iterator = mtmTableSet.iterator();
-				while (iterator.hasNext())
-					setManyToMany(entityMap, dataBaseName, iterator.next());
-			}
+					
+					//生成多对一
+					if(buildManyToOne){
+						mto = new ManyToOne(targetEntity.getTableName(), foreignKey.getColumnName(), targetEntity.getModuleName(), targetEntity.getEntityName(), targetEntity.getEntityNameLower());
+						mto.setEntityComment(targetEntity.getEntityComment());
+						sourceEntity.getManyToOnes().add(mto);
+					}
+				}
+			}else
+				joinTableMap.computeIfAbsent(foreignKey.getSourceTableName(), k -> new ArrayList<ForeignKey>()).add(foreignKey);
+		}
+		
+		//生成多对多
+		if(buildManyToMany){
+			for(Map.Entry<String, List<ForeignKey>> item : joinTableMap.entrySet())
+				setManyToMany(entityMap, dataBaseName, item.getKey(), item.getValue());
 		}
 	}
 
@@ -204,109 +482,254 @@ public class CodeUtils {
 	 * @param data	基础信息
 	 */
 	public static void makeFile(Entity entity, Map<String, Object> data){
+		makeFile(entity, data, null);
+	}
+
+	/**
+	 * 生成代码
+	 * @param entity	实体
+	 * @param data	基础信息
+	 * @param output	输出目标，如输出清单、压缩包，为null时直接写入文件
+	 */
+	public static void makeFile(Entity entity, Map<String, Object> data, CodeOutput output){
+		Map<String, Object> model = buildModel(entity, data);
+		for(Map.Entry<String, String> target : getTargetFiles(entity).entrySet())
+			makeFile(model, target.getKey(), target.getValue(), output);
+
+		log.info("输出：{}", entity.getModuleName() + "." + entity.getEntityName());
+	}
+
+	/**
+	 * 并发生成所有实体的代码，每个实体的每个模板为一个任务
+	 * 并发数由renderParallelism指定
+	 * @param entitys	实体
+	 * @param data	基础信息，各任务共享且只读
+	 */
+	public static void makeFiles(List<Entity> entitys, Map<String, Object> data){
+		makeFiles(entitys, data, null);
+	}
+
+	/**
+	 * 并发生成所有实体的代码，每个实体的每个模板为一个任务
+	 * 并发数由renderParallelism指定
+	 * @param entitys	实体
+	 * @param data	基础信息，各任务共享且只读
+	 * @param output	输出目标，如输出清单、压缩包，为null时直接写入文件
+	 */
+	public static void makeFiles(List<Entity> entitys, Map<String, Object> data, CodeOutput output){
+		log.info("预加载模板：{}个", FreeMarkerUtils.warmUp());
+		try {
+			renderFiles(entitys, data, output);
+		} finally {
+			log.info("模板缓存：命中{}次，解析{}次", FreeMarkerUtils.getCacheHits(), FreeMarkerUtils.getCacheMisses());
+		}
+	}
+
+	/**
+	 * 并发输出代码
+	 * @param entitys	实体
+	 * @param data	基础信息
+	 */
+	private static void renderFiles(List<Entity> entitys, Map<String, Object> data, CodeOutput output){
+		int threads = renderParallelism > 0 ? renderParallelism : Runtime.getRuntime().availableProcessors();
+		if(threads <= 1 || entitys.size() <= 1){
+			for(Entity entity : entitys)
+				makeFile(entity, data, output);
+			return;
+		}
+
+		log.info("并发输出：{}个线程", threads);
+		ExecutorService executor = newExecutor("CodeUtils-render", threads);
+		try {
+			List<List<Future<?>>> entityFutures = new ArrayList<List<Future<?>>>(entitys.size());
+			for(Entity entity : entitys){
+				final Map<String, Object> model = buildModel(entity, data);
+				List<Future<?>> futures = new ArrayList<Future<?>>();
+				for(Map.Entry<String, String> target : getTargetFiles(entity).entrySet()){
+					final String templateFile = target.getKey();
+					final String targetFile = target.getValue();
+					futures.add(executor.submit(() -> makeFile(model, templateFile, targetFile, output)));
+				}
+				entityFutures.add(futures);
+			}
+
+			// 按实体顺序等待输出完成
+			for(int i = 0; i < entitys.size(); i++){
+				for(Future<?> future : entityFutures.get(i))
+					future.get();
+				log.info("输出：{}", entitys.get(i).getModuleName() + "." + entitys.get(i).getEntityName());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("输出代码时被中断", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("输出代码失败", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * 输出单个代码文件
+	 * @param model	渲染数据
+	 * @param templateFile	模板文件
+	 * @param targetFile	目标文件
+	 * @param output	输出目标，如输出清单、压缩包，为null时直接写入文件
+	 */
+	private static void makeFile(Map<String, Object> model, String templateFile, String targetFile, CodeOutput output){
+		long begin = System.nanoTime();
+		if(output == null){
+			// 直接写入文件时无法区分渲染与写入，耗时均计入写入
+			FreeMarkerUtils.makeFile(model, templateFile, targetFile);
+			long length = new File(targetFile).length();
+			ReportUtils.rendered(length, 0);
+			ReportUtils.written(length, System.nanoTime() - begin);
+			return;
+		}
+
+		byte[] content = FreeMarkerUtils.render(model, templateFile);
+		long rendered = System.nanoTime();
+		if(content != null){
+			ReportUtils.rendered(content.length, rendered - begin);
+			boolean written = output.write(targetFile, content);
+			ReportUtils.written(written ? content.length : 0, System.nanoTime() - rendered);
+		}else{
+			output.keep(targetFile);// 渲染失败时保留原文件，无法保留的输出目标（如压缩包）将失败
+		}
+	}
+
+	/**
+	 * 构建实体的渲染数据：在共享的基础信息之上叠加实体信息，返回不可修改的Map
+	 * @param entity	实体
+	 * @param data	基础信息
+	 * @return
+	 */
+	public static Map<String, Object> buildModel(Entity entity, Map<String, Object> data){
 		String entityName = entity.getEntityName();
-		data.put("entityName", entityName);
-		data.put("entityNameLower", Character.toLowerCase(entityName.charAt(0)) + entityName.substring(1));
+		Map<String, Object> model = new HashMap<String, Object>(data);
+		model.put("entity", entity);
+		model.put("entityName", entityName);
+		model.put("entityNameLower", Character.toLowerCase(entityName.charAt(0)) + entityName.substring(1));
+		return Collections.unmodifiableMap(model);
+	}
 
-		//生成Java代码
-		String javaFolderPath = AppConfig.javaRootFolder + File.separator + entity.getModuleName() + File.separator;
-		String entityFile = javaFolderPath + CodeConfig.SOURCE_NAME_ENTITY + File.separator + entityName + ".java";
-		String daoFile = javaFolderPath + CodeConfig.SOURCE_NAME_DAO + File.separator + entityName + "Dao.java";
-		String serviceFile = javaFolderPath + CodeConfig.SOURCE_NAME_SERVICE + File.separator + entityName + "Service.java";
-		String serviceImplFile = javaFolderPath + CodeConfig.SOURCE_NAME_SERVICE + File.separator + "impl" + File.separator + entityName + "ServiceImpl.java";
-		String controllerFile = javaFolderPath + CodeConfig.SOURCE_NAME_WEB + File.separator + entityName + "Controller.java";
+	/**
+	 * 获取实体需要输出的代码文件
+	 * @param entity	实体
+	 * @return 模板文件 -> 目标文件
+	 */
+	public static Map<String, String> getTargetFiles(Entity entity){
+		return getTargetFiles(entity, AppConfig.javaRootFolder, AppConfig.mapperRootFolder);
+	}
+	
+	/**
+	 * 获取实体需要输出的代码文件
+	 * @param entity	实体
+	 * @param javaRootFolder	Java源码目录（含基础包名）
+	 * @param mapperRootFolder	映射文件目录
+	 * @return 模板文件 -> 目标文件
+	 */
+	public static Map<String, String> getTargetFiles(Entity entity, String javaRootFolder, String mapperRootFolder){
+		String entityName = entity.getEntityName();
+		Map<String, String> targetFiles = new LinkedHashMap<String, String>();
 
-		FreeMarkerUtils.makeFile(data, "entity.ftl", entityFile);
-		FreeMarkerUtils.makeFile(data, "dao.ftl", daoFile);
-		FreeMarkerUtils.makeFile(data, "service.ftl", serviceFile);
-		FreeMarkerUtils.makeFile(data, "serviceImpl.ftl", serviceImplFile);
-		FreeMarkerUtils.makeFile(data, "controller.ftl", controllerFile);
+		//Java代码
+		String javaFolderPath = javaRootFolder + File.separator + entity.getModuleName() + File.separator;
+		targetFiles.put("entity.ftl", javaFolderPath + CodeConfig.SOURCE_NAME_ENTITY + File.separator + entityName + ".java");
+		targetFiles.put("dao.ftl", javaFolderPath + CodeConfig.SOURCE_NAME_DAO + File.separator + entityName + "Dao.java");
+		targetFiles.put("service.ftl", javaFolderPath + CodeConfig.SOURCE_NAME_SERVICE + File.separator + entityName + "Service.java");
+		targetFiles.put("serviceImpl.ftl", javaFolderPath + CodeConfig.SOURCE_NAME_SERVICE + File.separator + "impl" + File.separator + entityName + "ServiceImpl.java");
+		targetFiles.put("controller.ftl", javaFolderPath + CodeConfig.SOURCE_NAME_WEB + File.separator + entityName + "Controller.java");
 
-		//生成Mapper
-		String mapperFolderPath = AppConfig.mapperRootFolder + File.separator + entity.getModuleName() + File.separator;
-		FileUtils.makeSureFolderExits(mapperFolderPath);
-		FreeMarkerUtils.makeFile(data, "mapper.ftl", mapperFolderPath + entity.getEntityNameLower() + "Dao.xml");
+		//Mapper
+		String mapperFolderPath = mapperRootFolder + File.separator + entity.getModuleName() + File.separator;
+		targetFiles.put("mapper.ftl", mapperFolderPath + entity.getEntityNameLower() + "Dao.xml");
 
-		log.info("输出：{}", entity.getModuleName() + "." +entityName);
+		return targetFiles;
 	}
 	
 	/**
 	 * 设置多对多关联
+	 * 中间表的外键两两关联，中间表可以有多于两个外键，未指向实体的外键被忽略
 	 * @param entityMap
+	 * @param dataBaseName
 	 * @param joinTableName
+	 * @param foreignKeys	中间表的所有外键
 	 */
-	private static void setManyToMany(Map<String, Entity> entityMap, String dataBaseName, String joinTableName){
+	private static void setManyToMany(Map<String, Entity> entityMap, String dataBaseName, String joinTableName, List<ForeignKey> foreignKeys){
+		// 去掉重复的列（如复合外键中重复出现的列），并排除未指向实体的外键
+		Map<String, Entity> columnMap = new LinkedHashMap<String, Entity>();
+		for(ForeignKey foreignKey : foreignKeys){
+			Entity entity = entityMap.get(foreignKey.getTargetTableName());
+			if(entity != null)
+				columnMap.putIfAbsent(foreignKey.getColumnName(), entity);
+		}
+		if(columnMap.size() < 2)
+			return;
+		if(columnMap.size() > 2)
+			log.info("中间表{}有{}个外键，两两生成多对多关联", joinTableName, columnMap.size());
 		
-		String[][] tableArray = new String[2][2];
-		Connection conn = JdbcUtils.getConn();
-		if(conn != null){
-			PreparedStatement ps = null;
-			ResultSet rs = null;
-			try {
-				ps = conn.prepareStatement(CodeConfig.SQL_MANY_TO_MANY);
-				if(ps != null){
-					ps.setString(1, dataBaseName);
-					ps.setString(2, joinTableName);
-					rs = ps.executeQuery();
-					int i = 0;
-					while(rs.next()){
-						tableArray[i][0] = rs.getString("table_name");
-						tableArray[i][1] = rs.getString("column_name");
-						i++;
-					}
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
-			} finally {
-				JdbcUtils.close(rs, ps, conn);
-			}
-			
-			ManyToMany mtm;
-			Entity targetEntity;
-			Entity sourceEntity = entityMap.get(tableArray[0][0]);
-			if(sourceEntity != null){
-				targetEntity = entityMap.get(tableArray[1][0]);
-				if(targetEntity != null){
-					//开始正向关联
-					mtm = new ManyToMany(
-							dataBaseName,
-							joinTableName,
-							targetEntity.getTableName(),
-							targetEntity.getModuleName(),
-							targetEntity.getEntityName(),
-							targetEntity.getEntityNameLower(),
-							targetEntity.getEntityComment(),
-							tableArray[0][1], 
-							tableArray[1][1]);
-					sourceEntity.getMtms().add(mtm);
-					
-					//开始反向关联
-					mtm = new ManyToMany(
-							dataBaseName,
-							joinTableName,
-							sourceEntity.getTableName(),
-							sourceEntity.getModuleName(),
-							sourceEntity.getEntityName(),
-							sourceEntity.getEntityNameLower(),
-							sourceEntity.getEntityComment(),
-							tableArray[1][1], 
-							tableArray[0][1]);
-					targetEntity.getMtms().add(mtm);
-				}
+		List<Map.Entry<String, Entity>> columns = new ArrayList<Map.Entry<String, Entity>>(columnMap.entrySet());
+		for(int i = 0; i < columns.size(); i++){
+			for(int j = i + 1; j < columns.size(); j++){
+				String sourceColumn = columns.get(i).getKey();
+				String targetColumn = columns.get(j).getKey();
+				Entity sourceEntity = columns.get(i).getValue();
+				Entity targetEntity = columns.get(j).getValue();
+				
+				//开始正向关联
+				sourceEntity.getMtms().add(newManyToMany(dataBaseName, joinTableName, targetEntity, sourceColumn, targetColumn));
+				
+				//开始反向关联
+				targetEntity.getMtms().add(newManyToMany(dataBaseName, joinTableName, sourceEntity, targetColumn, sourceColumn));
 			}
 		}
-		
+	}
+	
+	/**
+	 * 创建指向目标实体的多对多关联
+	 * @param dataBaseName
+	 * @param joinTableName
+	 * @param targetEntity
+	 * @param sourceColumnName	中间表中指向本实体的列
+	 * @param targetColumnName	中间表中指向目标实体的列
+	 * @return
+	 */
+	private static ManyToMany newManyToMany(String dataBaseName, String joinTableName, Entity targetEntity, String sourceColumnName, String targetColumnName){
+		return new ManyToMany(
+				dataBaseName,
+				joinTableName,
+				targetEntity.getTableName(),
+				targetEntity.getModuleName(),
+				targetEntity.getEntityName(),
+				targetEntity.getEntityNameLower(),
+				targetEntity.getEntityComment(),
+				sourceColumnName, 
+				targetColumnName);
+	}
+
+	/**
+	 * 创建固定大小的守护线程池
+	 * @param name	线程名前缀
+	 * @param threads	线程数
+	 * @return
+	 */
+	private static ExecutorService newExecutor(final String name, int threads){
+		final AtomicInteger counter = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
 	}
 
 	/**
 	 * 检查表是否为实体映射表，排除多对多的关联表
-	 * @param dataBaseName
-	 * @param tableName
+	 * @param primaryKeyCount	表的主键数目
 	 * @return
 	 */
-	private static boolean checkRealEntity(String dataBaseName, String tableName){
-		long count = JdbcUtils.queryLong(CodeConfig.SQL_COUNT_PRIMARY_KEY, dataBaseName, tableName);
-		return count == 1l;
+	public static boolean isRealEntity(Long primaryKeyCount){
+		return primaryKeyCount != null && primaryKeyCount == 1l;
 	}
 	
 	/**
@@ -315,7 +738,7 @@ public class CodeUtils {
 	 * @param parseTablePrefix
 	 * @return
 	 */
-	private static String convertToEntityName(String fullTableName, Boolean parseTablePrefix){
+	public static String convertToEntityName(String fullTableName, Boolean parseTablePrefix){
 		String tableName = fullTableName;
 		if(parseTablePrefix)
 			tableName = StringUtils.substringAfter(fullTableName, "_");
@@ -334,7 +757,7 @@ public class CodeUtils {
 	 * @param fieldName
 	 * @return
 	 */
-	private static String convertToFieldName(String fieldName){
+	public static String convertToFieldName(String fieldName){
 		StringBuffer entityName = new StringBuffer();
 		String[] names = fieldName.split("_");
 		
@@ -359,97 +782,123 @@ public class CodeUtils {
 	 */
 	private static List<DbField> getFields(String tableName){
 		List<DbField> fields = new ArrayList<DbField>();
-		DbField field = null;
 				
 		Connection conn = JdbcUtils.getConn();
 		if(conn != null){
-			PreparedStatement ps = null;
+			Statement stmt = null;
 			ResultSet rs = null;
 			try {
-				ps = conn.prepareStatement(CodeConfig.SQL_TABLE_FIELDS + tableName);
-				if(ps != null){
-					rs = ps.executeQuery();
+				// 每张表的SQL都不同，不使用预编译语句，以免占用预编译语句的缓存
+				stmt = conn.createStatement();
+				if(stmt != null){
+					rs = stmt.executeQuery(CodeConfig.SQL_TABLE_FIELDS + tableName);
+					ReportUtils.roundTrip();
 					while(rs.next()){
-						String str = rs.getString("Field");
-						field = new DbField();
-						field.setTableFieldName(str);
-						String filedName = convertToFieldName(str);
-						field.setFieldName(filedName);
-						field.setFieldNameFirstUpper(Character.toUpperCase(filedName.charAt(0)) + filedName.substring(1));
-						
-						str = rs.getString("Type");
-						if (str.contains("varchar")) {
-							field.setFieldDataType(FieldDataType.String);
-							field.setLength(Integer.valueOf(StringUtils.substringBetween(str, "(", ")")));
-						} else if (str.contains("text")) {
-							field.setFieldDataType(FieldDataType.String);
-							field.setLength(65535);
-						} else if ("bigint".equals(str) || str.contains("bigint(20)")) {
-							field.setFieldDataType(FieldDataType.Long);
-						} else if ("int".equals(str) || str.contains("int(11)")) {
-							field.setFieldDataType(FieldDataType.Integer);
-						} else if (str.contains("smallint(6)")) {
-							field.setFieldDataType(FieldDataType.Short);
-						} else if (str.contains("tinyint(4)")) {
-							field.setFieldDataType(FieldDataType.Byte);
-						} else if (str.contains("tinyint(1)")) {
-							field.setFieldDataType(FieldDataType.Boolean);
-						} else if (str.contains("double")) {
-							field.setFieldDataType(FieldDataType.Double);
-						} else if (str.contains("decimal")) {
-							field.setFieldDataType(FieldDataType.Double);
-						} else if (str.contains("float")) {
-							field.setFieldDataType(FieldDataType.Float);
-						} else if (str.equals("datetime") || str.contains("timestamp")) {
-							field.setFieldDataType(FieldDataType.Date);
-							field.setLength(19);
-						}else if (str.equals("date")) {
-							field.setFieldDataType(FieldDataType.Date);
-							field.setLength(10);
-						}else if (str.equals("time")) {
-							field.setFieldDataType(FieldDataType.Date);
-							field.setLength(8);
-						}
-						
-						str = rs.getString("Null");
-						field.setNotNull(str.equals("NO"));
-						
-						field.setDefaultValue(rs.getString("Default"));
-						field.setComment(rs.getString("Comment"));
-						
-						str = rs.getString("Key");
-						if(StringUtils.isBlank(str)){
-							field.setKeyType(KeyType.NotKey);
-							fields.add(field);
-						}else{
-							switch (str){
-								case "UNI":
-									// 注意：通过PowerDesigner生成SQL时，需要将候补键（Alternate Key）的创建方式改为：Outside
-									// 否则生成的唯一索引键的类型将为 MUL，将会与外键类型混淆，导致字段解析失误
-									field.setKeyType(KeyType.UniqueKey);
-									fields.add(field);
-									break;
-								case "PRI":
-									field.setKeyType(KeyType.PrimaryKey);
-									fields.add(field);
-									break;
-								case "MUL":
-									field.setKeyType(KeyType.Foreignkey);
-									break;
-								default:
-									field.setKeyType(KeyType.NotKey);
-									fields.add(field);
-							}
-						}
+						addField(fields,
+								rs.getString("Field"),
+								rs.getString("Type"),
+								rs.getString("Null"),
+								rs.getString("Default"),
+								rs.getString("Comment"),
+								rs.getString("Key"));
 					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
 			} finally {
-				JdbcUtils.close(rs, ps, conn);
+				JdbcUtils.close(rs, stmt, conn);
 			}
 		}
 		
 		return fields;
 	}
+	
+	/**
+	 * 解析单个字段，外键字段不加入字段列表
+	 * @param fields	字段列表
+	 * @param columnName	字段名
+	 * @param columnType	字段类型，如：varchar(50)
+	 * @param nullable	是否可为空：YES、NO
+	 * @param defaultValue	默认值
+	 * @param comment	注释
+	 * @param key	键类型：PRI、UNI、MUL
+	 */
+	public static void addField(List<DbField> fields, String columnName, String columnType, String nullable, String defaultValue, String comment, String key){
+		DbField field = new DbField();
+		field.setTableFieldName(columnName);
+		String filedName = convertToFieldName(columnName);
+		field.setFieldName(filedName);
+		field.setFieldNameFirstUpper(Character.toUpperCase(filedName.charAt(0)) + filedName.substring(1));
+		
+		parseFieldType(field, columnType);
+		
+		field.setNotNull(nullable.equals("NO"));
+		
+		field.setDefaultValue(defaultValue);
+		field.setComment(comment);
+		
+		if(StringUtils.isBlank(key)){
+			field.setKeyType(KeyType.NotKey);
+			fields.add(field);
+		}else{
+			switch (key){
+				case "UNI":
+					// 注意：通过PowerDesigner生成SQL时，需要将候补键（Alternate Key）的创建方式改为：Outside
+					// 否则生成的唯一索引键的类型将为 MUL，将会与外键类型混淆，导致字段解析失误
+					field.setKeyType(KeyType.UniqueKey);
+					fields.add(field);
+					break;
+				case "PRI":
+					field.setKeyType(KeyType.PrimaryKey);
+					fields.add(field);
+					break;
+				case "MUL":
+					field.setKeyType(KeyType.Foreignkey);
+					break;
+				default:
+					field.setKeyType(KeyType.NotKey);
+					fields.add(field);
+			}
+		}
+	}
+	
+	/**
+	 * 根据字段类型设置Java数据类型及长度
+	 * @param field
+	 * @param str	字段类型，如：varchar(50)
+	 */
+	private static void parseFieldType(DbField field, String str){
+		if (str.contains("varchar")) {
+			field.setFieldDataType(FieldDataType.String);
+			field.setLength(Integer.valueOf(StringUtils.substringBetween(str, "(", ")")));
+		} else if (str.contains("text")) {
+			field.setFieldDataType(FieldDataType.String);
+			field.setLength(65535);
+		} else if ("bigint".equals(str) || str.contains("bigint(20)")) {
+			field.setFieldDataType(FieldDataType.Long);
+		} else if ("int".equals(str) || str.contains("int(11)")) {
+			field.setFieldDataType(FieldDataType.Integer);
+		} else if (str.contains("smallint(6)")) {
+			field.setFieldDataType(FieldDataType.Short);
+		} else if (str.contains("tinyint(4)")) {
+			field.setFieldDataType(FieldDataType.Byte);
+		} else if (str.contains("tinyint(1)")) {
+			field.setFieldDataType(FieldDataType.Boolean);
+		} else if (str.contains("double")) {
+			field.setFieldDataType(FieldDataType.Double);
+		} else if (str.contains("decimal")) {
+			field.setFieldDataType(FieldDataType.Double);
+		} else if (str.contains("float")) {
+			field.setFieldDataType(FieldDataType.Float);
+		} else if (str.equals("datetime") || str.contains("timestamp")) {
+			field.setFieldDataType(FieldDataType.Date);
+			field.setLength(19);
+		}else if (str.equals("date")) {
+			field.setFieldDataType(FieldDataType.Date);
+			field.setLength(10);
+		}else if (str.equals("time")) {
+			field.setFieldDataType(FieldDataType.Date);
+			field.setLength(8);
+		}
+	}
 }
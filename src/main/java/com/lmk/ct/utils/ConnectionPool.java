@@ -0,0 +1,693 @@
+package com.lmk.ct.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 有界的数据库连接池
+ * 借出时校验连接的有效性，空闲超时的连接由后台线程回收，连接在首次借出时才开始创建
+ * 每个连接按SQL缓存预编译语句（LRU），语句close()时不关闭而是放回缓存，重复的SQL无需再次预编译
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class ConnectionPool {
+
+	/** 日志记录器 */
+	private static Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+
+	/** 归还后在该时间（毫秒）内再次借出的连接，不再校验 */
+	private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+	/** 校验连接的超时时间（秒） */
+	private static final int VALIDATION_TIMEOUT_SECONDS = 3;
+
+	/** 连接地址 */
+	private final String url;
+
+	/** 用户名 */
+	private final String user;
+
+	/** 密码 */
+	private final String password;
+
+	/** 最少保持的连接数 */
+	private final int minSize;
+
+	/** 最大连接数 */
+	private final int maxSize;
+
+	/** 借出连接的最长等待时间（毫秒） */
+	private final long maxWait;
+
+	/** 空闲连接的最长存活时间（毫秒） */
+	private final long idleTimeout;
+
+	/** 是否在借出时校验连接 */
+	private final boolean validateOnBorrow;
+
+	/** 每个连接缓存的预编译语句数，0表示不缓存 */
+	private final int statementCacheSize;
+
+	/** 空闲连接，队首为最近归还的连接 */
+	private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+
+	/** 可借出的连接数 */
+	private final Semaphore permits;
+
+	/** 空闲连接回收器 */
+	private final ScheduledExecutorService evictor;
+
+	/** 是否已借出过连接 */
+	private volatile boolean started = false;
+
+	/** 是否已关闭 */
+	private volatile boolean closed = false;
+
+	/** 当前的连接总数 */
+	private final AtomicInteger totalCount = new AtomicInteger();
+
+	/** 当前借出的连接数 */
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	/** 累计创建的连接数 */
+	private final AtomicLong createdCount = new AtomicLong();
+
+	/** 累计销毁的连接数 */
+	private final AtomicLong destroyedCount = new AtomicLong();
+
+	/** 累计借出次数 */
+	private final AtomicLong borrowedCount = new AtomicLong();
+
+	/** 累计归还次数 */
+	private final AtomicLong returnedCount = new AtomicLong();
+
+	/** 累计等待超时次数 */
+	private final AtomicLong timeoutCount = new AtomicLong();
+
+	/** 累计校验失败次数 */
+	private final AtomicLong invalidCount = new AtomicLong();
+
+	/** 累计空闲回收次数 */
+	private final AtomicLong evictedCount = new AtomicLong();
+
+	/** 预编译语句缓存的命中次数 */
+	private final AtomicLong statementHitCount = new AtomicLong();
+
+	/** 预编译语句缓存的未命中（即预编译）次数 */
+	private final AtomicLong statementMissCount = new AtomicLong();
+
+	/** 超出缓存容量而关闭的预编译语句数 */
+	private final AtomicLong statementEvictedCount = new AtomicLong();
+
+	/**
+	 * 创建连接池，不缓存预编译语句
+	 * @param url
+	 * @param user
+	 * @param password
+	 * @param minSize	最少保持的连接数
+	 * @param maxSize	最大连接数
+	 * @param maxWait	借出连接的最长等待时间（毫秒）
+	 * @param idleTimeout	空闲连接的最长存活时间（毫秒）
+	 * @param validateOnBorrow	是否在借出时校验连接
+	 */
+	public ConnectionPool(String url, String user, String password, int minSize, int maxSize, long maxWait, long idleTimeout, boolean validateOnBorrow) {
+		this(url, user, password, minSize, maxSize, maxWait, idleTimeout, validateOnBorrow, 0);
+	}
+
+	/**
+	 * 创建连接池
+	 * @param url
+	 * @param user
+	 * @param password
+	 * @param minSize	最少保持的连接数
+	 * @param maxSize	最大连接数
+	 * @param maxWait	借出连接的最长等待时间（毫秒）
+	 * @param idleTimeout	空闲连接的最长存活时间（毫秒）
+	 * @param validateOnBorrow	是否在借出时校验连接
+	 * @param statementCacheSize	每个连接缓存的预编译语句数，0表示不缓存
+	 */
+	public ConnectionPool(String url, String user, String password, int minSize, int maxSize, long maxWait, long idleTimeout, boolean validateOnBorrow, int statementCacheSize) {
+		if(maxSize < 1 || minSize < 0 || minSize > maxSize)
+			throw new IllegalArgumentException("连接池大小错误：minSize=" + minSize + ", maxSize=" + maxSize);
+		if(statementCacheSize < 0)
+			throw new IllegalArgumentException("预编译语句缓存大小错误：statementCacheSize=" + statementCacheSize);
+
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.maxWait = maxWait;
+		this.idleTimeout = idleTimeout;
+		this.validateOnBorrow = validateOnBorrow;
+		this.statementCacheSize = statementCacheSize;
+		this.permits = new Semaphore(maxSize, true);
+
+		this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "ConnectionPool-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(1000, Math.min(idleTimeout / 2, 30000));
+		this.evictor.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 借出连接，调用连接的close()方法即归还连接
+	 * @return
+	 * @throws SQLException 连接池已关闭、等待超时或无法创建连接
+	 */
+	public Connection getConnection() throws SQLException {
+		if(closed)
+			throw new SQLException("连接池已关闭");
+
+		boolean acquired;
+		try {
+			acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("等待连接时被中断", e);
+		}
+		if(!acquired){
+			timeoutCount.incrementAndGet();
+			throw new SQLException("获取连接超时：" + maxWait + "ms，" + getStats());
+		}
+
+		try {
+			PooledConnection pooled;
+			while((pooled = idleConnections.pollFirst()) != null){
+				if(validate(pooled))
+					break;
+				invalidCount.incrementAndGet();
+				destroy(pooled);
+			}
+			if(pooled == null)
+				pooled = create();
+
+			started = true;
+			activeCount.incrementAndGet();
+			borrowedCount.incrementAndGet();
+			return pooled.lend();
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * 关闭连接池，已借出的连接在归还时关闭
+	 */
+	public void shutdown() {
+		closed = true;
+		evictor.shutdownNow();
+		PooledConnection pooled;
+		while((pooled = idleConnections.pollFirst()) != null)
+			destroy(pooled);
+		log.info("【ConnectionPool】已关闭：{}", getStats());
+	}
+
+	/**
+	 * 归还连接
+	 * @param pooled
+	 */
+	void release(PooledConnection pooled) {
+		activeCount.decrementAndGet();
+		returnedCount.incrementAndGet();
+		try {
+			if(closed || pooled.broken || !pooled.reset())
+				destroy(pooled);
+			else
+				idleConnections.offerFirst(pooled);
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * 校验空闲连接，刚归还的连接直接视为有效
+	 * @param pooled
+	 * @return
+	 */
+	private boolean validate(PooledConnection pooled) {
+		if(!validateOnBorrow || System.currentTimeMillis() - pooled.lastUsed < VALIDATION_BYPASS_MILLIS)
+			return true;
+		try {
+			return pooled.raw.isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 创建新的物理连接
+	 * @return
+	 * @throws SQLException
+	 */
+	private PooledConnection create() throws SQLException {
+		Connection raw = DriverManager.getConnection(url, user, password);
+		totalCount.incrementAndGet();
+		createdCount.incrementAndGet();
+		return new PooledConnection(raw);
+	}
+
+	/**
+	 * 关闭物理连接
+	 * @param pooled
+	 */
+	private void destroy(PooledConnection pooled) {
+		totalCount.decrementAndGet();
+		destroyedCount.incrementAndGet();
+		try {
+			pooled.raw.close();
+		} catch (SQLException e) {
+			log.warn("【ConnectionPool】关闭连接失败：{}", e.getMessage());
+		}
+	}
+
+	/**
+	 * 回收空闲超时的连接，并补足最少连接数
+	 */
+	private void maintain() {
+		if(closed || !started)
+			return;
+
+		long now = System.currentTimeMillis();
+		Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+		while(iterator.hasNext() && totalCount.get() > minSize){
+			PooledConnection pooled = iterator.next();
+			if(now - pooled.lastUsed > idleTimeout && idleConnections.remove(pooled)){
+				evictedCount.incrementAndGet();
+				destroy(pooled);
+			}
+		}
+
+		while(!closed && totalCount.get() < minSize && permits.tryAcquire()){
+			try {
+				idleConnections.offerLast(create());
+			} catch (SQLException e) {
+				log.warn("【ConnectionPool】补充连接失败：{}", e.getMessage());
+				break;
+			} finally {
+				permits.release();
+			}
+		}
+	}
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getTotalCount() {
+		return totalCount.get();
+	}
+
+	public int getActiveCount() {
+		return activeCount.get();
+	}
+
+	public int getIdleCount() {
+		return idleConnections.size();
+	}
+
+	public long getCreatedCount() {
+		return createdCount.get();
+	}
+
+	public long getDestroyedCount() {
+		return destroyedCount.get();
+	}
+
+	public long getBorrowedCount() {
+		return borrowedCount.get();
+	}
+
+	public long getReturnedCount() {
+		return returnedCount.get();
+	}
+
+	public long getTimeoutCount() {
+		return timeoutCount.get();
+	}
+
+	public long getInvalidCount() {
+		return invalidCount.get();
+	}
+
+	public long getEvictedCount() {
+		return evictedCount.get();
+	}
+
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public long getStatementHitCount() {
+		return statementHitCount.get();
+	}
+
+	public long getStatementMissCount() {
+		return statementMissCount.get();
+	}
+
+	public long getStatementEvictedCount() {
+		return statementEvictedCount.get();
+	}
+
+	/**
+	 * 连接池的统计信息
+	 * @return
+	 */
+	public String getStats() {
+		return new StringBuilder()
+				.append("total=").append(getTotalCount())
+				.append(", active=").append(getActiveCount())
+				.append(", idle=").append(getIdleCount())
+				.append(", created=").append(getCreatedCount())
+				.append(", destroyed=").append(getDestroyedCount())
+				.append(", borrowed=").append(getBorrowedCount())
+				.append(", returned=").append(getReturnedCount())
+				.append(", timeout=").append(getTimeoutCount())
+				.append(", invalid=").append(getInvalidCount())
+				.append(", evicted=").append(getEvictedCount())
+				.append(", stmtHit=").append(getStatementHitCount())
+				.append(", stmtMiss=").append(getStatementMissCount())
+				.append(", stmtEvicted=").append(getStatementEvictedCount())
+				.toString();
+	}
+
+	/**
+	 * 池中的物理连接
+	 */
+	class PooledConnection {
+
+		/** 物理连接 */
+		final Connection raw;
+
+		/** 最后一次归还的时间 */
+		volatile long lastUsed = System.currentTimeMillis();
+
+		/** 是否发生过连接级别的异常 */
+		volatile boolean broken = false;
+
+		/** 缓存的预编译语句，按最近归还的顺序排列，借出期间不在缓存中 */
+		private final Map<StatementKey, PreparedStatement> statements = new LinkedHashMap<StatementKey, PreparedStatement>(16, 0.75f, false) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+				if(size() <= statementCacheSize)
+					return false;
+				statementEvictedCount.incrementAndGet();
+				closeQuietly(eldest.getValue());
+				return true;
+			}
+		};
+
+		PooledConnection(Connection raw) {
+			this.raw = raw;
+		}
+
+		/**
+		 * 从缓存中取出预编译语句，缓存中没有时预编译
+		 * 同一SQL的语句未归还时再次获取，将预编译新的语句
+		 * @param key
+		 * @return
+		 * @throws SQLException
+		 */
+		PreparedStatement checkout(StatementKey key) throws SQLException {
+			PreparedStatement ps;
+			synchronized (statements) {
+				ps = statements.remove(key);
+			}
+			if(ps != null && !ps.isClosed()){
+				statementHitCount.incrementAndGet();
+				return ps;
+			}
+			statementMissCount.incrementAndGet();
+			return key.autoGeneratedKeys == Statement.NO_GENERATED_KEYS ? raw.prepareStatement(key.sql) : raw.prepareStatement(key.sql, key.autoGeneratedKeys);
+		}
+
+		/**
+		 * 重置预编译语句并放回缓存，超出容量时关闭最久未用的语句
+		 * @param key
+		 * @param ps
+		 */
+		void checkin(StatementKey key, PreparedStatement ps) {
+			try {
+				ps.clearParameters();
+				ps.clearBatch();
+				ps.clearWarnings();
+				if(ps.getFetchSize() != 0)
+					ps.setFetchSize(0);
+				if(ps.getMaxRows() != 0)
+					ps.setMaxRows(0);
+				if(ps.getQueryTimeout() != 0)
+					ps.setQueryTimeout(0);
+			} catch (SQLException e) {
+				closeQuietly(ps);
+				return;
+			}
+
+			PreparedStatement old;
+			synchronized (statements) {
+				old = statements.put(key, ps);
+			}
+			if(old != null && old != ps)
+				closeQuietly(old);
+		}
+
+		/**
+		 * 借出连接，每次借出都使用新的代理对象，归还后旧的代理对象不可再用
+		 * @return
+		 */
+		Connection lend() {
+			return (Connection) Proxy.newProxyInstance(
+					ConnectionPool.class.getClassLoader(),
+					new Class<?>[]{Connection.class},
+					new Lease(this));
+		}
+
+		/**
+		 * 重置连接状态，以便下次借出
+		 * @return 是否重置成功
+		 */
+		boolean reset() {
+			try {
+				if(!raw.getAutoCommit()){
+					raw.rollback();
+					raw.setAutoCommit(true);
+				}
+				raw.clearWarnings();
+				lastUsed = System.currentTimeMillis();
+				return true;
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * 单次借出的连接代理，close()时归还连接
+	 */
+	class Lease implements InvocationHandler {
+
+		/** 池中的物理连接 */
+		private final PooledConnection pooled;
+
+		/** 是否已归还 */
+		private final AtomicBoolean released = new AtomicBoolean(false);
+
+		Lease(PooledConnection pooled) {
+			this.pooled = pooled;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()){
+				case "close":
+					if(released.compareAndSet(false, true))
+						release(pooled);
+					return null;
+				case "isClosed":
+					return released.get() || pooled.raw.isClosed();
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxy)) + (released.get() ? "[released]" : "");
+				default:
+					if(released.get())
+						throw new SQLException("连接已归还到连接池");
+			}
+
+			if(statementCacheSize > 0 && "prepareStatement".equals(method.getName()) && isCacheable(args)){
+				StatementKey key = new StatementKey((String) args[0], args.length == 1 ? Statement.NO_GENERATED_KEYS : (Integer) args[1]);
+				try {
+					PreparedStatement ps = pooled.checkout(key);
+					return Proxy.newProxyInstance(
+							ConnectionPool.class.getClassLoader(),
+							new Class<?>[]{PreparedStatement.class},
+							new CachedStatement(this, (Connection) proxy, key, ps));
+				} catch (SQLException e) {
+					checkBroken(pooled, e);
+					throw e;
+				}
+			}
+
+			try {
+				return method.invoke(pooled.raw, args);
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				if(cause instanceof SQLException)
+					checkBroken(pooled, (SQLException) cause);
+				throw cause;
+			}
+		}
+
+		/**
+		 * 只缓存prepareStatement(sql)及prepareStatement(sql, autoGeneratedKeys)的语句
+		 */
+		private boolean isCacheable(Object[] args) {
+			return args != null && args[0] instanceof String && (args.length == 1 || (args.length == 2 && args[1] instanceof Integer));
+		}
+	}
+
+	/**
+	 * 缓存的预编译语句的代理，close()时放回所属连接的缓存
+	 */
+	class CachedStatement implements InvocationHandler {
+
+		/** 借出语句时的连接 */
+		private final Lease lease;
+
+		/** 连接的代理对象 */
+		private final Connection connection;
+
+		/** 缓存的键 */
+		private final StatementKey key;
+
+		/** 预编译语句 */
+		private final PreparedStatement ps;
+
+		/** 是否已关闭 */
+		private final AtomicBoolean closed = new AtomicBoolean(false);
+
+		CachedStatement(Lease lease, Connection connection, StatementKey key, PreparedStatement ps) {
+			this.lease = lease;
+			this.connection = connection;
+			this.key = key;
+			this.ps = ps;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()){
+				case "close":
+					if(closed.compareAndSet(false, true)){
+						// 连接已归还或已损坏时不再放回缓存
+						if(lease.released.get() || lease.pooled.broken)
+							closeQuietly(ps);
+						else
+							lease.pooled.checkin(key, ps);
+					}
+					return null;
+				case "isClosed":
+					return closed.get() || ps.isClosed();
+				case "getConnection":
+					return connection;
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "CachedStatement@" + Integer.toHexString(System.identityHashCode(proxy)) + "[" + key.sql + "]";
+				default:
+					if(closed.get())
+						throw new SQLException("语句已关闭");
+			}
+
+			try {
+				return method.invoke(ps, args);
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				if(cause instanceof SQLException)
+					checkBroken(lease.pooled, (SQLException) cause);
+				throw cause;
+			}
+		}
+	}
+
+	/**
+	 * 预编译语句缓存的键：SQL及是否返回自动生成的主键
+	 */
+	static final class StatementKey {
+
+		final String sql;
+
+		final int autoGeneratedKeys;
+
+		StatementKey(String sql, int autoGeneratedKeys) {
+			this.sql = sql;
+			this.autoGeneratedKeys = autoGeneratedKeys;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj)
+				return true;
+			if(!(obj instanceof StatementKey))
+				return false;
+			StatementKey other = (StatementKey) obj;
+			return autoGeneratedKeys == other.autoGeneratedKeys && sql.equals(other.sql);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(sql, autoGeneratedKeys);
+		}
+	}
+
+	/**
+	 * 连接级别的异常（SQLState以08开头）发生后，连接不再放回连接池
+	 */
+	private static void checkBroken(PooledConnection pooled, SQLException e) {
+		String state = e.getSQLState();
+		if(state != null && state.startsWith("08"))
+			pooled.broken = true;
+	}
+
+	/**
+	 * 关闭语句，忽略异常
+	 */
+	private static void closeQuietly(Statement stmt) {
+		try {
+			stmt.close();
+		} catch (SQLException e) {
+			log.debug("【ConnectionPool】关闭语句失败：{}", e.getMessage());
+		}
+	}
+}
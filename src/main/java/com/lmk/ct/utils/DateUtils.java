@@ -1,12 +1,32 @@
 package com.lmk.ct.utils;
 
 import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 日期工具类 默认使用 "yyyy-MM-dd HH:mm:ss" 格式化日期
+ * 格式化、解析使用缓存的DateTimeFormatter，可被多个线程同时使用；"yyyy-MM-dd"、"yyyy-MM-dd HH:mm:ss"两种格式直接按位读写
+ * DateTimeFormatter与SimpleDateFormat含义不同的格式（如：u、Y、E、MMM、[]），以及DateTimeFormatter无法解析的字符串，仍使用SimpleDateFormat（宽松解析）
  * @author LaoMake
  * @since 1.0
  *
@@ -42,6 +62,27 @@ public final class DateUtils {
 	 */
 	public static String FORMAT_FULL_CN = "yyyy年MM月dd日  HH时mm分ss秒SSS毫秒";
 
+	/** 按位读写的两种格式，与可修改的FORMAT_*常量分开 */
+	private static final String PATTERN_DATE = "yyyy-MM-dd";
+	private static final String PATTERN_DATE_TIME = "yyyy-MM-dd HH:mm:ss";
+
+	/** 缓存的格式数上限，超出时清空 */
+	private static final int MAX_CACHED_PATTERNS = 256;
+
+	/** 格式 -> DateTimeFormatter，或LEGACY */
+	private static final Map<String, Object> FORMATTERS = new ConcurrentHashMap<String, Object>();
+
+	/** 标记使用SimpleDateFormat的格式 */
+	private static final Object LEGACY = new Object();
+
+	/** 各线程的SimpleDateFormat：格式 -> 实例 */
+	private static final ThreadLocal<Map<String, SimpleDateFormat>> LEGACY_FORMATS = ThreadLocal.withInitial(HashMap::new);
+
+	/** SimpleDateFormat在1582年10月由儒略历切换为格里高利历，此前及万年之后的日期不使用DateTimeFormatter */
+	private static final long MIN_MILLIS = LocalDate.of(1583, 1, 2).toEpochDay() * 86400000L;
+	private static final long MAX_MILLIS = LocalDate.of(9999, 12, 30).toEpochDay() * 86400000L;
+
+
 	
 	/**
 	 * 获得默认的 date pattern
@@ -92,12 +133,21 @@ public final class DateUtils {
 	 * @return
 	 */
 	public static String format(Date date, String pattern) {
-		String returnValue = "";
-		if (date != null) {
-			SimpleDateFormat df = new SimpleDateFormat(pattern);
-			returnValue = df.format(date);
+		if (date == null)
+			return "";
+
+		long millis = date.getTime();
+		// 使用与SimpleDateFormat相同的时区数据（java.time在1900年前使用地方平时，两者不同）
+		int offset = TimeZone.getDefault().getOffset(millis);
+		if (millis >= MIN_MILLIS && millis <= MAX_MILLIS && offset % 1000 == 0) {
+			if (PATTERN_DATE.equals(pattern) || PATTERN_DATE_TIME.equals(pattern))
+				return formatFast(millis + offset, pattern.length() == PATTERN_DATE_TIME.length());
+
+			DateTimeFormatter formatter = getFormatter(pattern);
+			if (formatter != null)
+				return formatter.format(Instant.ofEpochMilli(millis).atOffset(ZoneOffset.ofTotalSeconds(offset / 1000)));
 		}
-		return (returnValue);
+		return getLegacyFormat(pattern).format(date);
 	}
 
 	/**
@@ -116,9 +166,34 @@ public final class DateUtils {
 	 * @return
 	 */
 	public static Date parse(String strDate, String pattern) {
-		SimpleDateFormat df = new SimpleDateFormat(pattern);
+		if (strDate != null && (PATTERN_DATE.equals(pattern) || PATTERN_DATE_TIME.equals(pattern))) {
+			Date date = parseFast(strDate, pattern.length() == PATTERN_DATE_TIME.length());
+			if (date != null)
+				return date;
+		}
+
+		DateTimeFormatter formatter = getFormatter(pattern);
+		if (formatter != null && strDate != null) {
+			try {
+				// 与SimpleDateFormat相同，只解析开头的部分
+				ParsePosition position = new ParsePosition(0);
+				TemporalAccessor parsed = formatter.parse(strDate, position);
+				LocalDate day = parsed.query(TemporalQueries.localDate());
+				// 其后紧跟数字时，SimpleDateFormat将其作为最后一个字段的一部分
+				boolean digitFollows = position.getIndex() < strDate.length() && isDigit(strDate.charAt(position.getIndex()));
+				if (day != null && !digitFollows) {
+					LocalTime time = parsed.query(TemporalQueries.localTime());
+					Date date = toDate(day.atTime(time != null ? time : LocalTime.MIDNIGHT));
+					if (date != null)
+						return date;
+				}
+			} catch (DateTimeException e) {
+				// 超出范围的值等，交由SimpleDateFormat宽松解析
+			}
+		}
+
 		try {
-			return df.parse(strDate);
+			return getLegacyFormat(pattern).parse(strDate);
 		} catch (ParseException e) {
 			e.printStackTrace();
 			return null;
@@ -182,9 +257,7 @@ public final class DateUtils {
 	 * @return
 	 */
 	public static String getTimeString() {
-		SimpleDateFormat df = new SimpleDateFormat(FORMAT_FULL);
-		Calendar calendar = Calendar.getInstance();
-		return df.format(calendar.getTime());
+		return format(new Date(), FORMAT_FULL);
 	}
 
 	/**
@@ -258,4 +331,201 @@ public final class DateUtils {
 		}
 		return result;
 	}
+
+	/**
+	 * 缓存的DateTimeFormatter，格式的含义与SimpleDateFormat不同时返回null
+	 * 只接受y（非两位）、M（一至两位）、d、H、m、s（至多两位）、S（三位）及引号中的文字，其他字母交给SimpleDateFormat
+	 */
+	private static DateTimeFormatter getFormatter(String pattern) {
+		Object formatter = FORMATTERS.get(pattern);
+		if (formatter == null) {
+			formatter = isCompatible(pattern) ? newFormatter(pattern) : LEGACY;
+			if (FORMATTERS.size() >= MAX_CACHED_PATTERNS)
+				FORMATTERS.clear();
+			FORMATTERS.put(pattern, formatter);
+		}
+		return formatter == LEGACY ? null : (DateTimeFormatter) formatter;
+	}
+
+	/**
+	 * 严格解析：2月30日、24时等超出范围的值不被调整，交由SimpleDateFormat宽松解析
+	 */
+	private static Object newFormatter(String pattern) {
+		try {
+			return new DateTimeFormatterBuilder().appendPattern(pattern)
+					.parseDefaulting(ChronoField.ERA, 1)
+					.toFormatter()
+					.withResolverStyle(ResolverStyle.STRICT);
+		} catch (IllegalArgumentException e) {
+			return LEGACY;
+		}
+	}
+
+	private static boolean isCompatible(String pattern) {
+		int length = pattern.length();
+		boolean quoted = false;
+		for (int i = 0; i < length; ) {
+			char c = pattern.charAt(i);
+			if (c == '\'') {
+				quoted = !quoted;
+				i++;
+				continue;
+			}
+			if (quoted) {
+				i++;
+				continue;
+			}
+			if (c == '[' || c == ']' || c == '{' || c == '}' || c == '#')
+				return false;
+			if ((c < 'a' || c > 'z') && (c < 'A' || c > 'Z')) {
+				i++;
+				continue;
+			}
+
+			int count = 1;
+			while (i + count < length && pattern.charAt(i + count) == c)
+				count++;
+			i += count;
+			switch (c) {
+				case 'y': if (count == 2) return false; break;
+				case 'M': case 'd': case 'H': case 'm': case 's': if (count > 2) return false; break;
+				case 'S': if (count != 3) return false; break;
+				default: return false;
+			}
+		}
+		return !quoted;
+	}
+
+	/**
+	 * 当前线程的SimpleDateFormat
+	 */
+	private static SimpleDateFormat getLegacyFormat(String pattern) {
+		Map<String, SimpleDateFormat> formats = LEGACY_FORMATS.get();
+		SimpleDateFormat df = formats.get(pattern);
+		if (df == null) {
+			df = new SimpleDateFormat(pattern);
+			if (formats.size() >= MAX_CACHED_PATTERNS)
+				formats.clear();
+			formats.put(pattern, df);
+		}
+		// 默认时区可能已被修改
+		df.setTimeZone(TimeZone.getDefault());
+		df.setLenient(true);
+		return df;
+	}
+
+	/**
+	 * 按位格式化"yyyy-MM-dd"、"yyyy-MM-dd HH:mm:ss"
+	 * @param localMillis	加上时区偏移后的毫秒数
+	 */
+	private static String formatFast(long localMillis, boolean withTime) {
+		long seconds = Math.floorDiv(localMillis, 1000);
+		long epochDay = Math.floorDiv(seconds, 86400);
+		int secondOfDay = Math.floorMod(seconds, 86400);
+
+		// 由1970-01-01起的天数计算年月日，以3月1日为一年的开始
+		long days = epochDay + 719468;
+		long era = Math.floorDiv(days, 146097);
+		int dayOfEra = (int) (days - era * 146097);
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int mp = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		int year = (int) (era * 400) + yearOfEra + (month <= 2 ? 1 : 0);
+
+		char[] buf = new char[withTime ? 19 : 10];
+		put4(buf, 0, year);
+		buf[4] = '-';
+		put2(buf, 5, month);
+		buf[7] = '-';
+		put2(buf, 8, day);
+		if (withTime) {
+			buf[10] = ' ';
+			put2(buf, 11, secondOfDay / 3600);
+			buf[13] = ':';
+			put2(buf, 14, secondOfDay / 60 % 60);
+			buf[16] = ':';
+			put2(buf, 17, secondOfDay % 60);
+		}
+		return new String(buf);
+	}
+
+	private static void put4(char[] buf, int offset, int value) {
+		put2(buf, offset, value / 100);
+		put2(buf, offset + 2, value % 100);
+	}
+
+	private static void put2(char[] buf, int offset, int value) {
+		buf[offset] = (char) ('0' + value / 10);
+		buf[offset + 1] = (char) ('0' + value % 10);
+	}
+
+	/**
+	 * 按位解析"yyyy-MM-dd"、"yyyy-MM-dd HH:mm:ss"，与SimpleDateFormat相同忽略末尾的其他文字
+	 * 位数不符、值超出范围、处于夏令时切换时返回null，交由其他方式解析
+	 */
+	private static Date parseFast(String text, boolean withTime) {
+		int length = withTime ? 19 : 10;
+		if (text.length() < length || (text.length() > length && isDigit(text.charAt(length))))
+			return null;
+		if (text.charAt(4) != '-' || text.charAt(7) != '-')
+			return null;
+		int year = read(text, 0, 4);
+		int month = read(text, 5, 2);
+		int day = read(text, 8, 2);
+		int hour = 0;
+		int minute = 0;
+		int second = 0;
+		if (withTime) {
+			if (text.charAt(10) != ' ' || text.charAt(13) != ':' || text.charAt(16) != ':')
+				return null;
+			hour = read(text, 11, 2);
+			minute = read(text, 14, 2);
+			second = read(text, 17, 2);
+			if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59)
+				return null;
+		}
+		if (year < 1583 || month < 1 || month > 12 || day < 1 || day > 28 && day > YearMonth.of(year, month).lengthOfMonth())
+			return null;
+
+		return toDate(LocalDateTime.of(year, month, day, hour, minute, second));
+	}
+
+	/**
+	 * 转换为默认时区的时间，年份超出1583~9999或处于时区偏移切换（时间不存在或重复）时返回null
+	 */
+	private static Date toDate(LocalDateTime time) {
+		if (time.getYear() < 1583 || time.getYear() > 9999)
+			return null;
+		long local = time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1000000;
+
+		// 前后一天的偏移中恰有一个与该时间相符时才不存在歧义
+		TimeZone zone = TimeZone.getDefault();
+		int before = zone.getOffset(local - 86400000L);
+		int after = zone.getOffset(local + 86400000L);
+		boolean beforeValid = zone.getOffset(local - before) == before;
+		boolean afterValid = zone.getOffset(local - after) == after;
+		if (before == after ? !beforeValid : beforeValid == afterValid)
+			return null;
+		return new Date(local - (beforeValid ? before : after));
+	}
+
+	/**
+	 * 读取数字，含非数字字符时返回-1
+	 */
+	private static int read(String text, int offset, int count) {
+		int value = 0;
+		for (int i = offset; i < offset + count; i++) {
+			char c = text.charAt(i);
+			if (!isDigit(c))
+				return -1;
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
 }
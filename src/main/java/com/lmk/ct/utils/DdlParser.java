@@ -0,0 +1,1189 @@
+package com.lmk.ct.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.lmk.ct.bean.DbField;
+import com.lmk.ct.bean.ForeignKey;
+
+/**
+ * DDL脚本解析器
+ * 解析MySQL的建表脚本（如数据库迁移脚本、mysqldump --no-data的输出），得到与查询数据库相同的表、字段及外键信息
+ * 支持 CREATE TABLE、ALTER TABLE、DROP TABLE、RENAME TABLE 及 DELIMITER，其他语句被忽略
+ * 脚本按语句流式读取，不会整体读入内存；多个脚本按解析的先后顺序依次生效
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class DdlParser {
+
+	/** 日志记录器 */
+	private static Logger log = LoggerFactory.getLogger(DdlParser.class);
+
+	/** DDL脚本文件的扩展名 */
+	public static final String SCRIPT_SUFFIX = ".sql";
+
+	/** 未指定显示宽度的整数类型，按MySQL 5.7的默认宽度补全，与information_schema的column_type保持一致 */
+	private static final Map<String, String> INTEGER_WIDTHS = new HashMap<String, String>();
+
+	/** 类型的同义词 */
+	private static final Map<String, String> TYPE_ALIASES = new HashMap<String, String>();
+
+	static {
+		INTEGER_WIDTHS.put("tinyint", "tinyint(4)");
+		INTEGER_WIDTHS.put("smallint", "smallint(6)");
+		INTEGER_WIDTHS.put("mediumint", "mediumint(9)");
+		INTEGER_WIDTHS.put("int", "int(11)");
+		INTEGER_WIDTHS.put("bigint", "bigint(20)");
+
+		TYPE_ALIASES.put("integer", "int");
+		TYPE_ALIASES.put("bool", "tinyint(1)");
+		TYPE_ALIASES.put("boolean", "tinyint(1)");
+		TYPE_ALIASES.put("dec", "decimal");
+		TYPE_ALIASES.put("numeric", "decimal");
+		TYPE_ALIASES.put("fixed", "decimal");
+	}
+
+	/** 所有表，按创建顺序排列 */
+	private final Map<String, Table> tables = new LinkedHashMap<String, Table>();
+
+	/** 解析的语句数 */
+	private int statementCount = 0;
+
+	/** 解析失败的语句数 */
+	private int errorCount = 0;
+
+	/**
+	 * 解析脚本文件或目录，目录下的脚本按文件名顺序解析
+	 * @param file	脚本文件或目录
+	 * @throws IOException
+	 */
+	public void parse(File file) throws IOException {
+		if(file.isDirectory()){
+			File[] files = file.listFiles((dir, name) -> name.toLowerCase().endsWith(SCRIPT_SUFFIX));
+			if(files != null){
+				Arrays.sort(files);
+				for(File item : files)
+					parse(item);
+			}
+			return;
+		}
+
+		log.info("解析DDL脚本：{}", file.getPath());
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+			parse(reader);
+		}
+	}
+
+	/**
+	 * 解析脚本
+	 * @param reader
+	 * @throws IOException
+	 */
+	public void parse(Reader reader) throws IOException {
+		Lexer lexer = new Lexer(reader);
+		List<Token> tokens = new ArrayList<Token>();
+		boolean skipping = false;
+		Token token;
+		while(true){
+			token = lexer.next();
+			if(token.type == Token.EOF || token.type == Token.END){
+				if(!tokens.isEmpty())
+					execute(tokens);
+				tokens.clear();
+				skipping = false;
+				if(token.type == Token.EOF)
+					break;
+				continue;
+			}
+
+			if(skipping)
+				continue;
+
+			if(tokens.isEmpty() && token.type == Token.WORD){
+				if(token.is("DELIMITER")){
+					lexer.setDelimiter(lexer.readLine().trim());
+					continue;
+				}
+				// 与表结构无关的语句（如INSERT）不保留其内容
+				skipping = !token.is("CREATE") && !token.is("ALTER") && !token.is("DROP") && !token.is("RENAME");
+				if(skipping)
+					continue;
+			}
+			tokens.add(token);
+		}
+	}
+
+	/**
+	 * 实体表：表名 -> 表注释，排除多对多的关联表
+	 * @return
+	 */
+	public Map<String, String> getTableMap(){
+		Map<String, String> tableMap = new LinkedHashMap<String, String>();
+		for(Table table : tables.values()){
+			if(CodeUtils.isRealEntity((long) table.primaryKey.size()))
+				tableMap.put(table.name, table.comment == null ? "" : table.comment);
+		}
+		return tableMap;
+	}
+
+	/**
+	 * 所有表的字段
+	 * @return 表名 -> 字段列表
+	 */
+	public Map<String, List<DbField>> getFieldMap(){
+		Map<String, List<DbField>> fieldMap = new LinkedHashMap<String, List<DbField>>();
+		for(Table table : tables.values()){
+			List<DbField> fields = new ArrayList<DbField>(table.columns.size());
+			Map<String, String> keys = table.getKeys();
+			for(Map.Entry<String, Column> item : table.columns.entrySet()){
+				Column column = item.getValue();
+				String key = keys.get(item.getKey());
+				CodeUtils.addField(fields,
+						column.name,
+						column.type,
+						column.notNull || "PRI".equals(key) ? "NO" : "YES",
+						column.defaultValue,
+						column.comment == null ? "" : column.comment,
+						key == null ? "" : key);
+			}
+			fieldMap.put(table.name, fields);
+		}
+		return fieldMap;
+	}
+
+	/**
+	 * 所有外键，复合外键的每一列各为一个外键
+	 * @return
+	 */
+	public List<ForeignKey> getForeignKeys(){
+		List<ForeignKey> foreignKeys = new ArrayList<ForeignKey>();
+		for(Table table : tables.values()){
+			for(Constraint fk : table.foreignKeys){
+				for(String column : fk.columns)
+					foreignKeys.add(new ForeignKey(table.getColumnName(column), table.name, fk.referencedTable));
+			}
+		}
+		return foreignKeys;
+	}
+
+	public int getTableCount() {
+		return tables.size();
+	}
+
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * 执行一条语句，解析失败的语句被跳过
+	 * @param tokens
+	 */
+	private void execute(List<Token> tokens){
+		statementCount++;
+		Statement s = new Statement(tokens);
+		try {
+			if(s.accept("CREATE"))
+				createTable(s);
+			else if(s.accept("ALTER"))
+				alterTable(s);
+			else if(s.accept("DROP"))
+				dropTable(s);
+			else if(s.accept("RENAME"))
+				renameTable(s);
+		} catch (IllegalStateException e) {
+			errorCount++;
+			log.warn("第{}条语句解析失败：{}，语句：{}", statementCount, e.getMessage(), s.preview());
+		}
+	}
+
+	/**
+	 * CREATE [TEMPORARY] TABLE [IF NOT EXISTS] tbl (create_definition, ...) [table_options]
+	 * CREATE TABLE tbl LIKE old_tbl
+	 * CREATE [UNIQUE | FULLTEXT | SPATIAL] INDEX idx ON tbl (key_part, ...)
+	 */
+	private void createTable(Statement s){
+		boolean unique = s.accept("UNIQUE");
+		if(!unique && !s.accept("FULLTEXT"))
+			s.accept("SPATIAL");
+		if(s.accept("INDEX")){
+			String name = parseIndexName(s);
+			s.expect("ON");
+			table(s.name()).indexes.add(new Constraint(name, unique, parseKeyColumns(s)));
+			return;
+		}
+
+		s.accept("TEMPORARY");
+		if(!s.accept("TABLE"))
+			return;// 视图、存储过程等
+
+		boolean ifNotExists = s.accept("IF");
+		if(ifNotExists){
+			s.expect("NOT");
+			s.expect("EXISTS");
+		}
+		String name = s.name();
+		if(ifNotExists && tables.containsKey(name))
+			return;
+
+		boolean like = s.accept("LIKE");
+		if(!like && s.peekSymbol('(')){
+			s.next();
+			like = s.accept("LIKE");
+			if(!like){
+				Table table = new Table(name);
+				parseDefinitions(s, table);
+				parseTableOptions(s, table);
+				tables.put(name, table);
+				return;
+			}
+		}
+
+		if(like){
+			Table source = tables.get(s.name());
+			if(source == null)
+				throw new IllegalStateException("LIKE的表不存在");
+			tables.put(name, source.copy(name));
+		}
+	}
+
+	/**
+	 * ALTER [ONLINE | IGNORE] TABLE tbl alter_option [, alter_option] ...
+	 */
+	private void alterTable(Statement s){
+		s.accept("ONLINE");
+		s.accept("IGNORE");
+		if(!s.accept("TABLE"))
+			return;
+
+		Table table = table(s.name());
+		while(s.hasNext()){
+			alterOption(s, table);
+			s.skipToSeparator();
+			if(!s.acceptSymbol(','))
+				break;
+		}
+	}
+
+	/**
+	 * 单个ALTER TABLE选项
+	 */
+	private void alterOption(Statement s, Table table){
+		if(s.accept("ADD")){
+			if(s.accept("COLUMN") || !isConstraintStart(s)){
+				if(s.peekSymbol('(')){
+					s.next();
+					parseDefinitions(s, table);
+				}else
+					table.putColumn(parseColumn(s), null);
+			}else
+				parseConstraint(s, table);
+		}else if(s.accept("DROP")){
+			if(s.accept("PRIMARY")){
+				s.expect("KEY");
+				table.primaryKey.clear();
+			}else if(s.accept("FOREIGN")){
+				s.expect("KEY");
+				table.dropConstraint(s.name());
+			}else if(s.accept("INDEX") || s.accept("KEY") || s.accept("CHECK") || s.accept("CONSTRAINT")){
+				table.dropConstraint(s.name());
+			}else{
+				s.accept("COLUMN");
+				table.dropColumn(s.name());
+			}
+		}else if(s.accept("MODIFY")){
+			s.accept("COLUMN");
+			Column column = parseColumn(s);
+			table.putColumn(column, column.name);
+		}else if(s.accept("CHANGE")){
+			s.accept("COLUMN");
+			String oldName = s.name();
+			table.putColumn(parseColumn(s), oldName);
+		}else if(s.accept("ALTER")){
+			s.accept("COLUMN");
+			Column column = table.getColumn(s.name());
+			if(column != null){
+				if(s.accept("SET")){
+					s.expect("DEFAULT");
+					column.defaultValue = parseDefault(s);
+				}else if(s.accept("DROP")){
+					s.expect("DEFAULT");
+					column.defaultValue = null;
+				}
+			}
+		}else if(s.accept("RENAME")){
+			if(s.accept("COLUMN")){
+				String oldName = s.name();
+				s.expect("TO");
+				Column column = table.getColumn(oldName);
+				if(column != null){
+					Column renamed = column.copy();
+					renamed.name = s.name();
+					table.putColumn(renamed, oldName);
+				}
+			}else if(!s.accept("INDEX") && !s.accept("KEY")){
+				if(!s.accept("TO"))
+					s.accept("AS");
+				rename(table.name, s.name());
+			}
+		}else if(s.accept("COMMENT")){
+			s.acceptSymbol('=');
+			table.comment = s.string();
+		}
+	}
+
+	/**
+	 * DROP [TEMPORARY] TABLE [IF EXISTS] tbl [, tbl] ...
+	 * DROP INDEX idx ON tbl
+	 */
+	private void dropTable(Statement s){
+		if(s.accept("INDEX")){
+			String name = s.name();
+			s.expect("ON");
+			table(s.name()).dropConstraint(name);
+			return;
+		}
+
+		s.accept("TEMPORARY");
+		if(!s.accept("TABLE"))
+			return;
+		if(s.accept("IF"))
+			s.expect("EXISTS");
+		do {
+			tables.remove(s.name());
+		} while(s.acceptSymbol(','));
+	}
+
+	/**
+	 * RENAME TABLE tbl TO new_tbl [, tbl2 TO new_tbl2] ...
+	 */
+	private void renameTable(Statement s){
+		if(!s.accept("TABLE"))
+			return;
+		do {
+			String oldName = s.name();
+			s.expect("TO");
+			rename(oldName, s.name());
+		} while(s.acceptSymbol(','));
+	}
+
+	/**
+	 * 获取已定义的表
+	 */
+	private Table table(String name){
+		Table table = tables.get(name);
+		if(table == null)
+			throw new IllegalStateException("表不存在：" + name);
+		return table;
+	}
+
+	/**
+	 * 重命名表，并修改指向该表的外键
+	 */
+	private void rename(String oldName, String newName){
+		Table table = table(oldName);
+		tables.remove(oldName);
+		table.name = newName;
+		tables.put(newName, table);
+		for(Table item : tables.values()){
+			for(Constraint fk : item.foreignKeys){
+				if(fk.referencedTable.equals(oldName))
+					fk.referencedTable = newName;
+			}
+		}
+	}
+
+	/**
+	 * 解析括号内的字段及约束定义，直到右括号
+	 */
+	private void parseDefinitions(Statement s, Table table){
+		while(s.hasNext() && !s.peekSymbol(')')){
+			if(isConstraintStart(s))
+				parseConstraint(s, table);
+			else
+				table.putColumn(parseColumn(s), null);
+			s.skipToSeparator();
+			s.acceptSymbol(',');
+		}
+		s.expectSymbol(')');
+	}
+
+	/**
+	 * 解析表选项，只关心表注释
+	 */
+	private void parseTableOptions(Statement s, Table table){
+		while(s.hasNext()){
+			if(s.accept("COMMENT")){
+				s.acceptSymbol('=');
+				table.comment = s.string();
+			}else
+				s.next();
+		}
+	}
+
+	/**
+	 * 判断当前位置是否为约束或索引定义
+	 */
+	private boolean isConstraintStart(Statement s){
+		return s.peek("CONSTRAINT") || s.peek("PRIMARY") || s.peek("UNIQUE") || s.peek("KEY") || s.peek("INDEX")
+				|| s.peek("FULLTEXT") || s.peek("SPATIAL") || s.peek("FOREIGN") || s.peek("CHECK");
+	}
+
+	/**
+	 * 解析约束或索引定义
+	 */
+	private void parseConstraint(Statement s, Table table){
+		String symbol = null;
+		if(s.accept("CONSTRAINT") && !isConstraintStart(s))
+			symbol = s.name();
+
+		if(s.accept("PRIMARY")){
+			s.expect("KEY");
+			table.primaryKey.clear();
+			table.primaryKey.addAll(parseKeyColumns(s));
+		}else if(s.accept("UNIQUE")){
+			if(!s.accept("KEY"))
+				s.accept("INDEX");
+			String name = parseIndexName(s);
+			table.indexes.add(new Constraint(symbol != null ? symbol : name, true, parseKeyColumns(s)));
+		}else if(s.accept("KEY") || s.accept("INDEX") || s.accept("FULLTEXT") || s.accept("SPATIAL")){
+			if(!s.accept("KEY"))
+				s.accept("INDEX");
+			String name = parseIndexName(s);
+			table.indexes.add(new Constraint(name, false, parseKeyColumns(s)));
+		}else if(s.accept("FOREIGN")){
+			s.expect("KEY");
+			String name = parseIndexName(s);
+			Constraint fk = new Constraint(symbol != null ? symbol : name, false, parseKeyColumns(s));
+			s.expect("REFERENCES");
+			fk.referencedTable = s.name();
+			table.foreignKeys.add(fk);
+		}
+		// CHECK约束无需处理
+	}
+
+	/**
+	 * 解析可选的索引名，跳过索引类型
+	 */
+	private String parseIndexName(Statement s){
+		String name = null;
+		if(!s.peekSymbol('(') && !s.peek("USING"))
+			name = s.name();
+		if(s.accept("USING"))
+			s.next();
+		return name;
+	}
+
+	/**
+	 * 解析索引的列：[USING {BTREE | HASH}] (col [(length)] [ASC | DESC], ...)，忽略函数索引
+	 */
+	private List<String> parseKeyColumns(Statement s){
+		List<String> columns = new ArrayList<String>();
+		if(s.accept("USING"))
+			s.next();
+		s.expectSymbol('(');
+		while(s.hasNext() && !s.peekSymbol(')')){
+			if(s.peekSymbol('('))
+				s.skipParentheses();
+			else
+				columns.add(s.name());
+			s.skipToSeparator();
+			s.acceptSymbol(',');
+		}
+		s.expectSymbol(')');
+		return columns;
+	}
+
+	/**
+	 * 解析字段定义：col_name data_type [attributes]
+	 */
+	private Column parseColumn(Statement s){
+		Column column = new Column(s.name());
+		column.type = parseType(s);
+
+		while(s.hasNext() && !s.peekSymbol(',') && !s.peekSymbol(')')){
+			if(s.accept("UNSIGNED")){
+				column.type += " unsigned";
+			}else if(s.accept("ZEROFILL")){
+				column.type += " zerofill";
+			}else if(s.accept("NOT")){
+				s.expect("NULL");
+				column.notNull = true;
+			}else if(s.accept("NULL")){
+				column.notNull = false;
+			}else if(s.accept("DEFAULT")){
+				column.defaultValue = parseDefault(s);
+			}else if(s.accept("PRIMARY") || s.accept("KEY")){
+				s.accept("KEY");
+				column.primaryKey = true;
+			}else if(s.accept("UNIQUE")){
+				s.accept("KEY");
+				column.unique = true;
+			}else if(s.accept("COMMENT")){
+				column.comment = s.string();
+			}else if(s.accept("CHARACTER")){
+				s.expect("SET");
+				s.next();
+			}else if(s.accept("CHARSET") || s.accept("COLLATE")){
+				s.next();
+			}else if(s.accept("FIRST")){
+				column.first = true;
+			}else if(s.accept("AFTER")){
+				column.after = s.name();
+			}else if(s.peekSymbol('(')){
+				s.skipParentheses();
+			}else{
+				s.next();// AUTO_INCREMENT、ON UPDATE、GENERATED ALWAYS AS 等
+			}
+		}
+		return column;
+	}
+
+	/**
+	 * 解析字段类型，格式与information_schema的column_type一致，如：varchar(50)、decimal(10,2)、enum('a','b')
+	 */
+	private String parseType(Statement s){
+		Token token = s.next();
+		if(token.type != Token.WORD)
+			throw new IllegalStateException("缺少字段类型");
+
+		String type = token.text.toLowerCase();
+		String alias = TYPE_ALIASES.get(type);
+		if(alias != null)
+			type = alias;
+		s.accept("PRECISION");// DOUBLE PRECISION
+
+		if(s.peekSymbol('(') && type.indexOf('(') < 0){
+			StringBuilder sb = new StringBuilder(type);
+			s.next();
+			sb.append('(');
+			while(s.hasNext() && !s.peekSymbol(')')){
+				token = s.next();
+				if(token.type == Token.STRING)
+					sb.append('\'').append(token.text.replace("'", "''")).append('\'');
+				else
+					sb.append(token.text);
+			}
+			s.expectSymbol(')');
+			return sb.append(')').toString();
+		}
+
+		String width = INTEGER_WIDTHS.get(type);
+		return width != null ? width : type;
+	}
+
+	/**
+	 * 解析默认值，与information_schema的column_default一致：文本不带引号，NULL为null
+	 */
+	private String parseDefault(Statement s){
+		Token token = s.next();
+		if(token.type == Token.STRING)
+			return token.text;
+		if(token.type == Token.SYMBOL){
+			if(token.text.equals("-") || token.text.equals("+"))
+				return (token.text.equals("-") ? "-" : "") + s.next().text;
+			if(token.text.equals("(")){
+				StringBuilder sb = new StringBuilder();
+				int depth = 1;
+				while(s.hasNext()){
+					token = s.next();
+					if(token.isSymbol('('))
+						depth++;
+					else if(token.isSymbol(')') && --depth == 0)
+						break;
+					if(sb.length() > 0 && token.type == Token.WORD)
+						sb.append(' ');
+					sb.append(token.type == Token.STRING ? "'" + token.text.replace("'", "''") + "'" : token.text);
+				}
+				return sb.toString();
+			}
+		}
+		if(token.is("NULL"))
+			return null;
+		// 二进制字面量保留原样，与information_schema一致，如：b'0'
+		if(s.peekType(Token.STRING) && token.is("b"))
+			return "b'" + s.next().text + "'";
+		// 字符集前缀，如：_utf8mb4'abc'；或十六进制字面量，如：x'41'
+		if(s.peekType(Token.STRING) && (token.text.startsWith("_") || token.is("x")))
+			return s.next().text;
+		// CURRENT_TIMESTAMP(3)
+		if(s.peekSymbol('(')){
+			StringBuilder sb = new StringBuilder(token.text);
+			while(s.hasNext()){
+				Token item = s.next();
+				sb.append(item.text);
+				if(item.isSymbol(')'))
+					break;
+			}
+			return sb.toString();
+		}
+		return token.text;
+	}
+
+	/**
+	 * 表定义
+	 */
+	private static class Table {
+		String name;
+		String comment;
+		/** 字段：小写的字段名 -> 字段 */
+		Map<String, Column> columns = new LinkedHashMap<String, Column>();
+		List<String> primaryKey = new ArrayList<String>();
+		List<Constraint> indexes = new ArrayList<Constraint>();
+		List<Constraint> foreignKeys = new ArrayList<Constraint>();
+
+		Table(String name) {
+			this.name = name;
+		}
+
+		Column getColumn(String name){
+			return columns.get(name.toLowerCase());
+		}
+
+		String getColumnName(String name){
+			Column column = getColumn(name);
+			return column != null ? column.name : name;
+		}
+
+		/**
+		 * 计算所有字段的键类型，与information_schema的column_key一致：PRI、UNI、MUL，无键的字段不在结果中
+		 * 优先级为 PRI > UNI > MUL
+		 * @return 小写的字段名 -> 键类型
+		 */
+		Map<String, String> getKeys(){
+			Map<String, String> keys = new HashMap<String, String>();
+			for(Constraint index : indexes){
+				if(!index.columns.isEmpty())
+					keys.merge(index.columns.get(0).toLowerCase(), index.unique && index.columns.size() == 1 ? "UNI" : "MUL", Table::higherKey);
+			}
+			// 外键列上没有索引时，MySQL会自动创建索引
+			for(Constraint fk : foreignKeys){
+				if(!fk.columns.isEmpty())
+					keys.merge(fk.columns.get(0).toLowerCase(), "MUL", Table::higherKey);
+			}
+			for(String column : primaryKey)
+				keys.put(column.toLowerCase(), "PRI");
+			return keys;
+		}
+
+		private static String higherKey(String key1, String key2){
+			return "UNI".equals(key1) || "UNI".equals(key2) ? "UNI" : key1;
+		}
+
+		/**
+		 * 添加或替换字段
+		 * @param column	字段
+		 * @param replaced	被替换的字段名，为null时添加字段
+		 */
+		void putColumn(Column column, String replaced){
+			if(column.primaryKey){
+				primaryKey.clear();
+				primaryKey.add(column.name);
+			}
+			if(column.unique)
+				indexes.add(new Constraint(column.name, true, new ArrayList<String>(Collections.singletonList(column.name))));
+
+			String key = column.name.toLowerCase();
+			String replacedKey = replaced == null ? null : replaced.toLowerCase();
+			if(replacedKey != null && !replacedKey.equals(key))
+				renameKeyColumn(replaced, column.name);
+
+			if(!column.first && column.after == null && (replacedKey == null || replacedKey.equals(key))){
+				columns.put(key, column);
+				return;
+			}
+
+			// 需要调整字段的位置
+			Map<String, Column> placed = new LinkedHashMap<String, Column>();
+			if(column.first)
+				placed.put(key, column);
+			for(Map.Entry<String, Column> item : columns.entrySet()){
+				if(item.getKey().equals(replacedKey) && !column.first && column.after == null)
+					placed.put(key, column);
+				else if(!item.getKey().equals(replacedKey) && !item.getKey().equals(key))
+					placed.put(item.getKey(), item.getValue());
+				if(column.after != null && item.getKey().equals(column.after.toLowerCase()))
+					placed.put(key, column);
+			}
+			if(!placed.containsKey(key))
+				placed.put(key, column);
+			columns = placed;
+		}
+
+		/**
+		 * 删除字段，并从索引中移除
+		 */
+		void dropColumn(String name){
+			columns.remove(name.toLowerCase());
+			primaryKey.removeIf(name::equalsIgnoreCase);
+			for(Constraint index : indexes)
+				index.columns.removeIf(name::equalsIgnoreCase);
+			indexes.removeIf(index -> index.columns.isEmpty());
+		}
+
+		/**
+		 * 删除索引或外键
+		 */
+		void dropConstraint(String name){
+			indexes.removeIf(index -> name.equalsIgnoreCase(index.name));
+			foreignKeys.removeIf(fk -> name.equalsIgnoreCase(fk.name));
+		}
+
+		/**
+		 * 字段改名后，修改主键、索引及外键中的字段名
+		 */
+		void renameKeyColumn(String oldName, String newName){
+			primaryKey.replaceAll(item -> item.equalsIgnoreCase(oldName) ? newName : item);
+			for(Constraint index : indexes)
+				index.columns.replaceAll(item -> item.equalsIgnoreCase(oldName) ? newName : item);
+			for(Constraint fk : foreignKeys)
+				fk.columns.replaceAll(item -> item.equalsIgnoreCase(oldName) ? newName : item);
+		}
+
+		/**
+		 * 复制表结构，外键不复制（与CREATE TABLE ... LIKE一致）
+		 */
+		Table copy(String name){
+			Table table = new Table(name);
+			table.comment = comment;
+			for(Map.Entry<String, Column> item : columns.entrySet())
+				table.columns.put(item.getKey(), item.getValue().copy());
+			table.primaryKey.addAll(primaryKey);
+			for(Constraint index : indexes)
+				table.indexes.add(new Constraint(index.name, index.unique, new ArrayList<String>(index.columns)));
+			return table;
+		}
+	}
+
+	/**
+	 * 字段定义
+	 */
+	private static class Column {
+		String name;
+		String type;
+		boolean notNull;
+		String defaultValue;
+		String comment;
+		boolean primaryKey;
+		boolean unique;
+		/** ALTER TABLE时的位置：FIRST 或 AFTER col */
+		boolean first;
+		String after;
+
+		Column(String name) {
+			this.name = name;
+		}
+
+		Column copy(){
+			Column column = new Column(name);
+			column.type = type;
+			column.notNull = notNull;
+			column.defaultValue = defaultValue;
+			column.comment = comment;
+			return column;
+		}
+	}
+
+	/**
+	 * 索引或外键
+	 */
+	private static class Constraint {
+		String name;
+		boolean unique;
+		List<String> columns;
+		String referencedTable;
+
+		Constraint(String name, boolean unique, List<String> columns) {
+			this.name = name;
+			this.unique = unique;
+			this.columns = columns;
+		}
+	}
+
+	/**
+	 * 词法单元
+	 */
+	private static class Token {
+		/** 关键字、标识符或数字 */
+		static final int WORD = 0;
+		/** 反引号括起的标识符 */
+		static final int QUOTED = 1;
+		/** 文本 */
+		static final int STRING = 2;
+		/** 符号 */
+		static final int SYMBOL = 3;
+		/** 语句结束符 */
+		static final int END = 4;
+		/** 脚本结束 */
+		static final int EOF = 5;
+
+		final int type;
+		final String text;
+
+		Token(int type, String text) {
+			this.type = type;
+			this.text = text;
+		}
+
+		boolean is(String word){
+			return type == WORD && text.equalsIgnoreCase(word);
+		}
+
+		boolean isSymbol(char symbol){
+			return type == SYMBOL && text.length() == 1 && text.charAt(0) == symbol;
+		}
+	}
+
+	/**
+	 * 单条语句的词法单元序列
+	 */
+	private static class Statement {
+		private final List<Token> tokens;
+		private int pos = 0;
+
+		Statement(List<Token> tokens) {
+			this.tokens = tokens;
+		}
+
+		boolean hasNext(){
+			return pos < tokens.size();
+		}
+
+		Token next(){
+			if(pos >= tokens.size())
+				throw new IllegalStateException("语句不完整");
+			return tokens.get(pos++);
+		}
+
+		boolean peek(String word){
+			return pos < tokens.size() && tokens.get(pos).is(word);
+		}
+
+		boolean peekSymbol(char symbol){
+			return pos < tokens.size() && tokens.get(pos).isSymbol(symbol);
+		}
+
+		boolean peekType(int type){
+			return pos < tokens.size() && tokens.get(pos).type == type;
+		}
+
+		boolean accept(String word){
+			if(peek(word)){
+				pos++;
+				return true;
+			}
+			return false;
+		}
+
+		boolean acceptSymbol(char symbol){
+			if(peekSymbol(symbol)){
+				pos++;
+				return true;
+			}
+			return false;
+		}
+
+		void expect(String word){
+			if(!accept(word))
+				throw new IllegalStateException("缺少" + word);
+		}
+
+		void expectSymbol(char symbol){
+			if(!acceptSymbol(symbol))
+				throw new IllegalStateException("缺少" + symbol);
+		}
+
+		/**
+		 * 读取名称，db.tbl形式的名称只取最后一段
+		 */
+		String name(){
+			Token token = next();
+			if(token.type != Token.WORD && token.type != Token.QUOTED && token.type != Token.STRING)
+				throw new IllegalStateException("缺少名称");
+			String name = token.text;
+			while(peekSymbol('.') && pos + 1 < tokens.size()){
+				pos++;
+				name = next().text;
+			}
+			return name;
+		}
+
+		/**
+		 * 读取文本，多个相邻的文本将被连接
+		 */
+		String string(){
+			Token token = next();
+			if(token.type != Token.STRING)
+				throw new IllegalStateException("缺少文本");
+			if(!peekType(Token.STRING))
+				return token.text;
+			StringBuilder sb = new StringBuilder(token.text);
+			while(peekType(Token.STRING))
+				sb.append(next().text);
+			return sb.toString();
+		}
+
+		/**
+		 * 跳过当前位置的括号及其中的内容
+		 */
+		void skipParentheses(){
+			int depth = 0;
+			do {
+				Token token = next();
+				if(token.isSymbol('('))
+					depth++;
+				else if(token.isSymbol(')'))
+					depth--;
+			} while(depth > 0 && hasNext());
+		}
+
+		/**
+		 * 跳到同一层级的下一个逗号或右括号
+		 */
+		void skipToSeparator(){
+			while(hasNext() && !peekSymbol(',') && !peekSymbol(')')){
+				if(peekSymbol('('))
+					skipParentheses();
+				else
+					pos++;
+			}
+		}
+
+		/**
+		 * 语句开头的内容，用于日志
+		 */
+		String preview(){
+			StringBuilder sb = new StringBuilder();
+			for(int i = 0; i < tokens.size() && i < 12; i++)
+				sb.append(tokens.get(i).text).append(' ');
+			return sb.append(tokens.size() > 12 ? "..." : "").toString().trim();
+		}
+	}
+
+	/**
+	 * 词法分析器，从Reader中分块读取，跳过注释
+	 * 在缓冲区内成段扫描字符，避免逐字符的方法调用
+	 */
+	private static class Lexer {
+		/** ASCII符号的词法单元，可共享 */
+		private static final Token[] SYMBOLS = new Token[128];
+
+		/** 可作为关键字、标识符或数字的ASCII字符 */
+		private static final boolean[] WORD_CHARS = new boolean[128];
+
+		static {
+			for(int i = 0; i < 128; i++){
+				SYMBOLS[i] = new Token(Token.SYMBOL, String.valueOf((char) i));
+				WORD_CHARS[i] = Character.isLetterOrDigit(i) || i == '_' || i == '$';
+			}
+		}
+
+		private final Reader reader;
+		private final char[] buffer = new char[FileUtils.BUFFER_SIZE * 64];
+		private int pos = 0;
+		private int limit = 0;
+		private String delimiter = ";";
+		private final StringBuilder sb = new StringBuilder(64);
+
+		Lexer(Reader reader) {
+			this.reader = reader;
+		}
+
+		void setDelimiter(String delimiter){
+			if(!delimiter.isEmpty())
+				this.delimiter = delimiter;
+		}
+
+		/**
+		 * 确保缓冲区中至少有count个未读字符
+		 * @return 到达末尾、字符不足时返回false
+		 */
+		private boolean fill(int count) throws IOException {
+			if(limit - pos >= count)
+				return true;
+			if(pos > 0){
+				System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+				limit -= pos;
+				pos = 0;
+			}
+			while(limit < count){
+				int read = reader.read(buffer, limit, buffer.length - limit);
+				if(read < 0)
+					return false;
+				limit += read;
+			}
+			return true;
+		}
+
+		/**
+		 * 向后查看第offset个字符，到达末尾时返回-1
+		 */
+		private int peek(int offset) throws IOException {
+			return fill(offset + 1) ? buffer[pos + offset] : -1;
+		}
+
+		/**
+		 * 读取当前行的剩余部分
+		 */
+		String readLine() throws IOException {
+			sb.setLength(0);
+			while(fill(1)){
+				int start = pos;
+				while(pos < limit && buffer[pos] != '\n')
+					pos++;
+				sb.append(buffer, start, pos - start);
+				if(pos < limit){
+					pos++;
+					break;
+				}
+			}
+			return sb.toString();
+		}
+
+		Token next() throws IOException {
+			skipBlank();
+			if(!fill(1))
+				return new Token(Token.EOF, "");
+
+			if(matchDelimiter())
+				return new Token(Token.END, delimiter);
+
+			char c = buffer[pos];
+			if(c == '`'){
+				pos++;
+				return new Token(Token.QUOTED, readQuoted(c));
+			}
+			if(c == '\'' || c == '"'){
+				pos++;
+				return new Token(Token.STRING, readQuoted(c));
+			}
+			if(isWordChar(c)){
+				sb.setLength(0);
+				boolean number = c >= '0' && c <= '9';
+				// 结束符以单词字符开头时（如：$$），紧跟在单词后的结束符不属于该单词，如：END$$
+				char first = delimiter.charAt(0);
+				boolean wordDelimiter = isWordChar(first);
+				while(true){
+					int start = pos;
+					while(pos < limit && (isWordChar(buffer[pos]) || (number && buffer[pos] == '.')) && !(wordDelimiter && buffer[pos] == first))
+						pos++;
+					sb.append(buffer, start, pos - start);
+					if(pos == limit){
+						if(fill(1))
+							continue;
+						break;
+					}
+					if(!wordDelimiter || buffer[pos] != first)
+						break;
+					if(matchDelimiter()){
+						pos -= delimiter.length();
+						break;
+					}
+					sb.append(buffer[pos++]);
+				}
+				return new Token(Token.WORD, sb.toString());
+			}
+			pos++;
+			return c < 128 ? SYMBOLS[c] : new Token(Token.SYMBOL, String.valueOf(c));
+		}
+
+		/**
+		 * 跳过空白及注释：-- 、#、/* *\/
+		 */
+		private void skipBlank() throws IOException {
+			while(fill(1)){
+				char c = buffer[pos];
+				if(isBlank(c)){
+					pos++;
+				}else if(c == '#' || (c == '-' && peek(1) == '-' && (peek(2) < 0 || isBlank((char) peek(2))))){
+					readLine();
+				}else if(c == '/' && peek(1) == '*'){
+					pos += 2;
+					while(fill(2)){
+						while(pos < limit - 1 && buffer[pos] != '*')
+							pos++;
+						if(buffer[pos] == '*' && buffer[pos + 1] == '/'){
+							pos += 2;
+							break;
+						}
+						pos++;
+					}
+					if(!fill(2))
+						pos = limit;// 未闭合的注释
+				}else
+					break;
+			}
+		}
+
+		private boolean matchDelimiter() throws IOException {
+			if(!fill(delimiter.length()))
+				return false;
+			for(int i = 0; i < delimiter.length(); i++){
+				if(buffer[pos + i] != delimiter.charAt(i))
+					return false;
+			}
+			pos += delimiter.length();
+			return true;
+		}
+
+		/**
+		 * 读取引号括起的内容，支持双写引号及反斜杠转义
+		 */
+		private String readQuoted(char quote) throws IOException {
+			sb.setLength(0);
+			while(fill(1)){
+				int start = pos;
+				while(pos < limit && buffer[pos] != quote && buffer[pos] != '\\')
+					pos++;
+				sb.append(buffer, start, pos - start);
+				if(pos == limit)
+					continue;
+
+				char c = buffer[pos++];
+				if(c == quote){
+					if(peek(0) == quote){
+						sb.append(quote);
+						pos++;
+						continue;
+					}
+					break;
+				}
+
+				// 反斜杠转义，反引号中的反斜杠为普通字符
+				if(quote == '`'){
+					sb.append(c);
+					continue;
+				}
+				int escaped = peek(0);
+				if(escaped < 0)
+					break;
+				pos++;
+				switch (escaped){
+					case 'n': sb.append('\n'); break;
+					case 't': sb.append('\t'); break;
+					case 'r': sb.append('\r'); break;
+					case '0': sb.append('\0'); break;
+					case 'b': sb.append('\b'); break;
+					case 'Z': sb.append((char) 26); break;
+					case '%': case '_': sb.append('\\').append((char) escaped); break;
+					default: sb.append((char) escaped);
+				}
+			}
+			return sb.toString();
+		}
+
+		private static boolean isWordChar(char c){
+			return c < 128 ? WORD_CHARS[c] : c != '\uFEFF' && !Character.isWhitespace(c);
+		}
+
+		private static boolean isBlank(char c){
+			return c <= ' ' || (c >= 128 && (c == '\uFEFF' || Character.isWhitespace(c)));
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.lmk.ct.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 摘要工具类
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class DigestUtils {
+
+	/** 十六进制字符 */
+	private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * 计算SHA-1摘要
+	 * @param data
+	 * @return 十六进制的摘要
+	 */
+	public static String sha1Hex(byte[] data) {
+		try {
+			return toHex(MessageDigest.getInstance("SHA-1").digest(data));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("不支持SHA-1算法", e);
+		}
+	}
+
+	/**
+	 * 计算UTF-8编码文本的SHA-1摘要
+	 * @param text
+	 * @return 十六进制的摘要
+	 */
+	public static String sha1Hex(String text) {
+		return sha1Hex(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 字节数组转换为十六进制文本
+	 * @param bytes
+	 * @return
+	 */
+	public static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for(int i = 0; i < bytes.length; i++){
+			chars[i * 2] = HEX_CHARS[(bytes[i] >> 4) & 0x0F];
+			chars[i * 2 + 1] = HEX_CHARS[bytes[i] & 0x0F];
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,209 @@
+package com.lmk.ct.utils;
+
+import java.io.File;
+import java.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.lmk.ct.bean.*;
+
+/**
+ * 表结构指纹工具类
+ * 记录每张表的字段、类型、键、注释及关联关系的摘要，用于增量生成代码
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class FingerprintUtils {
+
+	/** 日志记录器 */
+	private static Logger log = LoggerFactory.getLogger(FingerprintUtils.class);
+
+	/** 全局指纹的键：基础信息、生成规则及模板内容 */
+	public static final String GLOBAL_KEY = "@global";
+
+	/** 字段分隔符 */
+	private static final char SEPARATOR = '|';
+
+	/**
+	 * 计算所有实体的指纹
+	 * @param entitys	实体
+	 * @param data	基础信息
+	 * @return 表名 -> 指纹，另含全局指纹
+	 */
+	public static Map<String, String> compute(List<Entity> entitys, Map<String, Object> data){
+		Map<String, String> fingerprints = new TreeMap<String, String>();
+		fingerprints.put(GLOBAL_KEY, globalFingerprint(data));
+		for(Entity entity : entitys)
+			fingerprints.put(entity.getTableName(), fingerprint(entity));
+		return fingerprints;
+	}
+
+	/**
+	 * 计算实体的指纹
+	 * @param entity
+	 * @return
+	 */
+	public static String fingerprint(Entity entity){
+		StringBuilder sb = new StringBuilder(256);
+		append(sb, entity.getTableName(), entity.getEntityComment(), entity.getModuleName(), entity.getEntityName());
+
+		if(entity.getPrimaryKey() != null)
+			appendField(sb.append("\nP"), entity.getPrimaryKey());
+		for(DbField field : entity.getFields())
+			appendField(sb.append("\nF"), field);
+
+		for(ManyToOne mto : entity.getManyToOnes())
+			append(sb.append("\nO"), mto.getTableName(), mto.getColumnName(), mto.getModuleName(), mto.getEntityName(), mto.getEntityComment());
+		for(ManyToMany mtm : entity.getMtms())
+			append(sb.append("\nM"), mtm.getJoinTableName(), mtm.getTableName(), mtm.getModuleName(), mtm.getEntityName(), mtm.getEntityComment(), mtm.getSourceColumnName(), mtm.getTargetColumnName());
+		for(Entity child : entity.getChildren())
+			append(sb.append("\nC"), child.getTableName(), child.getModuleName(), child.getEntityName(), child.getEntityComment());
+		for(Map.Entry<String, String> child : new TreeMap<String, String>(entity.getChildMap()).entrySet())
+			append(sb.append("\nK"), child.getKey(), child.getValue());
+
+		return DigestUtils.sha1Hex(sb.toString());
+	}
+
+	/**
+	 * 由实体的指纹计算序列化版本号，表结构不变时版本号不变
+	 * @param entity
+	 * @return
+	 */
+	public static long serialVersionUID(Entity entity){
+		return Long.parseUnsignedLong(fingerprint(entity).substring(0, 16), 16);
+	}
+
+	/**
+	 * 计算全局指纹：基础信息（不含生成日期）、生成规则及所有模板的内容
+	 * @param data	基础信息
+	 * @return
+	 */
+	public static String globalFingerprint(Map<String, Object> data){
+		StringBuilder sb = new StringBuilder(256);
+		for(Map.Entry<String, Object> item : new TreeMap<String, Object>(data).entrySet()){
+			if(!"date".equals(item.getKey()))
+				append(sb.append("\nD"), item.getKey(), String.valueOf(item.getValue()));
+		}
+
+		append(sb.append("\nR"), String.valueOf(CodeUtils.parseTablePrefix), String.valueOf(CodeUtils.buildManyToOne), String.valueOf(CodeUtils.buildManyToMany), String.valueOf(CodeUtils.buildOneToMany));
+
+		File[] templates = FreeMarkerUtils.getTemplateFolder().listFiles((dir, name) -> name.endsWith(FreeMarkerUtils.TEMPLATE_SUFFIX));
+		if(templates != null){
+			Arrays.sort(templates);
+			for(File template : templates)
+				append(sb.append("\nT"), template.getName(), DigestUtils.sha1Hex(FileUtils.readFileByBinary(template)));
+		}
+
+		return DigestUtils.sha1Hex(sb.toString());
+	}
+
+	/**
+	 * 筛选需要重新生成的实体：全局指纹变化时全部重新生成，
+	 * 否则只选出自身或关联实体的指纹有变化、或输出文件缺失的实体
+	 * @param entitys	实体
+	 * @param oldPrints	上次生成时的指纹
+	 * @param newPrints	本次的指纹
+	 * @return
+	 */
+	public static List<Entity> selectChanged(List<Entity> entitys, Map<String, String> oldPrints, Map<String, String> newPrints){
+		if(!Objects.equals(oldPrints.get(GLOBAL_KEY), newPrints.get(GLOBAL_KEY))){
+			log.info("模板或生成规则有变化，全部重新生成");
+			return entitys;
+		}
+
+		List<Entity> changed = new ArrayList<Entity>();
+		for(Entity entity : entitys){
+			if(isChanged(entity.getTableName(), oldPrints, newPrints) || isRelatedChanged(entity, oldPrints, newPrints) || isOutputMissing(entity))
+				changed.add(entity);
+		}
+		log.info("增量生成：{}/{}个实体有变化", changed.size(), entitys.size());
+		return changed;
+	}
+
+	/**
+	 * 读取指纹文件
+	 * @param file
+	 * @return 表名 -> 指纹，文件不存在时返回空Map
+	 */
+	public static Map<String, String> load(File file){
+		Map<String, String> fingerprints = new TreeMap<String, String>();
+		if(file.exists()){
+			for(String line : FileUtils.readFileByLines(file)){
+				int index = line.lastIndexOf('=');
+				if(index > 0 && !line.startsWith("#"))
+					fingerprints.put(line.substring(0, index), line.substring(index + 1));
+			}
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * 保存指纹文件
+	 * @param file
+	 * @param fingerprints
+	 */
+	public static void save(File file, Map<String, String> fingerprints){
+		StringBuilder sb = new StringBuilder("# table=fingerprint\n");
+		for(Map.Entry<String, String> item : fingerprints.entrySet())
+			sb.append(item.getKey()).append('=').append(item.getValue()).append('\n');
+		FileUtils.writeToFile(sb.toString(), file, false);
+	}
+
+	/**
+	 * 判断表的指纹是否变化
+	 */
+	private static boolean isChanged(String tableName, Map<String, String> oldPrints, Map<String, String> newPrints){
+		return !Objects.equals(oldPrints.get(tableName), newPrints.get(tableName));
+	}
+
+	/**
+	 * 判断关联实体（多对一、多对多、一对多）的指纹是否变化
+	 */
+	private static boolean isRelatedChanged(Entity entity, Map<String, String> oldPrints, Map<String, String> newPrints){
+		for(ManyToOne mto : entity.getManyToOnes()){
+			if(isChanged(mto.getTableName(), oldPrints, newPrints))
+				return true;
+		}
+		for(ManyToMany mtm : entity.getMtms()){
+			if(isChanged(mtm.getTableName(), oldPrints, newPrints))
+				return true;
+		}
+		for(Entity child : entity.getChildren()){
+			if(isChanged(child.getTableName(), oldPrints, newPrints))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 判断实体的输出文件是否缺失
+	 */
+	private static boolean isOutputMissing(Entity entity){
+		for(String targetFile : CodeUtils.getTargetFiles(entity).values()){
+			if(!new File(targetFile).exists())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 追加多个值，null值与空文本区分开
+	 */
+	private static void append(StringBuilder sb, String... values){
+		for(String value : values){
+			if(value == null)
+				sb.append('\0');
+			else
+				sb.append(value.length()).append(':').append(value);
+			sb.append(SEPARATOR);
+		}
+	}
+
+	/**
+	 * 追加字段信息
+	 */
+	private static void appendField(StringBuilder sb, DbField field){
+		append(sb, field.getTableFieldName(), field.getFieldName(), String.valueOf(field.getFieldDataType()), String.valueOf(field.getLength()),
+				String.valueOf(field.getNotNull()), field.getDefaultValue(), field.getComment(), String.valueOf(field.getKeyType()));
+	}
+}
@@ -1,5 +1,6 @@
 package com.lmk.ct.utils;
 
+import freemarker.cache.TemplateLoader;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
@@ -7,45 +8,186 @@ import freemarker.template.TemplateException;
 import java.io.*;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Freemaker工具
+ * 模板只解析一次并缓存，可被多个线程同时使用
  * @author LaoMake
  * @since 1.0
  *
  */
 public class FreeMarkerUtils {
-	private static Configuration freeMakerConfig;
-	
+
+	/** 模板文件的扩展名 */
+	public static final String TEMPLATE_SUFFIX = ".ftl";
+
+	/** 已解析的模板 */
+	private static final Map<String, Template> templates = new ConcurrentHashMap<String, Template>();
+
+	/** 模板缓存命中次数 */
+	private static final AtomicLong cacheHits = new AtomicLong();
+
+	/** 模板缓存未命中（即解析模板）次数 */
+	private static final AtomicLong cacheMisses = new AtomicLong();
+
+	/**
+	 * 延迟加载Freemaker配置，由类加载机制保证线程安全
+	 */
+	private static class ConfigHolder {
+		private static final Configuration CONFIG = createFreeMakerConfig();
+	}
+
 	/**
 	 * 获取Freemaker配置
 	 * 已设置默认编码和模板文件存放的根目录
 	 * @return
 	 */
-	@SuppressWarnings("deprecation")
 	public static Configuration getFreeMakerConfig() {
-		if(freeMakerConfig == null){
-			try {
-				freeMakerConfig = new Configuration();
-				freeMakerConfig.setDirectoryForTemplateLoading(
-												new File(new StringBuffer()
-																.append(FileUtils.getRootClassPath(FreeMarkerUtils.class)).append(File.separator)
-																.append(File.separator).append("template").append(File.separator)
-																.toString()));  
-				freeMakerConfig.setEncoding(Locale.CHINA, "UTF-8");
-			} catch (IOException e) {
-				e.printStackTrace();
+		return ConfigHolder.CONFIG;
+	}
+
+	/**
+	 * 获取模板文件存放的根目录
+	 * @return
+	 */
+	public static File getTemplateFolder() {
+		return new File(new StringBuffer()
+				.append(FileUtils.getRootClassPath(FreeMarkerUtils.class)).append(File.separator)
+				.append(File.separator).append("template").append(File.separator)
+				.toString());
+	}
+
+	/**
+	 * 创建Freemaker配置
+	 * 批量生成时模板不会变化，因此关闭模板的更新检查
+	 * @return
+	 */
+	private static Configuration createFreeMakerConfig() {
+		// 使用2.3.0的兼容级别，与原无参构造方法的输出保持一致
+		Configuration config = new Configuration(Configuration.VERSION_2_3_0);
+		try {
+			config.setDirectoryForTemplateLoading(getTemplateFolder());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		applySettings(config);
+		return config;
+	}
+
+	/**
+	 * 创建使用指定模板加载器的Freemaker配置，其他设置与默认配置相同
+	 * @param templateLoader	模板加载器，如从目录或classpath加载
+	 * @return
+	 */
+	public static Configuration createFreeMakerConfig(TemplateLoader templateLoader) {
+		Configuration config = new Configuration(Configuration.VERSION_2_3_0);
+		config.setTemplateLoader(templateLoader);
+		applySettings(config);
+		return config;
+	}
+
+	/**
+	 * 设置编码，并关闭模板的更新检查
+	 * @param config
+	 */
+	private static void applySettings(Configuration config) {
+		config.setEncoding(Locale.CHINA, "UTF-8");
+		config.setDefaultEncoding("UTF-8");
+		config.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
+	}
+
+	/**
+	 * 预先解析模板目录下的所有模板
+	 * @return 模板数目
+	 */
+	public static int warmUp() {
+		int count = 0;
+		File[] files = getTemplateFolder().listFiles((dir, name) -> name.endsWith(TEMPLATE_SUFFIX));
+		if(files != null){
+			for(File file : files){
+				try {
+					getTemplate(file.getName());
+					count++;
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
 			}
 		}
-		return freeMakerConfig;
+		return count;
+	}
+
+	/**
+	 * 获取模板，首次获取时解析并缓存
+	 * @param templateFilePath
+	 * @return
+	 * @throws IOException
+	 */
+	public static Template getTemplate(String templateFilePath) throws IOException {
+		Template template = templates.get(templateFilePath);
+		if(template != null){
+			cacheHits.incrementAndGet();
+			return template;
+		}
+
+		try {
+			return templates.computeIfAbsent(templateFilePath, name -> {
+				try {
+					cacheMisses.incrementAndGet();
+					return getFreeMakerConfig().getTemplate(name);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * 模板缓存命中次数
+	 * @return
+	 */
+	public static long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * 模板缓存未命中（即解析模板）次数，每个模板至多一次
+	 * @return
+	 */
+	public static long getCacheMisses() {
+		return cacheMisses.get();
+	}
+
+	/**
+	 * 渲染模板，返回UTF-8编码的内容
+	 * @param data
+	 * @param templateFilePath
+	 * @return 渲染失败时返回null
+	 */
+	public static byte[] render(Map<String, Object> data, String templateFilePath){
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+			Writer writer = new OutputStreamWriter(out, "UTF-8");
+			getTemplate(templateFilePath).process(data, writer);
+			writer.flush();
+			return out.toByteArray();
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (TemplateException e) {
+			e.printStackTrace();
+		}
+		return null;
 	}
-	
+
 	public static void makeFile(Map<String, Object> data, String templateFilePath, String targetFilePath){
-		
+
 		Writer writer = null;
 		try {
-			Template template = getFreeMakerConfig().getTemplate(templateFilePath);
-			
+			Template template = getTemplate(templateFilePath);
+
 			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(targetFilePath), "UTF-8"));
 			template.process(data, writer);
 			writer.flush();
@@ -4,10 +4,22 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.Date;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * JDBC工具类
@@ -31,6 +43,60 @@ public class JdbcUtils {
 		MySQL, MariaDB, Oracle, SQLServer
 	}
 
+	/**
+	 * 逐行处理查询结果的回调
+	 */
+	@FunctionalInterface
+	public static interface RowCallback {
+		/**
+		 * 处理当前行，不要调用rs.next()，也不要在回调之外保存rs
+		 * @param rs	已定位到当前行的结果集
+		 * @throws SQLException
+		 */
+		void handle(ResultSet rs) throws SQLException;
+	}
+
+	/**
+	 * 将当前行转换为对象
+	 * @param <T>
+	 */
+	@FunctionalInterface
+	public static interface RowMapper<T> {
+		/**
+		 * 转换当前行，不要调用rs.next()
+		 * @param rs	已定位到当前行的结果集
+		 * @return
+		 * @throws SQLException
+		 */
+		T map(ResultSet rs) throws SQLException;
+	}
+
+	/**
+	 * 分批执行的进度回调
+	 */
+	@FunctionalInterface
+	public static interface BatchProgress {
+		/**
+		 * 每批结束后调用
+		 * @param result	当前的进度
+		 */
+		void update(BatchResult result);
+	}
+
+	/**
+	 * 在事务中执行的回调
+	 * @param <T>
+	 */
+	@FunctionalInterface
+	public static interface TransactionCallback<T> {
+		/**
+		 * 在回调中调用JdbcUtils的方法，共用同一个连接及事务
+		 * @return
+		 * @throws SQLException
+		 */
+		T doInTransaction() throws SQLException;
+	}
+
 	/** 数据库驱动 */
 	private static String DRIVER_CLASS_NAME;
 
@@ -42,10 +108,118 @@ public class JdbcUtils {
 
 	/** 连接地址 */
 	private static String URL;
+
+	/** 数据库类型 */
+	private static DbType DB_TYPE = DbType.MySQL;
+
+	/** 流式查询时每次从服务端读取的行数（不支持逐行流式读取的数据库） */
+	private static final int STREAM_FETCH_SIZE = 1000;
 	
 	/** 是否已初始化配置 */
 	private static boolean hasInit = false;
+
+	/** 连接池：最少保持的连接数 */
+	private static int POOL_MIN_SIZE = 1;
+
+	/** 连接池：最大连接数 */
+	private static int POOL_MAX_SIZE = 10;
+
+	/** 连接池：借出连接的最长等待时间（毫秒） */
+	private static long POOL_MAX_WAIT = 30000;
+
+	/** 连接池：空闲连接的最长存活时间（毫秒） */
+	private static long POOL_IDLE_TIMEOUT = 600000;
+
+	/** 连接池：是否在借出时校验连接 */
+	private static boolean POOL_VALIDATE_ON_BORROW = true;
+
+	/** 连接池：每个连接缓存的预编译语句数，0表示不缓存 */
+	private static int POOL_STATEMENT_CACHE_SIZE = 64;
+
+	/** 批量执行：每批的行数 */
+	private static int BATCH_CHUNK_SIZE = 1000;
+
+	/** 批量执行：是否将INSERT、REPLACE语句改写为多行VALUES */
+	private static boolean BATCH_REWRITE = true;
+
+	/** 单条语句的占位符个数上限（MySQL） */
+	private static final int MAX_PLACEHOLDERS = 65535;
+
+	/** 异步执行：最大并发数，小于等于0时与连接池的最大连接数相同 */
+	private static int ASYNC_MAX_CONCURRENCY = 0;
+
+	/** 异步执行：运行环境支持时（Java 21+）是否使用虚拟线程 */
+	private static boolean ASYNC_VIRTUAL_THREADS = true;
+
+	/** 异步线程池，首次异步调用时创建 */
+	private static AsyncExecutor asyncExecutor;
+
+	/** 当前线程的事务 */
+	private static final ThreadLocal<Transaction> TRANSACTION = new ThreadLocal<Transaction>();
+
+	/** 连接池 */
+	private static ConnectionPool pool;
+
+	/**
+	 * 设置连接池参数，需在init()方法之前调用
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param minSize	最少保持的连接数
+	 * @param maxSize	最大连接数
+	 * @param maxWait	借出连接的最长等待时间（毫秒）
+	 * @param idleTimeout	空闲连接的最长存活时间（毫秒）
+	 * @param validateOnBorrow	是否在借出时校验连接
+	 */
+	public static void setPoolConfig(int minSize, int maxSize, long maxWait, long idleTimeout, boolean validateOnBorrow){
+		setPoolConfig(minSize, maxSize, maxWait, idleTimeout, validateOnBorrow, POOL_STATEMENT_CACHE_SIZE);
+	}
+
+	/**
+	 * 设置连接池参数，需在init()方法之前调用
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param minSize	最少保持的连接数
+	 * @param maxSize	最大连接数
+	 * @param maxWait	借出连接的最长等待时间（毫秒）
+	 * @param idleTimeout	空闲连接的最长存活时间（毫秒）
+	 * @param validateOnBorrow	是否在借出时校验连接
+	 * @param statementCacheSize	每个连接缓存的预编译语句数（按SQL，最近最少使用的被关闭），0表示不缓存
+	 */
+	public static void setPoolConfig(int minSize, int maxSize, long maxWait, long idleTimeout, boolean validateOnBorrow, int statementCacheSize){
+		POOL_MIN_SIZE = minSize;
+		POOL_MAX_SIZE = maxSize;
+		POOL_MAX_WAIT = maxWait;
+		POOL_IDLE_TIMEOUT = idleTimeout;
+		POOL_VALIDATE_ON_BORROW = validateOnBorrow;
+		POOL_STATEMENT_CACHE_SIZE = statementCacheSize;
+	}
 	
+	/**
+	 * 设置批量执行的参数
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param chunkSize	每批的行数
+	 * @param rewrite	是否将INSERT、REPLACE语句改写为多行VALUES，一条语句插入多行；不影响返回每行受影响记录数的executeBatch(String, List)
+	 */
+	public static void setBatchConfig(int chunkSize, boolean rewrite){
+		if(chunkSize <= 0)
+			throw new IllegalArgumentException("每批的行数必须大于0：" + chunkSize);
+		BATCH_CHUNK_SIZE = chunkSize;
+		BATCH_REWRITE = rewrite;
+	}
+
+	/**
+	 * 设置异步执行的参数，需在首次异步调用之前调用
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param maxConcurrency	最大并发数，小于等于0时与连接池的最大连接数相同
+	 * @param virtualThreads	运行环境支持时（Java 21+）是否使用虚拟线程
+	 */
+	public static void setAsyncConfig(int maxConcurrency, boolean virtualThreads){
+		ASYNC_MAX_CONCURRENCY = maxConcurrency;
+		ASYNC_VIRTUAL_THREADS = virtualThreads;
+	}
+
 	/**
 	 * 简化版初始化方法，默认为MySQL数据库
 	 * @author LaoMake
@@ -75,8 +249,12 @@ public class JdbcUtils {
 			PASSWORD = password;
 			URL = url;
 			DRIVER_CLASS_NAME = driverClassName;
+			DB_TYPE = dbType;
 			try {
 				Class.forName(driverClassName);
+				if(pool != null)
+					pool.shutdown();
+				pool = new ConnectionPool(url, user, password, POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_MAX_WAIT, POOL_IDLE_TIMEOUT, POOL_VALIDATE_ON_BORROW, POOL_STATEMENT_CACHE_SIZE);
 				hasInit = true;
 				log.info("【JdbcUtils】初始化成功");
 			} catch (ClassNotFoundException e) {
@@ -88,18 +266,53 @@ public class JdbcUtils {
 	}
 	
 	/**
-	 * 获取数据库链接
+	 * 关闭连接池，先等待已提交的异步任务完成
+	 * @author LaoMake
+	 * @since 1.0
+	 */
+	public static void shutdown(){
+		synchronized (JdbcUtils.class) {
+			if(asyncExecutor != null){
+				asyncExecutor.shutdown(POOL_MAX_WAIT);
+				asyncExecutor = null;
+			}
+		}
+		if(pool != null){
+			pool.shutdown();
+			pool = null;
+		}
+		hasInit = false;
+	}
+
+	/**
+	 * 获取连接池，可用于查看连接池的统计信息
+	 * @author LaoMake
+	 * @since 1.0
+	 * @return
+	 */
+	public static ConnectionPool getPool(){
+		return pool;
+	}
+	
+	/**
+	 * 从连接池获取数据库链接，调用close()方法即归还连接
+	 * 通过prepareStatement(sql)获取的语句在close()时放回该连接的缓存，再次使用同一SQL时无需重新预编译
+	 * 在事务中（见transaction()）返回事务的连接，close()、commit()由事务统一处理
 	 * @author LaoMake
 	 * @since 1.0
 	 * @return
 	 */
 	public static Connection getConn(){
+		Transaction transaction = TRANSACTION.get();
+		if(transaction != null)
+			return transaction.handle;
+
 		Connection conn = null;
 		if(hasInit){
 			try {
-				conn = DriverManager.getConnection(URL, USER, PASSWORD);
+				conn = pool.getConnection();
 			} catch (SQLException e) {
-				log.error("【JdbcUtils】获取连接失败\nurl：{}\nuser：{}\npassword：{}", URL, USER, PASSWORD);
+				log.error("【JdbcUtils】获取连接失败\nurl：{}\nuser：{}\npassword：{}\npool：{}", URL, USER, PASSWORD, pool.getStats());
 				e.printStackTrace();
 			}
 		}else{
@@ -176,6 +389,18 @@ public class JdbcUtils {
 	 * @return
 	 */
 	public static List<Object> query(String sql, String... paramters){
+		return query(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 普通查询
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public static List<Object> query(String sql, Params params){
 		List<Object> result = new ArrayList<Object>();
 		
 		Connection conn = getConn();
@@ -185,9 +410,7 @@ public class JdbcUtils {
 			try {
 				ps = conn.prepareStatement(sql);
 				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
-					}
+					params.bind(ps);
 					rs = ps.executeQuery();
 					while(rs.next()){
 						result.add(rs.getObject(1));
@@ -195,6 +418,7 @@ public class JdbcUtils {
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
+				setRollbackOnly();
 			} finally {
 				close(rs, ps, conn);
 			}
@@ -211,6 +435,17 @@ public class JdbcUtils {
 	 * @param paramters
 	 */
 	public static String queryString(String sql, String... paramters){
+		return queryString(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个String，如果有多个返回值
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 */
+	public static String queryString(String sql, Params params){
 		String result = null;
 		
 		Connection conn = getConn();
@@ -220,9 +455,7 @@ public class JdbcUtils {
 			try {
 				ps = conn.prepareStatement(sql);
 				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
-					}
+					params.bind(ps);
 					rs = ps.executeQuery();
 					int total = 0;
 					while(rs.next()){
@@ -231,11 +464,12 @@ public class JdbcUtils {
 					}
 					if(total != 1){
 						result = null;
-						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}", sql, Arrays.toString(paramters));
+						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}", sql, params);
 					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
+				setRollbackOnly();
 			} finally {
 				close(rs, ps, conn);
 			}
@@ -252,6 +486,17 @@ public class JdbcUtils {
 	 * @param paramters
 	 */
 	public static Integer queryInt(String sql, String... paramters){
+		return queryInt(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个Integer
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 */
+	public static Integer queryInt(String sql, Params params){
 		Integer result = null;
 		Connection conn = getConn();
 		if(conn != null){
@@ -260,9 +505,7 @@ public class JdbcUtils {
 			try {
 				ps = conn.prepareStatement(sql);
 				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
-					}
+					params.bind(ps);
 					rs = ps.executeQuery();
 					int total = 0;
 					while(rs.next()){
@@ -271,11 +514,12 @@ public class JdbcUtils {
 					}
 					if(total != 1){
 						result = null;
-						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, Arrays.toString(paramters));
+						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, params);
 					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
+				setRollbackOnly();
 			} finally {
 				close(rs, ps, conn);
 			}
@@ -291,6 +535,17 @@ public class JdbcUtils {
 	 * @param paramters
 	 */
 	public static Long queryLong(String sql, String... paramters){
+		return queryLong(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个Long
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 */
+	public static Long queryLong(String sql, Params params){
 		Long result = null;
 		Connection conn = getConn();
 		if(conn != null){
@@ -299,9 +554,7 @@ public class JdbcUtils {
 			try {
 				ps = conn.prepareStatement(sql);
 				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
-					}
+					params.bind(ps);
 					rs = ps.executeQuery();
 					int total = 0;
 					while(rs.next()){
@@ -310,11 +563,12 @@ public class JdbcUtils {
 					}
 					if(total != 1){
 						result = null;
-						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, Arrays.toString(paramters));
+						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, params);
 					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
+				setRollbackOnly();
 			} finally {
 				close(rs, ps, conn);
 			}
@@ -330,6 +584,17 @@ public class JdbcUtils {
 	 * @param paramters
 	 */
 	public static Float queryFloat(String sql, String... paramters){
+		return queryFloat(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个Float
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 */
+	public static Float queryFloat(String sql, Params params){
 		Float result = null;
 		Connection conn = getConn();
 		if(conn != null){
@@ -338,9 +603,7 @@ public class JdbcUtils {
 			try {
 				ps = conn.prepareStatement(sql);
 				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
-					}
+					params.bind(ps);
 					rs = ps.executeQuery();
 					int total = 0;
 					while(rs.next()){
@@ -349,11 +612,12 @@ public class JdbcUtils {
 					}
 					if(total != 1){
 						result = null;
-						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, Arrays.toString(paramters));
+						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, params);
 					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
+				setRollbackOnly();
 			} finally {
 				close(rs, ps, conn);
 			}
@@ -369,6 +633,17 @@ public class JdbcUtils {
 	 * @param paramters
 	 */
 	public static Double queryDouble(String sql, String... paramters){
+		return queryDouble(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个Double
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 */
+	public static Double queryDouble(String sql, Params params){
 		Double result = null;
 		Connection conn = getConn();
 		if(conn != null){
@@ -377,9 +652,7 @@ public class JdbcUtils {
 			try {
 				ps = conn.prepareStatement(sql);
 				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
-					}
+					params.bind(ps);
 					rs = ps.executeQuery();
 					int total = 0;
 					while(rs.next()){
@@ -388,11 +661,12 @@ public class JdbcUtils {
 					}
 					if(total != 1){
 						result = null;
-						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, Arrays.toString(paramters));
+						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, params);
 					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
+				setRollbackOnly();
 			} finally {
 				close(rs, ps, conn);
 			}
@@ -408,6 +682,17 @@ public class JdbcUtils {
 	 * @param paramters
 	 */
 	public static BigDecimal queryBigDecimal(String sql, String... paramters){
+		return queryBigDecimal(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个BigDecimal
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 */
+	public static BigDecimal queryBigDecimal(String sql, Params params){
 		BigDecimal result = null;
 		Connection conn = getConn();
 		if(conn != null){
@@ -416,9 +701,7 @@ public class JdbcUtils {
 			try {
 				ps = conn.prepareStatement(sql);
 				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
-					}
+					params.bind(ps);
 					rs = ps.executeQuery();
 					int total = 0;
 					while(rs.next()){
@@ -427,11 +710,12 @@ public class JdbcUtils {
 					}
 					if(total != 1){
 						result = null;
-						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, Arrays.toString(paramters));
+						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, params);
 					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
+				setRollbackOnly();
 			} finally {
 				close(rs, ps, conn);
 			}
@@ -447,6 +731,17 @@ public class JdbcUtils {
 	 * @param paramters
 	 */
 	public static Date queryDate(String sql, String... paramters){
+		return queryDate(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个Date
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 */
+	public static Date queryDate(String sql, Params params){
 		Date result = null;
 		Connection conn = getConn();
 		if(conn != null){
@@ -455,9 +750,7 @@ public class JdbcUtils {
 			try {
 				ps = conn.prepareStatement(sql);
 				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
-					}
+					params.bind(ps);
 					rs = ps.executeQuery();
 					int total = 0;
 					while(rs.next()){
@@ -466,11 +759,12 @@ public class JdbcUtils {
 					}
 					if(total != 1){
 						result = null;
-						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, Arrays.toString(paramters));
+						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, params);
 					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
+				setRollbackOnly();
 			} finally {
 				close(rs, ps, conn);
 			}
@@ -487,37 +781,43 @@ public class JdbcUtils {
 	 * @return
 	 */
 	public static Map<String, Object> queryMap(String sql, String... paramters){
+		return queryMap(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个Map
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public static Map<String, Object> queryMap(String sql, Params params){
 		Map<String, Object> result = null;
 		Connection conn = getConn();
 		if(conn != null){
 			PreparedStatement ps = null;
 			ResultSet rs = null;
-			ResultSetMetaData rsmd = null;
 			try {
 				ps = conn.prepareStatement(sql);
 				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
-					}
+					params.bind(ps);
 					rs = ps.executeQuery();
-					rsmd = rs.getMetaData();
-					int columns = rsmd.getColumnCount();
+					String[] names = getColumnNames(rs.getMetaData());
 					
 					int total = 0;
 					while(rs.next()){
-						result = new LinkedHashMap<String, Object>();
-						for(int i = 1; i <= columns; i++){
-							result.put(rsmd.getColumnName(i), rs.getObject(i));
-						}
+						result = toMap(rs, names);
 						total++;
 					}
 					if(total != 1){
 						result = null;
-						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, Arrays.toString(paramters));
+						log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, params);
 					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
+				setRollbackOnly();
 			} finally {
 				close(rs, ps, conn);
 			}
@@ -534,34 +834,37 @@ public class JdbcUtils {
 	 * @return
 	 */
 	public static List<Map<String, Object>> queryMaps(String sql, String... paramters){
+		return queryMaps(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个多个Map
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public static List<Map<String, Object>> queryMaps(String sql, Params params){
 		List<Map<String, Object>> result = new ArrayList<Map<String,Object>>();
 		Connection conn = getConn();
 		if(conn != null){
 			PreparedStatement ps = null;
 			ResultSet rs = null;
-			ResultSetMetaData rsmd = null;
-			Map<String, Object> item;
 			try {
 				ps = conn.prepareStatement(sql);
 				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
-					}
+					params.bind(ps);
 					rs = ps.executeQuery();
-					rsmd = rs.getMetaData();
-					int columns = rsmd.getColumnCount();
+					String[] names = getColumnNames(rs.getMetaData());
 					
 					while(rs.next()){
-						item = new LinkedHashMap<String, Object>();
-						for(int i = 1; i <= columns; i++){
-							item.put(rsmd.getColumnName(i), rs.getObject(i));
-						}
-						result.add(item);
+						result.add(toMap(rs, names));
 					}
-					rsmd = null;
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
+				setRollbackOnly();
 			} finally {
 				close(rs, ps, conn);
 			}
@@ -570,125 +873,340 @@ public class JdbcUtils {
 	}
 	
 	/**
-	 * 插入记录，返回主键值
+	 * 执行查询，返回单行，值存放在数组中，不为每行创建Map
 	 * @author LaoMake
 	 * @since 1.0
 	 * @param sql
 	 * @param paramters
-	 * @return	主键值
+	 * @return 没有结果或返回多个结果时返回null
 	 */
-	public static Object insert(String sql, String... paramters){
-		Object pk = null;
-		Connection conn = getConn();
-		if(conn != null){
-			PreparedStatement ps = null;
-			ResultSet rs = null;
-			try {
-				conn.setAutoCommit(false);
-				ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
-					}
-					ps.executeUpdate();
-					conn.commit();
-					
-					rs = ps.getGeneratedKeys();
-					while(rs.next()){
-						pk = rs.getObject(1);
-					}
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
-				try {
-					if(conn != null){
-						conn.rollback();
-						pk = null;
-					}
-				} catch (SQLException e1) {
-					e1.printStackTrace();
-				}
-			} finally {
-				close(rs, ps, conn);
-			}
+	public static Row queryRow(String sql, String... paramters){
+		return queryRow(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单行，值存放在数组中，不为每行创建Map
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return 没有结果或返回多个结果时返回null
+	 */
+	public static Row queryRow(String sql, Params params){
+		List<Row> rows = queryRows(sql, params);
+		if(rows.size() != 1){
+			if(!rows.isEmpty())
+				log.error("【JdbcUtils】查询失败：返回多个结果\nsql：{}\nparameters：{}" ,sql, params);
+			return null;
 		}
-		return pk;
+		return rows.get(0);
 	}
-	
+
 	/**
-	 * 执行语句，默认开启事务
+	 * 执行查询，返回多行，所有行共享同一个列名索引，适用于列较多或行较多的结果
 	 * @author LaoMake
 	 * @since 1.0
 	 * @param sql
 	 * @param paramters
-	 * @return 受影响记录条数
+	 * @return
 	 */
-	public static int execute(String sql, String... paramters){
-		int rows = 0;
+	public static List<Row> queryRows(String sql, String... paramters){
+		return queryRows(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回多行，所有行共享同一个列名索引，适用于列较多或行较多的结果
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public static List<Row> queryRows(String sql, Params params){
+		List<Row> result = new ArrayList<Row>();
 		Connection conn = getConn();
 		if(conn != null){
 			PreparedStatement ps = null;
 			ResultSet rs = null;
 			try {
-				conn.setAutoCommit(false);
-				
 				ps = conn.prepareStatement(sql);
 				if(ps != null){
-					for(int i = 0; i < paramters.length; i++){
-						ps.setString(i + 1, paramters[i]);
+					params.bind(ps);
+					rs = ps.executeQuery();
+					Row.Columns columns = Row.Columns.of(rs.getMetaData());
+					
+					while(rs.next()){
+						result.add(Row.read(rs, columns));
 					}
-					rows = ps.executeUpdate();
-					conn.commit();
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
-				try {
-					if(conn != null){
-						conn.rollback();
-						rows = 0;
-					}
-				} catch (SQLException e1) {
-					e1.printStackTrace();
-				}
+				setRollbackOnly();
 			} finally {
 				close(rs, ps, conn);
 			}
 		}
-		return rows;
+		return result;
 	}
-	
+
 	/**
-	 * 批量执行语句，默认开启事务
+	 * 流式查询，返回逐行读取的Row，用法同stream()
 	 * @author LaoMake
 	 * @since 1.0
 	 * @param sql
-	 * @return 受影响记录条数
+	 * @param paramters
+	 * @return
 	 */
-	public static int[] executeBatch(String sql, List<String[]> paramterList){
-		int[] result = null;
-		Connection conn = getConn();
-		if(conn != null){
-			PreparedStatement ps = null;
-			ResultSet rs = null;
-			try {
-				conn.setAutoCommit(false);
-				ps = conn.prepareStatement(sql);
-				if(ps != null){
-					for(String[] paramters : paramterList){
-						for(int i = 0; i < paramters.length; i++){
-							ps.setString(i + 1, paramters[i]);
-						}
-						ps.addBatch(); 
-					}
-					result = ps.executeBatch();
-					conn.commit();
+	public static Stream<Row> streamRows(String sql, String... paramters){
+		return streamRows(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 流式查询，返回逐行读取的Row，用法同stream()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public static Stream<Row> streamRows(String sql, Params params){
+		return stream(sql, Row.mapper(), params);
+	}
+
+	/**
+	 * 读取所有列名
+	 */
+	private static String[] getColumnNames(ResultSetMetaData rsmd) throws SQLException {
+		String[] names = new String[rsmd.getColumnCount()];
+		for(int i = 0; i < names.length; i++){
+			names[i] = rsmd.getColumnName(i + 1);
+		}
+		return names;
+	}
+
+	/**
+	 * 将当前行转换为Map，预先分配容量
+	 */
+	private static Map<String, Object> toMap(ResultSet rs, String[] names) throws SQLException {
+		Map<String, Object> map = new LinkedHashMap<String, Object>(names.length * 4 / 3 + 1);
+		for(int i = 0; i < names.length; i++){
+			map.put(names[i], rs.getObject(i + 1));
+		}
+		return map;
+	}
+
+	/**
+	 * 流式查询，逐行回调，结果不在内存中累积，内存占用与行数无关
+	 * MySQL、MariaDB使用逐行读取的结果集（fetchSize = Integer.MIN_VALUE），回调期间该连接不能执行其他语句
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param callback	逐行回调
+	 * @param paramters
+	 * @return 处理的行数，查询失败时返回-1
+	 */
+	public static long queryEach(String sql, RowCallback callback, String... paramters){
+		return queryEach(sql, callback, Params.of(paramters));
+	}
+
+	/**
+	 * 流式查询，逐行回调，结果不在内存中累积，内存占用与行数无关
+	 * MySQL、MariaDB使用逐行读取的结果集（fetchSize = Integer.MIN_VALUE），回调期间该连接不能执行其他语句
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param callback	逐行回调
+	 * @param params	参数，按类型绑定
+	 * @return 处理的行数，查询失败时返回-1
+	 */
+	public static long queryEach(String sql, RowCallback callback, Params params){
+		long rows = 0;
+		Connection conn = getConn();
+		if(conn == null)
+			return -1;
+
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			ps = prepareStreaming(conn, sql, params);
+			rs = ps.executeQuery();
+			while(rs.next()){
+				callback.handle(rs);
+				rows++;
+			}
+		} catch (Exception e) {
+			log.error("【JdbcUtils】流式查询失败：已处理{}行\nsql：{}\nparameters：{}", rows, sql, params);
+			e.printStackTrace();
+			setRollbackOnly();
+			rows = -1;
+		} finally {
+			close(rs, ps, conn);
+		}
+		return rows;
+	}
+
+	/**
+	 * 流式查询，返回逐行读取的Stream，须使用try-with-resources关闭以归还连接；读取完最后一行时自动释放资源
+	 * 查询或转换失败时抛出IllegalStateException
+	 * 注意：MySQL驱动在提前关闭时会读完剩余的行
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param mapper	行转换
+	 * @param paramters
+	 * @return
+	 */
+	public static <T> Stream<T> stream(String sql, RowMapper<T> mapper, String... paramters){
+		return stream(sql, mapper, Params.of(paramters));
+	}
+
+	/**
+	 * 流式查询，返回逐行读取的Stream，须使用try-with-resources关闭以归还连接；读取完最后一行时自动释放资源
+	 * 查询或转换失败时抛出IllegalStateException
+	 * 注意：MySQL驱动在提前关闭时会读完剩余的行
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param mapper	行转换
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public static <T> Stream<T> stream(String sql, RowMapper<T> mapper, Params params){
+		Connection conn = getConn();
+		if(conn == null)
+			throw new IllegalStateException("获取连接失败：" + sql);
+
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			ps = prepareStreaming(conn, sql, params);
+			rs = ps.executeQuery();
+		} catch (SQLException e) {
+			close(rs, ps, conn);
+			setRollbackOnly();
+			throw new IllegalStateException("查询失败：" + sql + "，参数：" + params, e);
+		}
+
+		StreamingCursor<T> cursor = new StreamingCursor<T>(rs, ps, conn, mapper, sql);
+		return StreamSupport.stream(cursor, false).onClose(cursor::close);
+	}
+
+	/**
+	 * 创建流式查询的语句
+	 */
+	private static PreparedStatement prepareStreaming(Connection conn, String sql, Params params) throws SQLException {
+		PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		try {
+			ps.setFetchSize(DB_TYPE == DbType.MySQL || DB_TYPE == DbType.MariaDB ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+			params.bind(ps);
+			return ps;
+		} catch (SQLException e) {
+			close(ps);
+			throw e;
+		}
+	}
+
+	/**
+	 * 流式查询的游标，持有连接直到读取完毕或关闭
+	 */
+	private static class StreamingCursor<T> extends Spliterators.AbstractSpliterator<T> {
+
+		private final ResultSet rs;
+
+		private final PreparedStatement ps;
+
+		private final Connection conn;
+
+		private final RowMapper<T> mapper;
+
+		private final String sql;
+
+		private boolean closed = false;
+
+		StreamingCursor(ResultSet rs, PreparedStatement ps, Connection conn, RowMapper<T> mapper, String sql) {
+			super(Long.MAX_VALUE, ORDERED);
+			this.rs = rs;
+			this.ps = ps;
+			this.conn = conn;
+			this.mapper = mapper;
+			this.sql = sql;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if(closed)
+				return false;
+			try {
+				if(!rs.next()){
+					close();
+					return false;
+				}
+				action.accept(mapper.map(rs));
+				return true;
+			} catch (SQLException e) {
+				close();
+				setRollbackOnly();
+				throw new IllegalStateException("读取查询结果失败：" + sql, e);
+			} catch (RuntimeException | Error e) {
+				// 映射或消费结果时出错，流式结果集未读完前连接不可用，须立即释放
+				close();
+				throw e;
+			}
+		}
+
+		void close() {
+			if(!closed){
+				closed = true;
+				JdbcUtils.close(rs, ps, conn);
+			}
+		}
+	}
+
+	/**
+	 * 插入记录，返回主键值
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return	主键值
+	 */
+	public static Object insert(String sql, String... paramters){
+		return insert(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 插入记录，返回主键值
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return	主键值
+	 */
+	public static Object insert(String sql, Params params){
+		Object pk = null;
+		Connection conn = getConn();
+		if(conn != null){
+			PreparedStatement ps = null;
+			ResultSet rs = null;
+			try {
+				conn.setAutoCommit(false);
+				ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+				if(ps != null){
+					params.bind(ps);
+					ps.executeUpdate();
+					conn.commit();
+					
+					rs = ps.getGeneratedKeys();
+					while(rs.next()){
+						pk = rs.getObject(1);
+					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
 				try {
 					if(conn != null){
 						conn.rollback();
-						result = null;
+						pk = null;
 					}
 				} catch (SQLException e1) {
 					e1.printStackTrace();
@@ -697,6 +1215,955 @@ public class JdbcUtils {
 				close(rs, ps, conn);
 			}
 		}
-		return result;
+		return pk;
+	}
+	
+	/**
+	 * 执行语句，默认开启事务
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return 受影响记录条数
+	 */
+	public static int execute(String sql, String... paramters){
+		return execute(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行语句，默认开启事务
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return 受影响记录条数
+	 */
+	public static int execute(String sql, Params params){
+		int rows = 0;
+		Connection conn = getConn();
+		if(conn != null){
+			PreparedStatement ps = null;
+			ResultSet rs = null;
+			try {
+				conn.setAutoCommit(false);
+				
+				ps = conn.prepareStatement(sql);
+				if(ps != null){
+					params.bind(ps);
+					rows = ps.executeUpdate();
+					conn.commit();
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+				try {
+					if(conn != null){
+						conn.rollback();
+						rows = 0;
+					}
+				} catch (SQLException e1) {
+					e1.printStackTrace();
+				}
+			} finally {
+				close(rs, ps, conn);
+			}
+		}
+		return rows;
+	}
+	
+	/**
+	 * 在事务中执行：回调中调用的JdbcUtils方法（同一线程）共用一个连接，回调结束后提交一次
+	 * 回调抛出异常，或其中任一语句（包括查询）执行出错（该方法返回null、0或失败结果）时，整个事务回滚
+	 * 事务可嵌套，内层加入外层的事务；异步方法在其他线程执行，不加入当前事务
+	 * 分批执行的方法在事务中不会每批提交（commitPerChunk按false处理），任一批失败时停止执行，整个事务回滚
+	 * 用法：JdbcUtils.transaction(() -> { JdbcUtils.execute(sql1, ...); return JdbcUtils.insert(sql2, ...); })
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param callback
+	 * @return 回调的返回值
+	 * @throws IllegalStateException 获取连接失败、语句执行失败或提交失败时，事务已回滚
+	 */
+	public static <T> T transaction(TransactionCallback<T> callback){
+		Transaction current = TRANSACTION.get();
+		if(current != null)
+			return current.join(callback);
+
+		Connection conn = getConn();
+		if(conn == null)
+			throw new IllegalStateException("获取连接失败");
+
+		Transaction transaction = new Transaction(conn);
+		TRANSACTION.set(transaction);
+		try {
+			conn.setAutoCommit(false);
+			T result = transaction.join(callback);
+			if(transaction.rollbackOnly)
+				throw new IllegalStateException("事务中有语句执行失败");
+			conn.commit();
+			return result;
+		} catch (SQLException e) {
+			rollback(conn);
+			throw new IllegalStateException("事务执行失败：" + e.getMessage(), e);
+		} catch (RuntimeException | Error e) {
+			rollback(conn);
+			log.error("【JdbcUtils】事务已回滚：{}", e.getMessage());
+			throw e;
+		} finally {
+			TRANSACTION.remove();
+			close(conn);
+		}
+	}
+
+	/**
+	 * 当前线程是否在事务中
+	 * @author LaoMake
+	 * @since 1.0
+	 * @return
+	 */
+	public static boolean inTransaction(){
+		return TRANSACTION.get() != null;
+	}
+
+	/**
+	 * 在事务中时将事务标记为只能回滚，查询等不回滚的方法失败时调用，使事务按失败处理
+	 */
+	private static void setRollbackOnly(){
+		Transaction transaction = TRANSACTION.get();
+		if(transaction != null)
+			transaction.rollbackOnly = true;
+	}
+
+	/**
+	 * 事务：持有借出的连接，借给事务中的各个方法的是其代理
+	 * 代理的close()、commit()、setAutoCommit()不生效，rollback()将事务标记为只能回滚，由transaction()统一提交或回滚
+	 */
+	private static class Transaction implements InvocationHandler {
+
+		/** 借出的连接 */
+		private final Connection conn;
+
+		/** 借给事务中各个方法的代理 */
+		private final Connection handle;
+
+		/** 是否只能回滚 */
+		private volatile boolean rollbackOnly = false;
+
+		Transaction(Connection conn) {
+			this.conn = conn;
+			this.handle = (Connection) Proxy.newProxyInstance(JdbcUtils.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+		}
+
+		/**
+		 * 在事务中执行回调，SQLException包装为IllegalStateException
+		 */
+		<T> T join(TransactionCallback<T> callback) {
+			try {
+				return callback.doInTransaction();
+			} catch (SQLException e) {
+				rollbackOnly = true;
+				throw new IllegalStateException("事务执行失败：" + e.getMessage(), e);
+			} catch (RuntimeException | Error e) {
+				rollbackOnly = true;
+				throw e;
+			}
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()){
+				case "close":
+				case "commit":
+				case "setAutoCommit":
+					return null;
+				case "rollback":
+					if(args == null){
+						rollbackOnly = true;
+						return null;
+					}
+					break;
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				default:
+			}
+			try {
+				return method.invoke(conn, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	/**
+	 * 异步执行，任务在异步线程池中执行，并发数默认不超过连接池的最大连接数（见setAsyncConfig()）
+	 * 同步方法在失败时返回null（或0、-1），异步执行时结果相同；任务抛出的异常使返回的CompletableFuture异常完成
+	 * 用法：JdbcUtils.async(() -> JdbcUtils.queryLong(sql, params))
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param task
+	 * @return
+	 */
+	public static <T> CompletableFuture<T> async(Supplier<T> task){
+		return CompletableFuture.supplyAsync(task, getAsyncExecutor());
+	}
+
+	/**
+	 * 异步执行queryMap()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public static CompletableFuture<Map<String, Object>> queryMapAsync(String sql, String... paramters){
+		return queryMapAsync(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 异步执行queryMap()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定，提交后不要再修改
+	 * @return
+	 */
+	public static CompletableFuture<Map<String, Object>> queryMapAsync(String sql, Params params){
+		return async(() -> queryMap(sql, params));
+	}
+
+	/**
+	 * 异步执行queryMaps()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public static CompletableFuture<List<Map<String, Object>>> queryMapsAsync(String sql, String... paramters){
+		return queryMapsAsync(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 异步执行queryMaps()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定，提交后不要再修改
+	 * @return
+	 */
+	public static CompletableFuture<List<Map<String, Object>>> queryMapsAsync(String sql, Params params){
+		return async(() -> queryMaps(sql, params));
+	}
+
+	/**
+	 * 异步执行queryRow()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public static CompletableFuture<Row> queryRowAsync(String sql, String... paramters){
+		return queryRowAsync(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 异步执行queryRow()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定，提交后不要再修改
+	 * @return
+	 */
+	public static CompletableFuture<Row> queryRowAsync(String sql, Params params){
+		return async(() -> queryRow(sql, params));
+	}
+
+	/**
+	 * 异步执行queryRows()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public static CompletableFuture<List<Row>> queryRowsAsync(String sql, String... paramters){
+		return queryRowsAsync(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 异步执行queryRows()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定，提交后不要再修改
+	 * @return
+	 */
+	public static CompletableFuture<List<Row>> queryRowsAsync(String sql, Params params){
+		return async(() -> queryRows(sql, params));
+	}
+
+	/**
+	 * 异步执行insert()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public static CompletableFuture<Object> insertAsync(String sql, String... paramters){
+		return insertAsync(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 异步执行insert()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定，提交后不要再修改
+	 * @return
+	 */
+	public static CompletableFuture<Object> insertAsync(String sql, Params params){
+		return async(() -> insert(sql, params));
+	}
+
+	/**
+	 * 异步执行execute()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public static CompletableFuture<Integer> executeAsync(String sql, String... paramters){
+		return executeAsync(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 异步执行execute()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定，提交后不要再修改
+	 * @return
+	 */
+	public static CompletableFuture<Integer> executeAsync(String sql, Params params){
+		return async(() -> execute(sql, params));
+	}
+
+	/**
+	 * 获取异步线程池，首次调用时创建
+	 */
+	private static synchronized AsyncExecutor getAsyncExecutor(){
+		if(asyncExecutor == null){
+			int maxConcurrency = ASYNC_MAX_CONCURRENCY > 0 ? ASYNC_MAX_CONCURRENCY : POOL_MAX_SIZE;
+			asyncExecutor = AsyncExecutor.create(maxConcurrency, ASYNC_VIRTUAL_THREADS);
+			log.info("【JdbcUtils】异步执行：{}，最大并发数{}", asyncExecutor.isVirtual() ? "虚拟线程" : "线程池", maxConcurrency);
+		}
+		return asyncExecutor;
+	}
+
+	/**
+	 * 异步线程池：支持虚拟线程时（Java 21+）每个任务一个虚拟线程，由信号量限制并发数；否则使用固定大小的线程池
+	 * 并发数默认与连接池的最大连接数相同，异步任务本身不会多于连接数；同步调用及transaction()共用连接池，连接被占用时异步任务仍会等待，超过借出连接的最长等待时间时失败
+	 */
+	private static class AsyncExecutor implements Executor {
+
+		private final ExecutorService delegate;
+
+		/** 使用虚拟线程时限制并发数，否则为null */
+		private final Semaphore permits;
+
+		private AsyncExecutor(ExecutorService delegate, Semaphore permits) {
+			this.delegate = delegate;
+			this.permits = permits;
+		}
+
+		static AsyncExecutor create(int maxConcurrency, boolean virtualThreads) {
+			ExecutorService virtual = virtualThreads ? newVirtualThreadExecutor() : null;
+			if(virtual != null)
+				return new AsyncExecutor(virtual, new Semaphore(maxConcurrency));
+
+			AtomicInteger sequence = new AtomicInteger();
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), r -> {
+				Thread thread = new Thread(r, "jdbc-async-" + sequence.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.allowCoreThreadTimeOut(true);
+			return new AsyncExecutor(executor, null);
+		}
+
+		/**
+		 * 创建虚拟线程池，运行环境不支持时返回null
+		 */
+		private static ExecutorService newVirtualThreadExecutor() {
+			try {
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				return null;
+			}
+		}
+
+		boolean isVirtual() {
+			return permits != null;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			if(permits == null){
+				delegate.execute(command);
+				return;
+			}
+			delegate.execute(() -> {
+				permits.acquireUninterruptibly();
+				try {
+					command.run();
+				} finally {
+					permits.release();
+				}
+			});
+		}
+
+		/**
+		 * 不再接受新任务，等待已提交的任务完成
+		 */
+		void shutdown(long timeoutMillis) {
+			delegate.shutdown();
+			try {
+				if(!delegate.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS))
+					delegate.shutdownNow();
+			} catch (InterruptedException e) {
+				delegate.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * 批量插入，返回每行生成的主键，顺序与参数相同
+	 * 在同一个事务中分批执行，INSERT被改写为多行VALUES时每批一次往返，任一批失败时全部回滚
+	 * 生成的主键数须与行数相同，INSERT IGNORE、ON DUPLICATE KEY UPDATE等可能跳过行的语句不适用
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramterList
+	 * @return 主键值，失败时返回null
+	 */
+	public static List<Object> insertBatch(String sql, List<String[]> paramterList){
+		ObjectKeys keys = new ObjectKeys(paramterList.size());
+		BatchResult result = executeBatch(sql, paramterList, STRING_BINDER, BATCH_CHUNK_SIZE, false, null, null, keys);
+		return result.isSuccess() ? keys.keys : null;
+	}
+
+	/**
+	 * 批量插入，返回每行生成的自增主键，顺序与参数相同，用法同insertBatch()
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramterList
+	 * @return 主键值，失败时返回null
+	 */
+	public static long[] insertBatchLong(String sql, List<String[]> paramterList){
+		LongKeys keys = new LongKeys(paramterList.size());
+		BatchResult result = executeBatch(sql, paramterList, STRING_BINDER, BATCH_CHUNK_SIZE, false, null, null, keys);
+		return result.isSuccess() ? Arrays.copyOf(keys.keys, keys.size) : null;
+	}
+
+	/**
+	 * 批量执行语句，在同一个事务中分批执行，任一批失败时全部回滚
+	 * 以JDBC批处理执行，不改写为多行VALUES，返回驱动报告的每行受影响记录数；需要多行VALUES时使用返回BatchResult的方法
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @return 每行的受影响记录条数，失败时返回null
+	 */
+	public static int[] executeBatch(String sql, List<String[]> paramterList){
+		int[] counts = new int[paramterList.size()];
+		BatchResult result = executeBatch(sql, paramterList, STRING_BINDER, BATCH_CHUNK_SIZE, false, null, counts, null);
+		return result.isSuccess() ? counts : null;
+	}
+
+	/**
+	 * 分批执行语句，参数逐批读取，不必全部放在内存中
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramterList	每行的参数
+	 * @param commitPerChunk	true：每批提交一次，失败的批回滚后继续执行下一批；false：在同一个事务中执行，任一批失败时全部回滚并停止；在事务中（见transaction()）时总是按false执行
+	 * @param progress	每批结束后回调，可为null
+	 * @return 执行结果，失败的批见BatchResult.getFailures()
+	 */
+	public static BatchResult executeBatch(String sql, Iterable<String[]> paramterList, boolean commitPerChunk, BatchProgress progress){
+		return executeBatch(sql, paramterList, STRING_BINDER, BATCH_CHUNK_SIZE, commitPerChunk, progress, null, null);
+	}
+
+	/**
+	 * 分批执行语句，参数逐批读取，不必全部放在内存中
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramterList	每行的参数
+	 * @param chunkSize	每批的行数
+	 * @param commitPerChunk	true：每批提交一次，失败的批回滚后继续执行下一批；false：在同一个事务中执行，任一批失败时全部回滚并停止；在事务中（见transaction()）时总是按false执行
+	 * @param progress	每批结束后回调，可为null
+	 * @return 执行结果，失败的批见BatchResult.getFailures()
+	 */
+	public static BatchResult executeBatch(String sql, Iterable<String[]> paramterList, int chunkSize, boolean commitPerChunk, BatchProgress progress){
+		return executeBatch(sql, paramterList, STRING_BINDER, chunkSize, commitPerChunk, progress, null, null);
+	}
+
+	/**
+	 * 批量插入，参数按类型绑定，用法同insertBatch()
+	 * 每行须是单独的Params实例，同一批中不能重复使用（reset()）同一实例
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramsList	每行的参数
+	 * @return 主键值，失败时返回null
+	 */
+	public static List<Object> insertBatchTyped(String sql, List<Params> paramsList){
+		ObjectKeys keys = new ObjectKeys(paramsList.size());
+		BatchResult result = executeBatch(sql, paramsList, PARAMS_BINDER, BATCH_CHUNK_SIZE, false, null, null, keys);
+		return result.isSuccess() ? keys.keys : null;
+	}
+
+	/**
+	 * 批量插入，参数按类型绑定，用法同insertBatchLong()
+	 * 每行须是单独的Params实例，同一批中不能重复使用（reset()）同一实例
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramsList	每行的参数
+	 * @return 主键值，失败时返回null
+	 */
+	public static long[] insertBatchLongTyped(String sql, List<Params> paramsList){
+		LongKeys keys = new LongKeys(paramsList.size());
+		BatchResult result = executeBatch(sql, paramsList, PARAMS_BINDER, BATCH_CHUNK_SIZE, false, null, null, keys);
+		return result.isSuccess() ? Arrays.copyOf(keys.keys, keys.size) : null;
+	}
+
+	/**
+	 * 批量执行语句，参数按类型绑定，用法同executeBatch(String, List)
+	 * 每行须是单独的Params实例，同一批中不能重复使用（reset()）同一实例
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramsList	每行的参数
+	 * @return 每行的受影响记录条数，失败时返回null
+	 */
+	public static int[] executeBatchTyped(String sql, List<Params> paramsList){
+		int[] counts = new int[paramsList.size()];
+		BatchResult result = executeBatch(sql, paramsList, PARAMS_BINDER, BATCH_CHUNK_SIZE, false, null, counts, null);
+		return result.isSuccess() ? counts : null;
+	}
+
+	/**
+	 * 分批执行语句，参数按类型绑定，用法同executeBatch(String, Iterable, boolean, BatchProgress)
+	 * 每行须是单独的Params实例，同一批中不能重复使用（reset()）同一实例
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramsList	每行的参数
+	 * @param commitPerChunk	true：每批提交一次，失败的批回滚后继续执行下一批；false：在同一个事务中执行，任一批失败时全部回滚并停止；在事务中（见transaction()）时总是按false执行
+	 * @param progress	每批结束后回调，可为null
+	 * @return 执行结果，失败的批见BatchResult.getFailures()
+	 */
+	public static BatchResult executeBatchTyped(String sql, Iterable<Params> paramsList, boolean commitPerChunk, BatchProgress progress){
+		return executeBatch(sql, paramsList, PARAMS_BINDER, BATCH_CHUNK_SIZE, commitPerChunk, progress, null, null);
+	}
+
+	/**
+	 * 分批执行语句，参数按类型绑定，用法同executeBatch(String, Iterable, int, boolean, BatchProgress)
+	 * 每行须是单独的Params实例，同一批中不能重复使用（reset()）同一实例
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramsList	每行的参数
+	 * @param chunkSize	每批的行数
+	 * @param commitPerChunk	true：每批提交一次，失败的批回滚后继续执行下一批；false：在同一个事务中执行，任一批失败时全部回滚并停止；在事务中（见transaction()）时总是按false执行
+	 * @param progress	每批结束后回调，可为null
+	 * @return 执行结果，失败的批见BatchResult.getFailures()
+	 */
+	public static BatchResult executeBatchTyped(String sql, Iterable<Params> paramsList, int chunkSize, boolean commitPerChunk, BatchProgress progress){
+		return executeBatch(sql, paramsList, PARAMS_BINDER, chunkSize, commitPerChunk, progress, null, null);
+	}
+
+	/**
+	 * 将一行参数绑定到语句
+	 * @param <T>	一行参数的类型
+	 */
+	private static interface RowBinder<T> {
+		/**
+		 * 参数个数
+		 */
+		int size(T row);
+
+		/**
+		 * 绑定到第offset + 1个起的占位符
+		 */
+		void bind(PreparedStatement ps, T row, int offset) throws SQLException;
+	}
+
+	/** 字符串参数，按setString绑定 */
+	private static final RowBinder<String[]> STRING_BINDER = new RowBinder<String[]>() {
+		@Override
+		public int size(String[] row) {
+			return row.length;
+		}
+
+		@Override
+		public void bind(PreparedStatement ps, String[] row, int offset) throws SQLException {
+			for(int i = 0; i < row.length; i++){
+				ps.setString(offset + i + 1, row[i]);
+			}
+		}
+	};
+
+	/** 类型化参数，按类型绑定 */
+	private static final RowBinder<Params> PARAMS_BINDER = new RowBinder<Params>() {
+		@Override
+		public int size(Params row) {
+			return row.size();
+		}
+
+		@Override
+		public void bind(PreparedStatement ps, Params row, int offset) throws SQLException {
+			row.bind(ps, offset);
+		}
+	};
+
+	/**
+	 * 分批执行
+	 * @param counts	每行的受影响记录条数，不需要时为null；需要时不改写为多行VALUES，改写后无法得到每行的记录数
+	 * @param keys	生成的主键，不需要时为null
+	 */
+	private static <T> BatchResult executeBatch(String sql, Iterable<T> paramterList, RowBinder<T> binder, int chunkSize, boolean commitPerChunk, BatchProgress progress, int[] counts, GeneratedKeys keys){
+		if(chunkSize <= 0)
+			throw new IllegalArgumentException("每批的行数必须大于0：" + chunkSize);
+		if(commitPerChunk && inTransaction()){
+			// 事务的连接不能分批提交，按单个事务执行：任一批失败时停止，由事务统一回滚
+			log.warn("【JdbcUtils】在事务中不能每批提交，按单个事务执行\nsql：{}", sql);
+			commitPerChunk = false;
+		}
+		BatchResult result = new BatchResult();
+		MultiValues multiValues = BATCH_REWRITE && counts == null ? MultiValues.parse(sql) : null;
+		Connection conn = getConn();
+		if(conn == null){
+			result.chunkFailed(0, 0, new SQLException("获取连接失败"));
+			result.finish();
+			return result;
+		}
+
+		List<T> chunk = new ArrayList<T>(Math.min(chunkSize, 4096));
+		long firstRow = 0;
+		try {
+			conn.setAutoCommit(false);
+			Iterator<T> iterator = paramterList.iterator();
+			while(iterator.hasNext()){
+				chunk.add(iterator.next());
+				if(chunk.size() < chunkSize && iterator.hasNext())
+					continue;
+
+				try {
+					int keyCount = keys == null ? 0 : keys.size();
+					long affected = multiValues != null ? multiValues.execute(conn, chunk, binder, keys, firstRow) : executeChunk(conn, sql, chunk, binder, counts, keys, firstRow);
+					if(keys != null && keys.size() - keyCount != chunk.size())
+						throw new SQLException("生成的主键数（" + (keys.size() - keyCount) + "）与行数（" + chunk.size() + "）不符，无法对应");
+					if(commitPerChunk)
+						conn.commit();
+					result.chunkDone(chunk.size(), affected, commitPerChunk);
+				} catch (SQLException e) {
+					rollback(conn);
+					result.chunkFailed(firstRow, chunk.size(), e);
+					log.error("【JdbcUtils】批量执行失败：第{}~{}行，{}\nsql：{}", firstRow, firstRow + chunk.size() - 1, e.getMessage(), sql);
+					if(!commitPerChunk){
+						result.rollbackAll();
+						break;
+					}
+				}
+				firstRow += chunk.size();
+				chunk.clear();
+				if(progress != null)
+					progress.update(result);
+			}
+
+			if(!commitPerChunk && result.isSuccess()){
+				conn.commit();
+				result.commitAll();
+			}
+		} catch (SQLException e) {
+			rollback(conn);
+			result.chunkFailed(firstRow, chunk.size(), e);
+			if(!commitPerChunk)
+				result.rollbackAll();
+			log.error("【JdbcUtils】批量执行失败：{}\nsql：{}", e.getMessage(), sql);
+		} catch (RuntimeException e) {
+			// 读取参数或进度回调失败，未提交的部分回滚
+			rollback(conn);
+			throw e;
+		} finally {
+			result.finish();
+			close(conn);
+		}
+		return result;
+	}
+
+	/**
+	 * 以JDBC批处理执行一批
+	 * @return 受影响记录条数
+	 */
+	private static <T> long executeChunk(Connection conn, String sql, List<T> chunk, RowBinder<T> binder, int[] counts, GeneratedKeys keys, long firstRow) throws SQLException {
+		PreparedStatement ps = keys == null ? conn.prepareStatement(sql) : conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+		try {
+			for(T paramters : chunk){
+				binder.bind(ps, paramters, 0);
+				ps.addBatch();
+			}
+			int[] result = ps.executeBatch();
+			long affected = 0;
+			for(int count : result){
+				if(count > 0)
+					affected += count;
+			}
+			if(counts != null)
+				System.arraycopy(result, 0, counts, (int) firstRow, Math.min(result.length, chunk.size()));
+			if(keys != null)
+				keys.read(ps);
+			return affected;
+		} finally {
+			close(ps);
+		}
+	}
+
+	private static void rollback(Connection conn) {
+		try {
+			conn.rollback();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * 批量插入时收集生成的主键
+	 */
+	private static interface GeneratedKeys {
+		/**
+		 * 读取语句生成的所有主键
+		 */
+		void read(Statement stmt) throws SQLException;
+
+		/**
+		 * 已收集的主键数
+		 */
+		int size();
+	}
+
+	/**
+	 * 以驱动返回的类型收集主键
+	 */
+	private static class ObjectKeys implements GeneratedKeys {
+
+		private final List<Object> keys;
+
+		ObjectKeys(int capacity) {
+			this.keys = new ArrayList<Object>(capacity);
+		}
+
+		@Override
+		public void read(Statement stmt) throws SQLException {
+			try (ResultSet rs = stmt.getGeneratedKeys()) {
+				while(rs.next()){
+					keys.add(rs.getObject(1));
+				}
+			}
+		}
+
+		@Override
+		public int size() {
+			return keys.size();
+		}
+	}
+
+	/**
+	 * 以long收集自增主键，不装箱
+	 */
+	private static class LongKeys implements GeneratedKeys {
+
+		private long[] keys;
+
+		private int size;
+
+		LongKeys(int capacity) {
+			this.keys = new long[Math.max(capacity, 16)];
+		}
+
+		@Override
+		public void read(Statement stmt) throws SQLException {
+			try (ResultSet rs = stmt.getGeneratedKeys()) {
+				while(rs.next()){
+					if(size == keys.length)
+						keys = Arrays.copyOf(keys, size * 2);
+					keys[size++] = rs.getLong(1);
+				}
+			}
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * 改写为多行VALUES的INSERT、REPLACE语句：INSERT INTO t(a, b) VALUES (?, ?), (?, ?) ...
+	 * 一条语句插入多行，减少与数据库的往返次数；所有占位符都在VALUES中时才改写
+	 */
+	private static class MultiValues {
+
+		/** VALUES关键字 */
+		private static final Pattern VALUES = Pattern.compile("\\bVALUES?\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+		/** VALUES之后第一个左括号之前的部分 */
+		private final String prefix;
+
+		/** 一行的值，如：(?, ?) */
+		private final String tuple;
+
+		/** 值之后的部分，如：ON DUPLICATE KEY UPDATE ... */
+		private final String suffix;
+
+		/** 每行的参数个数 */
+		private final int paramCount;
+
+		/** 完整一批的语句，最后一批不足时另行生成 */
+		private String fullSql;
+
+		/** 完整一批的语句的行数 */
+		private int fullRows;
+
+		private MultiValues(String prefix, String tuple, String suffix, int paramCount) {
+			this.prefix = prefix;
+			this.tuple = tuple;
+			this.suffix = suffix;
+			this.paramCount = paramCount;
+		}
+
+		/**
+		 * 解析语句，不能改写时返回null
+		 */
+		static MultiValues parse(String sql) {
+			String trimmed = sql.trim();
+			if(!StringUtils.startsWithAny(trimmed.toUpperCase(Locale.ROOT), "INSERT", "REPLACE"))
+				return null;
+			Matcher matcher = VALUES.matcher(trimmed);
+			if(!matcher.find())
+				return null;
+			int open = matcher.end() - 1;
+			int close = findClose(trimmed, open);
+			if(close < 0)
+				return null;
+			String tuple = trimmed.substring(open, close + 1);
+			int paramCount = countPlaceholders(tuple);
+			if(paramCount == 0 || paramCount != countPlaceholders(trimmed))
+				return null;
+			return new MultiValues(trimmed.substring(0, open), tuple, trimmed.substring(close + 1), paramCount);
+		}
+
+		/**
+		 * 执行一批，每条语句的行数受占位符个数的上限限制
+		 * @return 受影响记录条数
+		 */
+		<T> long execute(Connection conn, List<T> chunk, RowBinder<T> binder, GeneratedKeys keys, long firstRow) throws SQLException {
+			int rowsPerStatement = Math.max(1, Math.min(chunk.size(), MAX_PLACEHOLDERS / paramCount));
+			long affected = 0;
+			for(int offset = 0; offset < chunk.size(); offset += rowsPerStatement){
+				int rows = Math.min(rowsPerStatement, chunk.size() - offset);
+				String rowsSql = getSql(rows);
+				PreparedStatement ps = keys == null ? conn.prepareStatement(rowsSql) : conn.prepareStatement(rowsSql, Statement.RETURN_GENERATED_KEYS);
+				try {
+					int index = 0;
+					for(int row = offset; row < offset + rows; row++){
+						T paramters = chunk.get(row);
+						int size = binder.size(paramters);
+						if(size != paramCount)
+							throw new SQLException("参数个数不符：第" + (firstRow + row) + "行有" + size + "个参数，应为" + paramCount + "个");
+						binder.bind(ps, paramters, index);
+						index += paramCount;
+					}
+					affected += ps.executeUpdate();
+					if(keys != null)
+						keys.read(ps);
+				} finally {
+					close(ps);
+				}
+			}
+			return affected;
+		}
+
+		/**
+		 * 生成插入指定行数的语句，第一次生成的（即完整一批的）被保留
+		 */
+		private String getSql(int rows) {
+			if(rows == fullRows)
+				return fullSql;
+			StringBuilder sb = new StringBuilder(prefix.length() + (tuple.length() + 1) * rows + suffix.length());
+			sb.append(prefix).append(tuple);
+			for(int i = 1; i < rows; i++){
+				sb.append(',').append(tuple);
+			}
+			sb.append(suffix);
+			if(fullSql == null){
+				fullSql = sb.toString();
+				fullRows = rows;
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * 查找与左括号匹配的右括号，跳过引号中的内容
+		 */
+		private static int findClose(String sql, int open) {
+			int depth = 0;
+			char quote = 0;
+			for(int i = open; i < sql.length(); i++){
+				char c = sql.charAt(i);
+				if(quote != 0){
+					if(c == '\\')
+						i++;
+					else if(c == quote)
+						quote = 0;
+				}else if(c == '\'' || c == '"' || c == '`'){
+					quote = c;
+				}else if(c == '('){
+					depth++;
+				}else if(c == ')' && --depth == 0){
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * 统计引号之外的占位符个数
+		 */
+		private static int countPlaceholders(String sql) {
+			int count = 0;
+			char quote = 0;
+			for(int i = 0; i < sql.length(); i++){
+				char c = sql.charAt(i);
+				if(quote != 0){
+					if(c == '\\')
+						i++;
+					else if(c == quote)
+						quote = 0;
+				}else if(c == '\'' || c == '"' || c == '`'){
+					quote = c;
+				}else if(c == '?'){
+					count++;
+				}
+			}
+			return count;
+		}
 	}
 }
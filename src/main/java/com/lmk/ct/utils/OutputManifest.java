@@ -0,0 +1,151 @@
+package com.lmk.ct.utils;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 代码输出清单
+ * 记录每个输出文件的路径及内容摘要：内容不变的文件不再写入，不再输出的文件被删除
+ * 可被多个输出线程同时使用
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class OutputManifest implements CodeOutput {
+
+	/** 日志记录器 */
+	private static Logger log = LoggerFactory.getLogger(OutputManifest.class);
+
+	/** 输出的根目录 */
+	private final Path rootFolder;
+
+	/** 清单文件 */
+	private final File manifestFile;
+
+	/** 上次输出的文件：相对路径 -> 摘要 */
+	private final Map<String, String> lastEntries;
+
+	/** 本次输出的文件：相对路径 -> 摘要 */
+	private final Map<String, String> entries = new ConcurrentHashMap<String, String>();
+
+	/** 写入的文件数 */
+	private final AtomicInteger writtenCount = new AtomicInteger();
+
+	/** 内容不变而跳过的文件数 */
+	private final AtomicInteger unchangedCount = new AtomicInteger();
+
+	/** 删除的文件数 */
+	private final AtomicInteger deletedCount = new AtomicInteger();
+
+	/**
+	 * 加载清单
+	 * @param rootFolder	输出的根目录
+	 * @param manifestFile	清单文件，不存在时视为首次输出
+	 */
+	public OutputManifest(String rootFolder, File manifestFile) {
+		this.rootFolder = new File(rootFolder).toPath().toAbsolutePath().normalize();
+		this.manifestFile = manifestFile;
+		this.lastEntries = new HashMap<String, String>();
+		if(manifestFile.exists()){
+			for(String line : FileUtils.readFileByLines(manifestFile)){
+				int index = line.lastIndexOf('=');
+				if(index > 0 && !line.startsWith("#"))
+					lastEntries.put(line.substring(0, index), line.substring(index + 1));
+			}
+		}
+	}
+
+	/**
+	 * 写入文件，内容与上次输出相同且文件未被改动时跳过
+	 * @param targetFile	目标文件
+	 * @param content	文件内容
+	 * @return 是否写入了文件
+	 */
+	@Override
+	public boolean write(String targetFile, byte[] content) {
+		String path = relativize(targetFile);
+		String digest = DigestUtils.sha1Hex(content);
+		entries.put(path, digest);
+
+		File file = new File(targetFile);
+		if(digest.equals(lastEntries.get(path)) && file.isFile() && file.length() == content.length){
+			unchangedCount.incrementAndGet();
+			return false;
+		}
+
+		FileUtils.writeToFile(content, file);
+		writtenCount.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * 保留上次输出的文件，用于本次未重新输出的文件
+	 * @param targetFile	目标文件
+	 */
+	@Override
+	public void keep(String targetFile) {
+		String path = relativize(targetFile);
+		String digest = lastEntries.get(path);
+		if(digest != null)
+			entries.put(path, digest);
+	}
+
+	/**
+	 * 删除上次输出、本次不再输出的文件，及随之变空的目录
+	 * @return 删除的文件数
+	 */
+	public int removeOrphans() {
+		int count = 0;
+		for(String path : lastEntries.keySet()){
+			if(!entries.containsKey(path)){
+				File file = rootFolder.resolve(path).toFile();
+				if(file.delete()){
+					count++;
+					File folder = file.getParentFile();
+					while(folder != null && !folder.toPath().equals(rootFolder) && folder.delete())
+						folder = folder.getParentFile();
+				}
+			}
+		}
+		deletedCount.addAndGet(count);
+		return count;
+	}
+
+	/**
+	 * 保存清单
+	 */
+	public void save() {
+		StringBuilder sb = new StringBuilder("# path=sha1\n");
+		for(Map.Entry<String, String> entry : new TreeMap<String, String>(entries).entrySet())
+			sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+		FileUtils.writeToFile(sb.toString(), manifestFile, false);
+		log.info("输出清单：写入{}个，未变化{}个，删除{}个", getWrittenCount(), getUnchangedCount(), getDeletedCount());
+	}
+
+	public int getWrittenCount() {
+		return writtenCount.get();
+	}
+
+	public int getUnchangedCount() {
+		return unchangedCount.get();
+	}
+
+	public int getDeletedCount() {
+		return deletedCount.get();
+	}
+
+	/**
+	 * 转换为相对于根目录的路径，统一使用"/"分隔
+	 * @param targetFile
+	 * @return
+	 */
+	private String relativize(String targetFile) {
+		Path path = new File(targetFile).toPath().toAbsolutePath().normalize();
+		return rootFolder.relativize(path).toString().replace(File.separatorChar, '/');
+	}
+}
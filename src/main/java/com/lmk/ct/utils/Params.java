@@ -0,0 +1,278 @@
+package com.lmk.ct.utils;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * 类型化的语句参数，按添加的顺序绑定到占位符
+ * 数值按原类型绑定（setLong、setInt、setDouble...），数据库不必将字符串转换为数值，数值列上的索引可正常使用
+ * 数值存放在基本类型的数组中，不装箱；同一实例可调用reset()后重复使用，不要在多个线程中共用
+ * 用法：JdbcUtils.queryLong("select count(*) from t where id > ? and name = ?", Params.of().add(100L).add("abc"))
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public final class Params {
+
+	/** 参数类型 */
+	private static final byte STRING = 0;
+	private static final byte LONG = 1;
+	private static final byte INT = 2;
+	private static final byte DOUBLE = 3;
+	private static final byte BOOLEAN = 4;
+	private static final byte BIG_DECIMAL = 5;
+	private static final byte TIMESTAMP = 6;
+	private static final byte DATE = 7;
+	private static final byte BYTES = 8;
+	private static final byte NULL = 9;
+
+	/** 参数个数 */
+	private int size;
+
+	/** 各参数的类型 */
+	private byte[] types;
+
+	/** 整数、布尔参数的值，NULL参数的SQL类型 */
+	private long[] longs;
+
+	/** 浮点数参数的值 */
+	private double[] doubles;
+
+	/** 其他参数的值 */
+	private Object[] objects;
+
+	private Params(int capacity) {
+		this.types = new byte[capacity];
+		this.longs = new long[capacity];
+		this.doubles = new double[capacity];
+		this.objects = new Object[capacity];
+	}
+
+	/**
+	 * 创建空的参数列表
+	 * @return
+	 */
+	public static Params of() {
+		return new Params(8);
+	}
+
+	/**
+	 * 将字符串参数转换为参数列表，与原有的String...参数的绑定方式相同
+	 * @param values
+	 * @return
+	 */
+	public static Params of(String... values) {
+		Params params = new Params(values.length);
+		for(String value : values){
+			params.add(value);
+		}
+		return params;
+	}
+
+	/**
+	 * 清空参数，以便重复使用
+	 * @return
+	 */
+	public Params reset() {
+		Arrays.fill(objects, 0, size, null);
+		size = 0;
+		return this;
+	}
+
+	/**
+	 * 参数个数
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	public Params add(String value) {
+		if(value == null)
+			return addNull(Types.VARCHAR);
+		int index = next(STRING);
+		objects[index] = value;
+		return this;
+	}
+
+	public Params add(long value) {
+		int index = next(LONG);
+		longs[index] = value;
+		return this;
+	}
+
+	public Params add(int value) {
+		int index = next(INT);
+		longs[index] = value;
+		return this;
+	}
+
+	public Params add(double value) {
+		int index = next(DOUBLE);
+		doubles[index] = value;
+		return this;
+	}
+
+	public Params add(boolean value) {
+		int index = next(BOOLEAN);
+		longs[index] = value ? 1 : 0;
+		return this;
+	}
+
+	public Params add(BigDecimal value) {
+		if(value == null)
+			return addNull(Types.DECIMAL);
+		int index = next(BIG_DECIMAL);
+		objects[index] = value;
+		return this;
+	}
+
+	/**
+	 * 日期时间，java.sql.Date按日期绑定，其他按时间戳绑定
+	 * @param value
+	 * @return
+	 */
+	public Params add(Date value) {
+		if(value == null)
+			return addNull(Types.TIMESTAMP);
+		if(value instanceof java.sql.Date){
+			int index = next(DATE);
+			objects[index] = value;
+		}else{
+			int index = next(TIMESTAMP);
+			objects[index] = value instanceof Timestamp ? value : new Timestamp(value.getTime());
+		}
+		return this;
+	}
+
+	public Params add(LocalDateTime value) {
+		if(value == null)
+			return addNull(Types.TIMESTAMP);
+		int index = next(TIMESTAMP);
+		objects[index] = Timestamp.valueOf(value);
+		return this;
+	}
+
+	public Params add(LocalDate value) {
+		if(value == null)
+			return addNull(Types.DATE);
+		int index = next(DATE);
+		objects[index] = java.sql.Date.valueOf(value);
+		return this;
+	}
+
+	public Params add(byte[] value) {
+		if(value == null)
+			return addNull(Types.VARBINARY);
+		int index = next(BYTES);
+		objects[index] = value;
+		return this;
+	}
+
+	/**
+	 * NULL值
+	 * @param sqlType	java.sql.Types中的类型
+	 * @return
+	 */
+	public Params addNull(int sqlType) {
+		int index = next(NULL);
+		longs[index] = sqlType;
+		return this;
+	}
+
+	/**
+	 * 按添加的顺序绑定到语句的占位符
+	 * @param ps
+	 * @throws SQLException
+	 */
+	public void bind(PreparedStatement ps) throws SQLException {
+		bind(ps, 0);
+	}
+
+	/**
+	 * 绑定到第offset + 1个起的占位符，用于一条语句插入多行（多行VALUES）
+	 * @param ps
+	 * @param offset	此前已绑定的占位符个数
+	 * @throws SQLException
+	 */
+	void bind(PreparedStatement ps, int offset) throws SQLException {
+		for(int i = 0; i < size; i++){
+			int index = offset + i + 1;
+			switch(types[i]){
+				case STRING: ps.setString(index, (String) objects[i]); break;
+				case LONG: ps.setLong(index, longs[i]); break;
+				case INT: ps.setInt(index, (int) longs[i]); break;
+				case DOUBLE: ps.setDouble(index, doubles[i]); break;
+				case BOOLEAN: ps.setBoolean(index, longs[i] != 0); break;
+				case BIG_DECIMAL: ps.setBigDecimal(index, (BigDecimal) objects[i]); break;
+				case TIMESTAMP: ps.setTimestamp(index, (Timestamp) objects[i]); break;
+				case DATE: ps.setDate(index, (java.sql.Date) objects[i]); break;
+				case BYTES: ps.setBytes(index, (byte[]) objects[i]); break;
+				default: ps.setNull(index, (int) longs[i]);
+			}
+		}
+	}
+
+	/**
+	 * 追加用作缓存键的描述，含参数的类型，类型不同的同值参数（如字符串"1"与数值1）不相同
+	 * @param sb
+	 * @return
+	 */
+	StringBuilder appendKey(StringBuilder sb) {
+		for(int i = 0; i < size; i++){
+			sb.append('\u0001').append(types[i]).append(':');
+			switch(types[i]){
+				case LONG: case INT: case BOOLEAN: case NULL: sb.append(longs[i]); break;
+				case DOUBLE: sb.append(doubles[i]); break;
+				case TIMESTAMP: case DATE: sb.append(((Date) objects[i]).getTime()); break;
+				case BYTES: sb.append(Arrays.toString((byte[]) objects[i])); break;
+				default: sb.append(objects[i]);
+			}
+		}
+		return sb;
+	}
+
+	/**
+	 * 用于日志输出
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for(int i = 0; i < size; i++){
+			if(i > 0)
+				sb.append(", ");
+			switch(types[i]){
+				case LONG: case INT: sb.append(longs[i]); break;
+				case DOUBLE: sb.append(doubles[i]); break;
+				case BOOLEAN: sb.append(longs[i] != 0); break;
+				case BYTES: sb.append("byte[").append(((byte[]) objects[i]).length).append(']'); break;
+				case NULL: sb.append("null"); break;
+				default: sb.append(objects[i]);
+			}
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * 占用下一个位置，容量不足时扩容；须先调用再取数组，扩容后数组已更换
+	 * @return 位置
+	 */
+	private int next(byte type) {
+		if(size == types.length){
+			int capacity = Math.max(8, size * 2);
+			types = Arrays.copyOf(types, capacity);
+			longs = Arrays.copyOf(longs, capacity);
+			doubles = Arrays.copyOf(doubles, capacity);
+			objects = Arrays.copyOf(objects, capacity);
+		}
+		types[size] = type;
+		return size++;
+	}
+}
@@ -0,0 +1,701 @@
+package com.lmk.ct.utils;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 查询结果缓存：按SQL及参数缓存JdbcUtils单值（String、Integer、Long、Float、Double、BigDecimal、Date）、Map查询的结果，适用于变化较少的字典、配置等数据
+ * 缓存项按写入时间过期（TTL），总权重超过上限时淘汰最近最少使用的项（LRU），权重为结果的单元格数
+ * 缓存项按SQL中FROM（包括逗号分隔的多个表）、JOIN之后的表名打上标签，修改表中数据后调用invalidate(表名)使相关的缓存项失效
+ * 注意：
+ * 1. 查询失败与没有结果都返回null，null不被缓存
+ * 2. 缓存的Map、List不可修改，Date返回副本
+ * 3. 在事务中（见JdbcUtils.transaction()）直接查询数据库，不读取也不写入缓存
+ * 4. 含子查询、派生表、WITH或表函数的语句无法可靠地确定用到的表，直接查询数据库，不被缓存
+ * 5. 权重超过最大权重的结果不被缓存
+ * 用法：QueryCache cache = new QueryCache(100000, 60000); cache.queryString("select name from sys_dict where code = ?", code);
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class QueryCache {
+
+	/** 结束FROM子句的关键字 */
+	private static final Set<String> CLAUSE_ENDS = new HashSet<String>(Arrays.asList(
+			"WHERE", "GROUP", "HAVING", "ORDER", "LIMIT", "UNION", "EXCEPT", "INTERSECT", "FOR", "LOCK", "WINDOW", "INTO", "PROCEDURE"));
+
+	/** 无法可靠地确定表名的SQL的标签 */
+	private static final String[] UNTAGGABLE = new String[0];
+
+	/** 最大权重 */
+	private final long maxWeight;
+
+	/** 缓存项的存活时间（毫秒） */
+	private final long ttlMillis;
+
+	/** 缓存项，按访问顺序排列 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(256, 0.75f, true);
+
+	/** 标签（表名） -> 缓存键 */
+	private final Map<String, Set<String>> tagIndex = new HashMap<String, Set<String>>();
+
+	/** SQL -> 标签，避免重复解析 */
+	private final Map<String, String[]> sqlTags = new HashMap<String, String[]>();
+
+	/** 当前总权重 */
+	private long weight;
+
+	/** 失效次数，查询期间有失效时结果不写入缓存 */
+	private final AtomicLong invalidations = new AtomicLong();
+
+	/** 统计：命中次数 */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** 统计：未命中次数 */
+	private final AtomicLong misses = new AtomicLong();
+
+	/** 统计：淘汰次数 */
+	private final AtomicLong evictions = new AtomicLong();
+
+	/** 统计：过期次数 */
+	private final AtomicLong expirations = new AtomicLong();
+
+	/**
+	 * 缓存项
+	 */
+	private static class Entry {
+
+		final Object value;
+
+		final long weight;
+
+		final long expireAt;
+
+		final String[] tags;
+
+		Entry(Object value, long weight, long expireAt, String[] tags) {
+			this.value = value;
+			this.weight = weight;
+			this.expireAt = expireAt;
+			this.tags = tags;
+		}
+	}
+
+	/**
+	 * 创建查询结果缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param maxWeight	最大权重，即缓存的单元格总数（单值为1，Map为列数，List为各行列数之和）
+	 * @param ttlMillis	缓存项的存活时间（毫秒）
+	 */
+	public QueryCache(long maxWeight, long ttlMillis) {
+		if(maxWeight <= 0 || ttlMillis <= 0)
+			throw new IllegalArgumentException("最大权重及存活时间必须大于0：" + maxWeight + "，" + ttlMillis);
+		this.maxWeight = maxWeight;
+		this.ttlMillis = ttlMillis;
+	}
+
+	/**
+	 * 执行查询，返回单个String，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public String queryString(String sql, String... paramters) {
+		return queryString(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个String，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public String queryString(String sql, Params params) {
+		return get("S", sql, params, () -> JdbcUtils.queryString(sql, params));
+	}
+
+	/**
+	 * 执行查询，返回单个Integer，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public Integer queryInt(String sql, String... paramters) {
+		return queryInt(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个Integer，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public Integer queryInt(String sql, Params params) {
+		return get("I", sql, params, () -> JdbcUtils.queryInt(sql, params));
+	}
+
+	/**
+	 * 执行查询，返回单个Long，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public Long queryLong(String sql, String... paramters) {
+		return queryLong(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个Long，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public Long queryLong(String sql, Params params) {
+		return get("L", sql, params, () -> JdbcUtils.queryLong(sql, params));
+	}
+
+	/**
+	 * 执行查询，返回单个Float，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public Float queryFloat(String sql, String... paramters) {
+		return queryFloat(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个Float，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public Float queryFloat(String sql, Params params) {
+		return get("F", sql, params, () -> JdbcUtils.queryFloat(sql, params));
+	}
+
+	/**
+	 * 执行查询，返回单个Double，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public Double queryDouble(String sql, String... paramters) {
+		return queryDouble(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个Double，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public Double queryDouble(String sql, Params params) {
+		return get("D", sql, params, () -> JdbcUtils.queryDouble(sql, params));
+	}
+
+	/**
+	 * 执行查询，返回单个BigDecimal，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public BigDecimal queryBigDecimal(String sql, String... paramters) {
+		return queryBigDecimal(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个BigDecimal，优先读取缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public BigDecimal queryBigDecimal(String sql, Params params) {
+		return get("B", sql, params, () -> JdbcUtils.queryBigDecimal(sql, params));
+	}
+
+	/**
+	 * 执行查询，返回单个Date，优先读取缓存，返回的是缓存值的副本
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public Date queryDate(String sql, String... paramters) {
+		return queryDate(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单个Date，优先读取缓存，返回的是缓存值的副本
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public Date queryDate(String sql, Params params) {
+		Date date = get("T", sql, params, () -> JdbcUtils.queryDate(sql, params));
+		return date == null ? null : new Date(date.getTime());
+	}
+
+	/**
+	 * 执行查询，返回单行，优先读取缓存，返回的Map不可修改
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public Map<String, Object> queryMap(String sql, String... paramters) {
+		return queryMap(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回单行，优先读取缓存，返回的Map不可修改
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public Map<String, Object> queryMap(String sql, Params params) {
+		return get("M", sql, params, () -> {
+			Map<String, Object> map = JdbcUtils.queryMap(sql, params);
+			return map == null ? null : Collections.unmodifiableMap(map);
+		});
+	}
+
+	/**
+	 * 执行查询，返回多行，优先读取缓存，返回的List及其中的Map不可修改；查询失败时返回空List，不被缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param paramters
+	 * @return
+	 */
+	public List<Map<String, Object>> queryMaps(String sql, String... paramters) {
+		return queryMaps(sql, Params.of(paramters));
+	}
+
+	/**
+	 * 执行查询，返回多行，优先读取缓存，返回的List及其中的Map不可修改；查询失败时返回空List，不被缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param sql
+	 * @param params	参数，按类型绑定
+	 * @return
+	 */
+	public List<Map<String, Object>> queryMaps(String sql, Params params) {
+		List<Map<String, Object>> maps = get("N", sql, params, () -> {
+			List<Map<String, Object>> list = JdbcUtils.queryMaps(sql, params);
+			if(list.isEmpty())
+				return null;
+			List<Map<String, Object>> result = new ArrayList<Map<String, Object>>(list.size());
+			for(Map<String, Object> map : list){
+				result.add(Collections.unmodifiableMap(map));
+			}
+			return Collections.unmodifiableList(result);
+		});
+		return maps == null ? Collections.<Map<String, Object>>emptyList() : maps;
+	}
+
+	/**
+	 * 使表的所有缓存项失效
+	 * @author LaoMake
+	 * @since 1.0
+	 * @param table	表名，不区分大小写，可带库名（如：db.t_user），不带库名时同名的表都失效
+	 */
+	public void invalidate(String table) {
+		invalidations.incrementAndGet();
+		String tag = normalize(table);
+		synchronized (this) {
+			for(Map.Entry<String, Set<String>> item : new ArrayList<Map.Entry<String, Set<String>>>(tagIndex.entrySet())){
+				String key = item.getKey();
+				if(key.equals(tag) || key.endsWith("." + tag)){
+					for(String cacheKey : new ArrayList<String>(item.getValue())){
+						remove(cacheKey);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 清空缓存
+	 * @author LaoMake
+	 * @since 1.0
+	 */
+	public void invalidateAll() {
+		invalidations.incrementAndGet();
+		synchronized (this) {
+			entries.clear();
+			tagIndex.clear();
+			weight = 0;
+		}
+	}
+
+	/**
+	 * 读取缓存，未命中时查询并写入
+	 * @param type	结果类型，同一SQL的不同查询方法不共用缓存项
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T get(String type, String sql, Params params, Supplier<T> loader) {
+		if(JdbcUtils.inTransaction())
+			return loader.get();
+
+		String[] tags;
+		synchronized (this) {
+			tags = getTags(sql);
+		}
+		if(tags == null){
+			// 无法确定用到的表，缓存项不能被及时失效
+			misses.incrementAndGet();
+			return loader.get();
+		}
+
+		String key = params.appendKey(new StringBuilder(sql.length() + 32).append(type).append('\u0001').append(sql)).toString();
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if(entry != null){
+				if(entry.expireAt > now){
+					hits.incrementAndGet();
+					return (T) entry.value;
+				}
+				expirations.incrementAndGet();
+				remove(key);
+			}
+		}
+
+		misses.incrementAndGet();
+		long version = invalidations.get();
+		T value = loader.get();
+		if(value != null){
+			synchronized (this) {
+				// 查询期间有失效时，结果可能已过时
+				if(version == invalidations.get())
+					put(key, new Entry(value, weigh(value), System.currentTimeMillis() + ttlMillis, tags));
+			}
+		}
+		return value;
+	}
+
+	private void put(String key, Entry entry) {
+		remove(key);
+		// 放入后将淘汰所有其他项，自身也仍超出上限
+		if(entry.weight > maxWeight)
+			return;
+		entries.put(key, entry);
+		weight += entry.weight;
+		for(String tag : entry.tags){
+			tagIndex.computeIfAbsent(tag, k -> new HashSet<String>()).add(key);
+		}
+
+		// 淘汰最近最少使用的项，过期的项一并清除
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while(weight > maxWeight && iterator.hasNext()){
+			Map.Entry<String, Entry> item = iterator.next();
+			if(item.getKey().equals(key))
+				continue;
+			if(item.getValue().expireAt <= now)
+				expirations.incrementAndGet();
+			else
+				evictions.incrementAndGet();
+			iterator.remove();
+			unlink(item.getKey(), item.getValue());
+		}
+	}
+
+	private void remove(String key) {
+		Entry entry = entries.remove(key);
+		if(entry != null)
+			unlink(key, entry);
+	}
+
+	/**
+	 * 从标签索引中移除，并扣除权重
+	 */
+	private void unlink(String key, Entry entry) {
+		weight -= entry.weight;
+		for(String tag : entry.tags){
+			Set<String> keys = tagIndex.get(tag);
+			if(keys != null){
+				keys.remove(key);
+				if(keys.isEmpty())
+					tagIndex.remove(tag);
+			}
+		}
+	}
+
+	/**
+	 * SQL中的表名
+	 * @return 无法可靠地确定表名时返回null
+	 */
+	private String[] getTags(String sql) {
+		String[] tags = sqlTags.get(sql);
+		if(tags == null){
+			tags = parseTags(sql);
+			if(tags == null)
+				tags = UNTAGGABLE;
+			if(sqlTags.size() < 4096)
+				sqlTags.put(sql, tags);
+		}
+		return tags == UNTAGGABLE ? null : tags;
+	}
+
+	/**
+	 * 解析SQL中FROM子句（逗号分隔的各表及JOIN的表）中的表名，跳过引号中的内容及注释
+	 * 括号中的FROM（如：EXTRACT(YEAR FROM d)）不是FROM子句
+	 * @return 有子查询、派生表、WITH或表函数时返回null
+	 */
+	static String[] parseTags(String sql) {
+		Set<String> tables = new LinkedHashSet<String>();
+		int length = sql.length();
+		int depth = 0;
+		boolean inFrom = false;
+		boolean expectTable = false;
+		boolean first = true;
+		int i = 0;
+		while(i < length){
+			char c = sql.charAt(i);
+			if(Character.isWhitespace(c)){
+				i++;
+				continue;
+			}
+			if(c == '#' || (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-')){
+				int end = sql.indexOf('\n', i);
+				i = end < 0 ? length : end + 1;
+				continue;
+			}
+			if(c == '/' && i + 1 < length && sql.charAt(i + 1) == '*'){
+				int end = sql.indexOf("*/", i + 2);
+				i = end < 0 ? length : end + 2;
+				continue;
+			}
+
+			if(c == '`' || isWordChar(c)){
+				int start = i;
+				i = skipIdentifier(sql, i);
+				if(expectTable){
+					// 表名，可带库名
+					while(i < length && sql.charAt(i) == '.' && i + 1 < length && (sql.charAt(i + 1) == '`' || isWordChar(sql.charAt(i + 1))))
+						i = skipIdentifier(sql, i + 1);
+					String table = normalize(sql.substring(start, i));
+					if(table.equals("lateral") || nextChar(sql, i) == '(')
+						return null;// 派生表或表函数，如：JSON_TABLE(...)
+					if(!table.equals("dual"))
+						tables.add(table);
+					expectTable = false;
+				}else if(c != '`'){
+					String word = sql.substring(start, i).toUpperCase(Locale.ROOT);
+					if(first && word.equals("WITH"))
+						return null;
+					if(word.equals("SELECT") && depth > 0)
+						return null;// 子查询
+					if(depth == 0){
+						if(word.equals("FROM")){
+							inFrom = true;
+							expectTable = true;
+						}else if(inFrom && (word.equals("JOIN") || word.equals("STRAIGHT_JOIN"))){
+							expectTable = true;
+						}else if(CLAUSE_ENDS.contains(word)){
+							inFrom = false;
+						}
+					}
+				}
+				first = false;
+				continue;
+			}
+
+			if(c == '\'' || c == '"'){
+				i = skipQuoted(sql, i);
+			}else if(c == '('){
+				if(expectTable)
+					return null;// 派生表
+				depth++;
+				i++;
+			}else if(c == ')'){
+				depth--;
+				i++;
+			}else{
+				if(c == ',' && inFrom && depth == 0)
+					expectTable = true;
+				i++;
+			}
+			first = false;
+		}
+		return tables.toArray(new String[0]);
+	}
+
+	/**
+	 * 跳过标识符，返回其后的位置
+	 */
+	private static int skipIdentifier(String sql, int i) {
+		if(sql.charAt(i) == '`'){
+			int end = sql.indexOf('`', i + 1);
+			return end < 0 ? sql.length() : end + 1;
+		}
+		while(i < sql.length() && isWordChar(sql.charAt(i)))
+			i++;
+		return i;
+	}
+
+	/**
+	 * 跳过引号中的内容，返回其后的位置
+	 */
+	private static int skipQuoted(String sql, int i) {
+		char quote = sql.charAt(i);
+		for(i++; i < sql.length(); i++){
+			char c = sql.charAt(i);
+			if(c == '\\')
+				i++;
+			else if(c == quote)
+				return i + 1;
+		}
+		return sql.length();
+	}
+
+	/**
+	 * 下一个非空白字符，没有时返回0
+	 */
+	private static char nextChar(String sql, int i) {
+		while(i < sql.length() && Character.isWhitespace(sql.charAt(i)))
+			i++;
+		return i < sql.length() ? sql.charAt(i) : 0;
+	}
+
+	private static boolean isWordChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+
+	private static String normalize(String table) {
+		return table.replace("`", "").trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * 结果的权重：单元格数
+	 */
+	private static long weigh(Object value) {
+		if(value instanceof Map)
+			return Math.max(1, ((Map<?, ?>) value).size());
+		if(value instanceof Collection){
+			long total = 0;
+			for(Object item : (Collection<?>) value){
+				total += weigh(item);
+			}
+			return Math.max(1, total);
+		}
+		return 1;
+	}
+
+	/**
+	 * 命中次数
+	 * @author LaoMake
+	 * @since 1.0
+	 * @return
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * 未命中次数，即查询数据库的次数
+	 * @author LaoMake
+	 * @since 1.0
+	 * @return
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * 超出最大权重而淘汰的缓存项数
+	 * @author LaoMake
+	 * @since 1.0
+	 * @return
+	 */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * 过期而清除的缓存项数
+	 * @author LaoMake
+	 * @since 1.0
+	 * @return
+	 */
+	public long getExpirationCount() {
+		return expirations.get();
+	}
+
+	/**
+	 * 命中率
+	 * @author LaoMake
+	 * @since 1.0
+	 * @return
+	 */
+	public double getHitRate() {
+		long total = hits.get() + misses.get();
+		return total == 0 ? 0 : (double) hits.get() / total;
+	}
+
+	/**
+	 * 缓存项数
+	 * @author LaoMake
+	 * @since 1.0
+	 * @return
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * 当前总权重，即缓存的单元格总数
+	 * @author LaoMake
+	 * @since 1.0
+	 * @return
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * 统计信息，可直接输出到日志
+	 * @author LaoMake
+	 * @since 1.0
+	 * @return
+	 */
+	public synchronized String getStats() {
+		return String.format(Locale.ROOT, "size=%d, weight=%d/%d, hit=%d, miss=%d, hitRate=%.1f%%, evicted=%d, expired=%d",
+				entries.size(), weight, maxWeight, hits.get(), misses.get(), getHitRate() * 100, evictions.get(), expirations.get());
+	}
+}
@@ -0,0 +1,253 @@
+package com.lmk.ct.utils;
+
+import java.io.File;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 运行报告工具类
+ * 统计每次生成各阶段的耗时、数据库往返次数、输出的文件数及字节数，输出摘要及JSON格式的报告
+ * 计数器可被多个线程同时使用
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class ReportUtils {
+
+	/**
+	 * 生成阶段
+	 */
+	public static enum Phase {
+		/** 查询表名（或读取DDL脚本、表结构快照） */
+		Tables("tables", "查询表名"),
+		/** 查询、解析字段 */
+		Fields("fields", "解析字段"),
+		/** 外键、多对多关联 */
+		Relations("relations", "关联外键"),
+		/** 准备输出目录 */
+		Folders("folders", "准备目录"),
+		/** 增量生成时比较指纹 */
+		Fingerprint("fingerprint", "比较指纹"),
+		/** 输出代码（含渲染及写入） */
+		Output("output", "输出代码");
+
+		/** JSON报告中的名称 */
+		private final String key;
+
+		/** 摘要中的名称 */
+		private final String label;
+
+		private Phase(String key, String label) {
+			this.key = key;
+			this.label = label;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	/** 各阶段的耗时（纳秒） */
+	private static final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+
+	/** 数据库往返次数 */
+	private static final AtomicLong roundTrips = new AtomicLong();
+
+	/** 渲染的文件数 */
+	private static final AtomicLong filesRendered = new AtomicLong();
+
+	/** 渲染的字节数 */
+	private static final AtomicLong bytesRendered = new AtomicLong();
+
+	/** 写入的文件数 */
+	private static final AtomicLong filesWritten = new AtomicLong();
+
+	/** 写入的字节数 */
+	private static final AtomicLong bytesWritten = new AtomicLong();
+
+	/** 渲染的累计耗时（纳秒），多线程输出时为各线程之和 */
+	private static final AtomicLong renderNanos = new AtomicLong();
+
+	/** 写入的累计耗时（纳秒），多线程输出时为各线程之和 */
+	private static final AtomicLong writeNanos = new AtomicLong();
+
+	/** 实体数目 */
+	private static volatile int entityCount;
+
+	/** 开始时间 */
+	private static volatile long startMillis = System.currentTimeMillis();
+
+	/** 开始时间（纳秒） */
+	private static volatile long startNanos = System.nanoTime();
+
+	/**
+	 * 重置所有计数，开始新的一次生成
+	 */
+	public static void reset() {
+		for(int i = 0; i < phaseNanos.length(); i++)
+			phaseNanos.set(i, 0);
+		roundTrips.set(0);
+		filesRendered.set(0);
+		bytesRendered.set(0);
+		filesWritten.set(0);
+		bytesWritten.set(0);
+		renderNanos.set(0);
+		writeNanos.set(0);
+		entityCount = 0;
+		startMillis = System.currentTimeMillis();
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * 记录阶段的耗时，同一阶段多次记录时累加
+	 * @param phase	阶段
+	 * @param beginNanos	阶段开始时的System.nanoTime()
+	 */
+	public static void end(Phase phase, long beginNanos) {
+		phaseNanos.addAndGet(phase.ordinal(), System.nanoTime() - beginNanos);
+	}
+
+	/**
+	 * 记录一次数据库往返
+	 */
+	public static void roundTrip() {
+		roundTrips.incrementAndGet();
+	}
+
+	/**
+	 * 记录渲染的文件
+	 * @param bytes	文件大小
+	 * @param nanos	耗时
+	 */
+	public static void rendered(long bytes, long nanos) {
+		filesRendered.incrementAndGet();
+		bytesRendered.addAndGet(bytes);
+		renderNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * 记录写入（或比较内容后跳过写入）的文件
+	 * @param bytes	写入的字节数，跳过时为0
+	 * @param nanos	耗时
+	 */
+	public static void written(long bytes, long nanos) {
+		if(bytes > 0){
+			filesWritten.incrementAndGet();
+			bytesWritten.addAndGet(bytes);
+		}
+		writeNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * 记录实体数目
+	 * @param count
+	 */
+	public static void setEntityCount(int count) {
+		entityCount = count;
+	}
+
+	public static long getRoundTrips() {
+		return roundTrips.get();
+	}
+
+	public static long getFilesRendered() {
+		return filesRendered.get();
+	}
+
+	public static long getFilesWritten() {
+		return filesWritten.get();
+	}
+
+	public static long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	/**
+	 * 阶段的耗时（毫秒）
+	 * @param phase
+	 * @return
+	 */
+	public static double getMillis(Phase phase) {
+		return phaseNanos.get(phase.ordinal()) / 1e6;
+	}
+
+	/**
+	 * 输出阶段每秒渲染的文件数
+	 * @return
+	 */
+	public static double getFilesPerSecond() {
+		long nanos = phaseNanos.get(Phase.Output.ordinal());
+		return nanos == 0 ? 0 : filesRendered.get() * 1e9 / nanos;
+	}
+
+	/**
+	 * 生成摘要，可直接输出到日志
+	 * @return
+	 */
+	public static String summary() {
+		double totalMillis = (System.nanoTime() - startNanos) / 1e6;
+		StringBuilder sb = new StringBuilder("运行报告：");
+		sb.append(String.format(Locale.ROOT, "%n  %-8s%12.1f ms", "总耗时", totalMillis));
+		for(Phase phase : Phase.values()){
+			double millis = getMillis(phase);
+			sb.append(String.format(Locale.ROOT, "%n  %-8s%12.1f ms  %5.1f%%", phase.getLabel(), millis, totalMillis == 0 ? 0 : millis * 100 / totalMillis));
+		}
+		sb.append(String.format(Locale.ROOT, "%n  %-8s%12.1f ms（各线程累计）", "渲染", renderNanos.get() / 1e6));
+		sb.append(String.format(Locale.ROOT, "%n  %-8s%12.1f ms（各线程累计）", "写入", writeNanos.get() / 1e6));
+		sb.append(String.format(Locale.ROOT, "%n  实体%d个，数据库往返%d次", entityCount, roundTrips.get()));
+		sb.append(String.format(Locale.ROOT, "%n  渲染%d个文件（%d字节），写入%d个文件（%d字节），%.1f个文件/秒",
+				filesRendered.get(), bytesRendered.get(), filesWritten.get(), bytesWritten.get(), getFilesPerSecond()));
+		sb.append(String.format(Locale.ROOT, "%n  模板缓存命中%d次，解析%d次", FreeMarkerUtils.getCacheHits(), FreeMarkerUtils.getCacheMisses()));
+		return sb.toString();
+	}
+
+	/**
+	 * 生成JSON格式的报告，耗时的单位为毫秒
+	 * @return
+	 */
+	public static String toJson() {
+		StringBuilder sb = new StringBuilder(512);
+		sb.append("{\n");
+		sb.append("  \"startTime\": \"").append(DateUtils.format(new Date(startMillis), DateUtils.FORMAT_LONG)).append("\",\n");
+		sb.append("  \"totalMillis\": ").append(millis(System.nanoTime() - startNanos)).append(",\n");
+		sb.append("  \"phases\": {");
+		for(Phase phase : Phase.values()){
+			sb.append(phase.ordinal() == 0 ? "\n" : ",\n");
+			sb.append("    \"").append(phase.getKey()).append("\": ").append(millis(phaseNanos.get(phase.ordinal())));
+		}
+		sb.append("\n  },\n");
+		sb.append("  \"renderMillis\": ").append(millis(renderNanos.get())).append(",\n");
+		sb.append("  \"writeMillis\": ").append(millis(writeNanos.get())).append(",\n");
+		sb.append("  \"entities\": ").append(entityCount).append(",\n");
+		sb.append("  \"roundTrips\": ").append(roundTrips.get()).append(",\n");
+		sb.append("  \"filesRendered\": ").append(filesRendered.get()).append(",\n");
+		sb.append("  \"bytesRendered\": ").append(bytesRendered.get()).append(",\n");
+		sb.append("  \"filesWritten\": ").append(filesWritten.get()).append(",\n");
+		sb.append("  \"bytesWritten\": ").append(bytesWritten.get()).append(",\n");
+		sb.append("  \"filesPerSecond\": ").append(String.format(Locale.ROOT, "%.1f", getFilesPerSecond())).append(",\n");
+		sb.append("  \"templateCacheHits\": ").append(FreeMarkerUtils.getCacheHits()).append(",\n");
+		sb.append("  \"templateCacheMisses\": ").append(FreeMarkerUtils.getCacheMisses()).append('\n');
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * 保存JSON格式的报告
+	 * @param file
+	 */
+	public static void save(File file) {
+		if(file.getParentFile() != null)
+			FileUtils.makeSureFolderExits(file.getParent());
+		FileUtils.writeToFile(toJson(), file, false);
+	}
+
+	private static String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+}
@@ -0,0 +1,318 @@
+package com.lmk.ct.utils;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 查询结果的一行：值存放在数组中，列名索引由同一结果集的所有行共享
+ * 相比每行一个LinkedHashMap，不再为每行创建哈希表及其条目，也不再逐个单元格读取元数据
+ * 列名为查询中的别名（AS），同名的列按名称访问时返回第一列
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public final class Row {
+
+	/** 列名索引，同一结果集的所有行共享 */
+	private final Columns columns;
+
+	/** 各列的值 */
+	private final Object[] values;
+
+	Row(Columns columns, Object[] values) {
+		this.columns = columns;
+		this.values = values;
+	}
+
+	/**
+	 * 读取结果集的当前行
+	 * @param rs	已定位到当前行的结果集
+	 * @param columns	该结果集的列名索引
+	 * @return
+	 * @throws SQLException
+	 */
+	public static Row read(ResultSet rs, Columns columns) throws SQLException {
+		Object[] values = new Object[columns.size()];
+		for(int i = 0; i < values.length; i++){
+			values[i] = rs.getObject(i + 1);
+		}
+		return new Row(columns, values);
+	}
+
+	/**
+	 * 行转换：每个结果集只读取一次元数据，可用于JdbcUtils.stream()
+	 * 返回的转换器持有上一个结果集的列名索引，不要在多个线程中共用
+	 * @return
+	 */
+	public static JdbcUtils.RowMapper<Row> mapper() {
+		return new JdbcUtils.RowMapper<Row>() {
+
+			private ResultSet last;
+
+			private Columns columns;
+
+			@Override
+			public Row map(ResultSet rs) throws SQLException {
+				if(rs != last){
+					columns = Columns.of(rs.getMetaData());
+					last = rs;
+				}
+				return read(rs, columns);
+			}
+		};
+	}
+
+	/**
+	 * 列数
+	 * @return
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * 列名
+	 * @return
+	 */
+	public List<String> getColumnNames() {
+		return columns.getNames();
+	}
+
+	/**
+	 * 是否包含该列
+	 * @param column	列名，不区分大小写
+	 * @return
+	 */
+	public boolean hasColumn(String column) {
+		return columns.indexOf(column) >= 0;
+	}
+
+	/**
+	 * 按位置取值
+	 * @param index	从0开始
+	 * @return
+	 */
+	public Object get(int index) {
+		return values[index];
+	}
+
+	/**
+	 * 按列名取值
+	 * @param column	列名，不区分大小写
+	 * @return
+	 * @throws IllegalArgumentException 没有该列时
+	 */
+	public Object get(String column) {
+		int index = columns.indexOf(column);
+		if(index < 0)
+			throw new IllegalArgumentException("没有该列：" + column + "，所有列：" + columns.getNames());
+		return values[index];
+	}
+
+	public String getString(String column) {
+		Object value = get(column);
+		return value == null ? null : value.toString();
+	}
+
+	public Integer getInteger(String column) {
+		Object value = get(column);
+		if(value == null || value instanceof Integer)
+			return (Integer) value;
+		return value instanceof Number ? ((Number) value).intValue() : Integer.valueOf(value.toString());
+	}
+
+	public Long getLong(String column) {
+		Object value = get(column);
+		if(value == null || value instanceof Long)
+			return (Long) value;
+		return value instanceof Number ? ((Number) value).longValue() : Long.valueOf(value.toString());
+	}
+
+	public Double getDouble(String column) {
+		Object value = get(column);
+		if(value == null || value instanceof Double)
+			return (Double) value;
+		return value instanceof Number ? ((Number) value).doubleValue() : Double.valueOf(value.toString());
+	}
+
+	public BigDecimal getBigDecimal(String column) {
+		Object value = get(column);
+		if(value == null || value instanceof BigDecimal)
+			return (BigDecimal) value;
+		return new BigDecimal(value.toString());
+	}
+
+	public Date getDate(String column) {
+		Object value = get(column);
+		if(value == null)
+			return null;
+		if(value instanceof Date)
+			return new Date(((Date) value).getTime());
+		if(value instanceof LocalDateTime)
+			return new Date(Timestamp.valueOf((LocalDateTime) value).getTime());
+		throw new ClassCastException("该列不是日期类型：" + column + "，" + value.getClass().getName());
+	}
+
+	/**
+	 * 各列的值（副本）
+	 * @return
+	 */
+	public Object[] toArray() {
+		return values.clone();
+	}
+
+	/**
+	 * Map视图：按列的顺序迭代，按列名取值（不区分大小写），可修改已有列的值，不能增加或删除列
+	 * 视图不复制数据，与该行共享值
+	 * @return
+	 */
+	public Map<String, Object> asMap() {
+		return new MapView();
+	}
+
+	@Override
+	public String toString() {
+		return asMap().toString();
+	}
+
+	/**
+	 * 行的Map视图
+	 */
+	private class MapView extends AbstractMap<String, Object> {
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof String && columns.indexOf((String) key) >= 0;
+		}
+
+		@Override
+		public Object get(Object key) {
+			int index = key instanceof String ? columns.indexOf((String) key) : -1;
+			return index < 0 ? null : values[index];
+		}
+
+		@Override
+		public Object put(String key, Object value) {
+			int index = columns.indexOf(key);
+			if(index < 0)
+				throw new UnsupportedOperationException("不能增加列：" + key);
+			Object old = values[index];
+			values[index] = value;
+			return old;
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			return new AbstractSet<Entry<String, Object>>() {
+
+				@Override
+				public int size() {
+					return values.length;
+				}
+
+				@Override
+				public Iterator<Entry<String, Object>> iterator() {
+					return new Iterator<Entry<String, Object>>() {
+
+						private int index = 0;
+
+						@Override
+						public boolean hasNext() {
+							return index < values.length;
+						}
+
+						@Override
+						public Entry<String, Object> next() {
+							if(index >= values.length)
+								throw new NoSuchElementException();
+							final int current = index++;
+							return new SimpleEntry<String, Object>(columns.getName(current), values[current]) {
+
+								private static final long serialVersionUID = 1L;
+
+								@Override
+								public Object setValue(Object value) {
+									values[current] = value;
+									return super.setValue(value);
+								}
+							};
+						}
+					};
+				}
+			};
+		}
+	}
+
+	/**
+	 * 结果集的列名索引，创建后不再修改，可被多个线程共享
+	 */
+	public static final class Columns {
+
+		/** 各列的名称 */
+		private final String[] names;
+
+		/** 列名 -> 位置，同名的列保留第一列 */
+		private final Map<String, Integer> index;
+
+		/** 小写列名 -> 位置，用于不区分大小写的查找 */
+		private final Map<String, Integer> lowerIndex;
+
+		public Columns(String... names) {
+			this.names = names.clone();
+			this.index = new HashMap<String, Integer>(names.length * 2);
+			this.lowerIndex = new HashMap<String, Integer>(names.length * 2);
+			for(int i = 0; i < names.length; i++){
+				index.putIfAbsent(names[i], i);
+				lowerIndex.putIfAbsent(names[i].toLowerCase(Locale.ROOT), i);
+			}
+		}
+
+		/**
+		 * 读取结果集的列名（别名）
+		 * @param rsmd
+		 * @return
+		 * @throws SQLException
+		 */
+		public static Columns of(ResultSetMetaData rsmd) throws SQLException {
+			String[] names = new String[rsmd.getColumnCount()];
+			for(int i = 0; i < names.length; i++){
+				names[i] = rsmd.getColumnLabel(i + 1);
+			}
+			return new Columns(names);
+		}
+
+		public int size() {
+			return names.length;
+		}
+
+		public String getName(int index) {
+			return names[index];
+		}
+
+		public List<String> getNames() {
+			return Collections.unmodifiableList(Arrays.asList(names));
+		}
+
+		/**
+		 * 列的位置，先按原样查找，再不区分大小写查找
+		 * @param name
+		 * @return 从0开始，没有该列时返回-1
+		 */
+		public int indexOf(String name) {
+			Integer position = index.get(name);
+			if(position == null && name != null)
+				position = lowerIndex.get(name.toLowerCase(Locale.ROOT));
+			return position == null ? -1 : position;
+		}
+	}
+}
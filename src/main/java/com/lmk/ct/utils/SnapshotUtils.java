@@ -0,0 +1,321 @@
+package com.lmk.ct.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.lmk.ct.bean.*;
+
+/**
+ * 表结构快照工具类
+ * 快照为GZIP压缩的二进制文件，以魔数和格式版本号开头，格式版本不一致的快照将被忽略
+ * 快照中的实体已按导出时的生成规则（表名前缀、多对一、多对多、一对多）解析、关联，规则变化后快照即过时
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class SnapshotUtils {
+
+	/** 日志记录器 */
+	private static Logger log = LoggerFactory.getLogger(SnapshotUtils.class);
+
+	/** 快照文件的魔数："LMKS" */
+	private static final int MAGIC = 0x4C4D4B53;
+
+	/** 快照的格式版本，快照结构变化时递增 */
+	public static final int FORMAT_VERSION = 2;
+
+	/**
+	 * 保存快照
+	 * @param file
+	 * @param snapshot
+	 * @return 是否保存成功
+	 */
+	public static boolean save(File file, SchemaSnapshot snapshot){
+		DataOutputStream out = null;
+		try {
+			if(file.getParentFile() != null)
+				FileUtils.makeSureFolderExits(file.getParent());
+			out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file), FileUtils.BUFFER_SIZE * 8)));
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			writeString(out, snapshot.getDataBase());
+			out.writeLong(snapshot.getCreateTime());
+			writeString(out, snapshot.getRulesHash());
+
+			out.writeInt(snapshot.getTableVersions().size());
+			for(Map.Entry<String, String> item : snapshot.getTableVersions().entrySet()){
+				writeString(out, item.getKey());
+				writeString(out, item.getValue());
+			}
+
+			List<Entity> entitys = snapshot.getEntitys();
+			Map<Entity, Integer> indexes = new IdentityHashMap<Entity, Integer>();
+			for(int i = 0; i < entitys.size(); i++)
+				indexes.put(entitys.get(i), i);
+
+			out.writeInt(entitys.size());
+			for(Entity entity : entitys)
+				writeEntity(out, entity, indexes);
+
+			out.flush();
+			log.info("导出表结构快照：{}个实体 -> {}", entitys.size(), file.getPath());
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			if(out != null){
+				try {
+					out.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * 读取快照
+	 * @param file
+	 * @return 文件不存在、已损坏或格式版本不一致时返回null
+	 */
+	public static SchemaSnapshot load(File file){
+		if(!file.exists()){
+			log.warn("表结构快照不存在：{}", file.getPath());
+			return null;
+		}
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), FileUtils.BUFFER_SIZE * 8)));
+			if(in.readInt() != MAGIC){
+				log.warn("不是表结构快照文件：{}", file.getPath());
+				return null;
+			}
+			int version = in.readInt();
+			if(version != FORMAT_VERSION){
+				log.warn("表结构快照的格式版本不一致：{}，当前版本：{}", version, FORMAT_VERSION);
+				return null;
+			}
+
+			SchemaSnapshot snapshot = new SchemaSnapshot();
+			snapshot.setDataBase(readString(in));
+			snapshot.setCreateTime(in.readLong());
+			snapshot.setRulesHash(readString(in));
+
+			int size = in.readInt();
+			Map<String, String> tableVersions = new LinkedHashMap<String, String>(size * 2);
+			for(int i = 0; i < size; i++)
+				tableVersions.put(readString(in), readString(in));
+			snapshot.setTableVersions(tableVersions);
+
+			size = in.readInt();
+			List<Entity> entitys = new ArrayList<Entity>(size);
+			int[][] childIndexes = new int[size][];
+			for(int i = 0; i < size; i++)
+				entitys.add(readEntity(in, childIndexes, i));
+
+			// 实体全部读取后再关联子实体
+			for(int i = 0; i < size; i++){
+				for(int index : childIndexes[i])
+					entitys.get(i).getChildren().add(entitys.get(index));
+			}
+			snapshot.setEntitys(entitys);
+
+			log.info("读取表结构快照：{}个实体 <- {}", entitys.size(), file.getPath());
+			return snapshot;
+		} catch (IOException e) {
+			log.warn("表结构快照读取失败：{}", e.getMessage());
+			return null;
+		} finally {
+			if(in != null){
+				try {
+					in.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * 判断快照与数据库中各表的创建、更新时间及当前的生成规则是否一致
+	 * @param snapshot
+	 * @param tableVersions	数据库中各表的版本
+	 * @return
+	 */
+	public static boolean isUpToDate(SchemaSnapshot snapshot, Map<String, String> tableVersions){
+		return snapshot != null && tableVersions != null && tableVersions.equals(snapshot.getTableVersions())
+				&& rulesHash().equals(snapshot.getRulesHash());
+	}
+
+	/**
+	 * 当前全局配置（CodeUtils）的生成规则摘要
+	 * @return
+	 */
+	public static String rulesHash(){
+		return rulesHash(CodeUtils.parseTablePrefix, CodeUtils.buildManyToOne, CodeUtils.buildManyToMany, CodeUtils.buildOneToMany);
+	}
+
+	/**
+	 * 生成规则摘要，影响实体名、模块名及关联关系的配置
+	 * @param parseTablePrefix	是否将表名的前缀解析为模块名
+	 * @param manyToOne	是否解析多对一关系
+	 * @param manyToMany	是否解析多对多关系
+	 * @param oneToMany	是否解析一对多关系
+	 * @return
+	 */
+	public static String rulesHash(boolean parseTablePrefix, boolean manyToOne, boolean manyToMany, boolean oneToMany){
+		return DigestUtils.sha1Hex("tablePrefix=" + parseTablePrefix + ", manyToOne=" + manyToOne
+				+ ", manyToMany=" + manyToMany + ", oneToMany=" + oneToMany);
+	}
+
+	private static void writeEntity(DataOutputStream out, Entity entity, Map<Entity, Integer> indexes) throws IOException {
+		writeString(out, entity.getSerialVersionUID());
+		writeString(out, entity.getTableName());
+		writeString(out, entity.getModuleName());
+		writeString(out, entity.getEntityName());
+		writeString(out, entity.getEntityNameLower());
+		writeString(out, entity.getEntityComment());
+		out.writeByte(entity.getHasDateType() == null ? -1 : (entity.getHasDateType() ? 1 : 0));
+
+		out.writeBoolean(entity.getPrimaryKey() != null);
+		if(entity.getPrimaryKey() != null)
+			writeField(out, entity.getPrimaryKey());
+
+		out.writeInt(entity.getFields().size());
+		for(DbField field : entity.getFields())
+			writeField(out, field);
+
+		out.writeInt(entity.getMtms().size());
+		for(ManyToMany mtm : entity.getMtms()){
+			writeString(out, mtm.getDatabaseName());
+			writeString(out, mtm.getJoinTableName());
+			writeString(out, mtm.getTableName());
+			writeString(out, mtm.getModuleName());
+			writeString(out, mtm.getEntityName());
+			writeString(out, mtm.getEntityNameLower());
+			writeString(out, mtm.getEntityComment());
+			writeString(out, mtm.getSourceColumnName());
+			writeString(out, mtm.getTargetColumnName());
+		}
+
+		out.writeInt(entity.getManyToOnes().size());
+		for(ManyToOne mto : entity.getManyToOnes()){
+			writeString(out, mto.getTableName());
+			writeString(out, mto.getColumnName());
+			writeString(out, mto.getModuleName());
+			writeString(out, mto.getEntityName());
+			writeString(out, mto.getEntityNameLower());
+			writeString(out, mto.getEntityComment());
+		}
+
+		out.writeInt(entity.getChildren().size());
+		for(Entity child : entity.getChildren())
+			out.writeInt(indexes.get(child));
+
+		out.writeInt(entity.getChildMap().size());
+		for(Map.Entry<String, String> item : entity.getChildMap().entrySet()){
+			writeString(out, item.getKey());
+			writeString(out, item.getValue());
+		}
+	}
+
+	private static Entity readEntity(DataInputStream in, int[][] childIndexes, int index) throws IOException {
+		Entity entity = new Entity();
+		entity.setSerialVersionUID(readString(in));
+		entity.setTableName(readString(in));
+		entity.setModuleName(readString(in));
+		entity.setEntityName(readString(in));
+		entity.setEntityNameLower(readString(in));
+		entity.setEntityComment(readString(in));
+		byte hasDateType = in.readByte();
+		entity.setHasDateType(hasDateType < 0 ? null : hasDateType == 1);
+
+		if(in.readBoolean())
+			entity.setPrimaryKey(readField(in));
+
+		int size = in.readInt();
+		List<DbField> fields = new ArrayList<DbField>(size);
+		for(int i = 0; i < size; i++)
+			fields.add(readField(in));
+		entity.setFields(fields);
+
+		size = in.readInt();
+		for(int i = 0; i < size; i++){
+			entity.getMtms().add(new ManyToMany(readString(in), readString(in), readString(in), readString(in),
+					readString(in), readString(in), readString(in), readString(in), readString(in)));
+		}
+
+		size = in.readInt();
+		for(int i = 0; i < size; i++){
+			ManyToOne mto = new ManyToOne(readString(in), readString(in), readString(in), readString(in), readString(in));
+			mto.setEntityComment(readString(in));
+			entity.getManyToOnes().add(mto);
+		}
+
+		size = in.readInt();
+		childIndexes[index] = new int[size];
+		for(int i = 0; i < size; i++)
+			childIndexes[index][i] = in.readInt();
+
+		size = in.readInt();
+		for(int i = 0; i < size; i++)
+			entity.getChildMap().put(readString(in), readString(in));
+
+		return entity;
+	}
+
+	private static void writeField(DataOutputStream out, DbField field) throws IOException {
+		writeString(out, field.getFieldName());
+		writeString(out, field.getFieldNameFirstUpper());
+		writeString(out, field.getTableFieldName());
+		out.writeByte(field.getKeyType().ordinal());
+		out.writeInt(field.getLength() == null ? -1 : field.getLength());
+		out.writeByte(field.getFieldDataType().ordinal());
+		out.writeBoolean(Boolean.TRUE.equals(field.getNotNull()));
+		writeString(out, field.getDefaultValue());
+		writeString(out, field.getComment());
+	}
+
+	private static DbField readField(DataInputStream in) throws IOException {
+		DbField field = new DbField();
+		field.setFieldName(readString(in));
+		field.setFieldNameFirstUpper(readString(in));
+		field.setTableFieldName(readString(in));
+		field.setKeyType(KeyType.values()[in.readByte()]);
+		int length = in.readInt();
+		field.setLength(length < 0 ? null : length);
+		field.setFieldDataType(FieldDataType.values()[in.readByte()]);
+		field.setNotNull(in.readBoolean());
+		field.setDefaultValue(readString(in));
+		field.setComment(readString(in));
+		return field;
+	}
+
+	/**
+	 * 写入文本，支持null及超过64K的文本
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if(value == null){
+			out.writeInt(-1);
+		}else{
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if(length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
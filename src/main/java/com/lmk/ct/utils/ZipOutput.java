@@ -0,0 +1,179 @@
+package com.lmk.ct.utils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 将代码直接输出到一个ZIP（或JAR）压缩包，不生成中间文件
+ * 条目先缓存在内存中，调用finish()时按路径排序写入临时文件，再替换目标压缩包
+ * 条目使用固定的修改时间，相同的代码总是生成完全相同的压缩包，与并发输出的完成顺序无关
+ * 任一文件渲染失败时压缩包不会生成，目标压缩包保持不变
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class ZipOutput implements CodeOutput, Closeable {
+
+	/** 日志记录器 */
+	private static Logger log = LoggerFactory.getLogger(ZipOutput.class);
+
+	/** JAR压缩包的扩展名 */
+	public static final String JAR_SUFFIX = ".jar";
+
+	/** 输出的根目录，条目名为目标文件相对于该目录的路径 */
+	private final Path rootFolder;
+
+	/** 目标压缩包 */
+	private final File archiveFile;
+
+	/** 写入中的临时文件 */
+	private final File tempFile;
+
+	/** 是否为JAR压缩包 */
+	private final boolean jar;
+
+	/** 条目的修改时间，固定为ZIP格式可表示的最早日期附近：1980-02-01 00:00:00 */
+	private static final long ENTRY_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1).getTimeInMillis();
+
+	/** 待写入的条目：条目名 -> 内容，按条目名排序 */
+	private final Map<String, byte[]> entries = new TreeMap<String, byte[]>();
+
+	/** 写入的条目数 */
+	private int entryCount = 0;
+
+	/** 写入的原始字节数 */
+	private long byteCount = 0;
+
+	/** 是否已完成 */
+	private boolean finished = false;
+
+	/**
+	 * 创建压缩包，扩展名为.jar时创建JAR压缩包
+	 * @param rootFolder	输出的根目录
+	 * @param archiveFile	目标压缩包
+	 * @throws IOException
+	 */
+	public ZipOutput(String rootFolder, File archiveFile) throws IOException {
+		this.rootFolder = new File(rootFolder).toPath().toAbsolutePath().normalize();
+		this.archiveFile = archiveFile;
+		if(archiveFile.getParentFile() != null)
+			FileUtils.makeSureFolderExits(archiveFile.getParent());
+		this.tempFile = new File(archiveFile.getPath() + ".tmp");
+		this.jar = archiveFile.getName().toLowerCase().endsWith(JAR_SUFFIX);
+	}
+
+	/**
+	 * 添加条目，在finish()时写入
+	 * @param targetFile	目标文件
+	 * @param content	文件内容
+	 * @return 总是返回true
+	 */
+	@Override
+	public synchronized boolean write(String targetFile, byte[] content) {
+		if(finished)
+			throw new IllegalStateException("压缩包已完成：" + archiveFile.getPath());
+		String name = relativize(targetFile);
+		if(entries.putIfAbsent(name, content) != null)
+			throw new IllegalStateException("压缩包中的条目重复：" + name);
+		entryCount++;
+		byteCount += content.length;
+		return true;
+	}
+
+	/**
+	 * 压缩包中没有上次输出的文件可以保留，文件渲染失败时压缩包将不完整，因此直接失败
+	 * @param targetFile
+	 */
+	@Override
+	public void keep(String targetFile) {
+		throw new IllegalStateException("文件渲染失败，不生成压缩包：" + relativize(targetFile));
+	}
+
+	/**
+	 * 按条目名的顺序写入所有条目，完成压缩包，替换目标压缩包
+	 * @throws IOException
+	 */
+	public synchronized void finish() throws IOException {
+		if(finished)
+			return;
+		finished = true;
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile), FileUtils.BUFFER_SIZE * 64);
+		try (ZipOutputStream zos = jar ? new JarOutputStream(out) : new ZipOutputStream(out)) {
+			if(jar){
+				Manifest manifest = new Manifest();
+				manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+				zos.putNextEntry(newEntry(JarFile.MANIFEST_NAME));
+				manifest.write(zos);
+				zos.closeEntry();
+			}
+			for(Map.Entry<String, byte[]> item : entries.entrySet()){
+				zos.putNextEntry(newEntry(item.getKey()));
+				zos.write(item.getValue());
+				zos.closeEntry();
+			}
+		} catch (IOException e) {
+			if(tempFile.delete())
+				log.warn("压缩包写入失败，已删除：{}", tempFile.getPath());
+			throw e;
+		}
+		entries.clear();
+		Files.move(tempFile.toPath(), archiveFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		log.info("输出压缩包：{}个文件，{}字节 -> {}（{}字节）", entryCount, byteCount, archiveFile.getPath(), archiveFile.length());
+	}
+
+	/**
+	 * 关闭压缩包，未完成时丢弃已添加的条目，目标压缩包保持不变
+	 */
+	@Override
+	public synchronized void close() {
+		if(finished)
+			return;
+		finished = true;
+		if(!entries.isEmpty())
+			log.warn("压缩包未完成，已丢弃{}个文件：{}", entries.size(), archiveFile.getPath());
+		entries.clear();
+	}
+
+	public synchronized int getEntryCount() {
+		return entryCount;
+	}
+
+	public synchronized long getByteCount() {
+		return byteCount;
+	}
+
+	/**
+	 * 创建使用固定修改时间的条目
+	 * @param name	条目名
+	 * @return
+	 */
+	private static ZipEntry newEntry(String name) {
+		ZipEntry entry = new ZipEntry(name);
+		entry.setTime(ENTRY_TIME);
+		return entry;
+	}
+
+	/**
+	 * 转换为相对于根目录的条目名，统一使用"/"分隔
+	 * @param targetFile
+	 * @return
+	 */
+	private String relativize(String targetFile) {
+		Path path = new File(targetFile).toPath().toAbsolutePath().normalize();
+		return rootFolder.relativize(path).toString().replace(File.separatorChar, '/');
+	}
+}
@@ -0,0 +1,71 @@
+package com.lmk.ct.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 在事务中分批执行的测试
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class BatchTransactionTest {
+
+	@BeforeClass
+	public static void init() {
+		JdbcUtils.setPoolConfig(1, 2, 1000, 600000, false, 0);
+		JdbcUtils.init("test", "test", FakeDriver.URL, FakeDriver.class.getName());
+	}
+
+	@AfterClass
+	public static void shutdown() {
+		JdbcUtils.shutdown();
+	}
+
+	@Before
+	public void reset() {
+		JdbcUtils.setBatchConfig(1000, true);
+		FakeDriver.reset();
+	}
+
+	@Test
+	public void testCommitPerChunkOutsideTransaction() {
+		BatchResult result = JdbcUtils.executeBatch("INSERT INTO t (a) VALUES (?)", rows(), 1, true, null);
+
+		// 失败的批回滚后继续执行
+		assertEquals(3, FakeDriver.executions.size());
+		assertEquals(2, result.getCommittedRows());
+		assertEquals(1, result.getFailedRows());
+		assertEquals(2, FakeDriver.commits.get());
+	}
+
+	@Test
+	public void testCommitPerChunkInTransaction() {
+		final BatchResult[] result = new BatchResult[1];
+		try {
+			JdbcUtils.transaction(() -> {
+				result[0] = JdbcUtils.executeBatch("INSERT INTO t (a) VALUES (?)", rows(), 1, true, null);
+				return null;
+			});
+			fail("事务应失败");
+		} catch (IllegalStateException e) {
+			// 事务已回滚
+		}
+
+		// 按单个事务执行：第一个失败的批之后停止，不提交
+		assertEquals(2, FakeDriver.executions.size());
+		assertFalse(result[0].isSuccess());
+		assertEquals(0, result[0].getCommittedRows());
+		assertEquals(0, FakeDriver.commits.get());
+	}
+
+	private static List<String[]> rows() {
+		return Arrays.asList(new String[]{"a"}, new String[]{FakeDriver.FAIL}, new String[]{"c"});
+	}
+}
@@ -0,0 +1,87 @@
+package com.lmk.ct.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * DateUtils与SimpleDateFormat的差分测试：在多个时区下，以随机时间及边界输入比较两者格式化、解析的结果
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class DateUtilsTest {
+
+	/** 含夏令时、半小时偏移及历史上偏移变化的时区 */
+	private static final String[] ZONES = {"Asia/Shanghai", "America/New_York", "Europe/London", "UTC", "Australia/Lord_Howe"};
+
+	private static final String[] PATTERNS = {
+			DateUtils.FORMAT_SHORT, DateUtils.FORMAT_LONG, DateUtils.FORMAT_FULL,
+			DateUtils.FORMAT_SHORT_CN, DateUtils.FORMAT_LONG_CN, DateUtils.FORMAT_FULL_CN,
+			"yyyyMMddHHmmss", "y/M/d H:m:s", "EEE, d MMM yyyy", "yy-MM-dd", "hh:mm a", "'T'yyyy'Q'"};
+
+	/** 非法日期、超出范围的字段、多余的字符、1900年以前的日期及夏令时切换时不存在或重复的时间 */
+	private static final String[] ODD_INPUTS = {
+			"2020-2-30", "2020-02-30", "2020-13-01 00:00:00", "2020-01-01 24:00:00", "2020-01-011", "2020-01-01abc",
+			"2020-01-01 12:00:00.999", "20201-01-01", "1500-03-01", "2021-03-14 02:30:00", "2021-11-07 01:30:00",
+			"2021-03-28 01:30:00", "2021-10-31 01:30:00", "  2020-01-01", "+2020-01-01"};
+
+	private final TimeZone defaultZone = TimeZone.getDefault();
+
+	@After
+	public void restoreZone() {
+		TimeZone.setDefault(defaultZone);
+	}
+
+	@Test
+	public void testFormatAndParseMatchSimpleDateFormat() throws ParseException {
+		Random random = new Random(1);
+		for(String zone : ZONES){
+			TimeZone.setDefault(TimeZone.getTimeZone(zone));
+			for(int i = 0; i < 2000; i++){
+				// 约公元700年至3200年，三分之一在1970年至2033年之间
+				long millis = i % 3 == 0 ? (long) (random.nextDouble() * 2e12) : (long) ((random.nextDouble() * 2 - 1) * 4e13);
+				Date date = new Date(millis);
+				for(String pattern : PATTERNS){
+					String message = zone + " " + pattern + " " + millis;
+					String expected = new SimpleDateFormat(pattern).format(date);
+					assertEquals(message, expected, DateUtils.format(date, pattern));
+					assertEquals(message, new SimpleDateFormat(pattern).parse(expected), DateUtils.parse(expected, pattern));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testOddInputsMatchSimpleDateFormat() {
+		PrintStream err = System.err;
+		// 解析失败时DateUtils输出异常栈
+		System.setErr(new PrintStream(new ByteArrayOutputStream()));
+		try {
+			for(String zone : ZONES){
+				TimeZone.setDefault(TimeZone.getTimeZone(zone));
+				for(String input : ODD_INPUTS){
+					for(String pattern : new String[]{DateUtils.FORMAT_SHORT, DateUtils.FORMAT_LONG, DateUtils.FORMAT_SHORT_CN}){
+						Date expected;
+						try {
+							expected = new SimpleDateFormat(pattern).parse(input);
+						} catch (ParseException e) {
+							expected = null;
+						}
+						assertEquals(zone + " " + pattern + " " + input, expected, DateUtils.parse(input, pattern));
+					}
+				}
+			}
+		} finally {
+			System.setErr(err);
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package com.lmk.ct.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import com.lmk.ct.bean.DbField;
+import com.lmk.ct.bean.ForeignKey;
+
+/**
+ * DdlParser的测试
+ * 期望值为同一脚本在MySQL 5.7中执行后，information_schema.columns查询到的结果，经CodeUtils.addField转换后与解析结果比较
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class DdlParserTest {
+
+	/** information_schema.columns 的列：column_name, column_type, is_nullable, column_default, column_comment, column_key */
+	private static final String[][] USER_COLUMNS = {
+			{"id", "bigint(20)", "NO", null, "主键", "PRI"},
+			{"user_name", "varchar(50)", "NO", "", "用户名；唯一", "UNI"},
+			{"age", "int(11)", "YES", "18", "", ""},
+			{"balance", "decimal(10,2)", "NO", "0.00", "余额", ""},
+			{"deleted", "bit(1)", "NO", "b'0'", "", ""},
+			{"status", "tinyint(4)", "NO", "-1", "状态", ""},
+			{"remark", "varchar(200)", "YES", "a;b", "备注", ""},
+			{"create_time", "datetime", "YES", "CURRENT_TIMESTAMP", "", ""},
+	};
+
+	@Test
+	public void testCreateTableMatchesInformationSchema() throws IOException {
+		DdlParser parser = parse(
+				"-- 用户表；注释中的分号不结束语句\n"
+				+ "# 另一种注释;\n"
+				+ "/* 块注释; CREATE TABLE ignored (id int); */\n"
+				+ "CREATE TABLE IF NOT EXISTS `test`.`sys_user` (\n"
+				+ "  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键',\n"
+				+ "  `user_name` VARCHAR(50) NOT NULL DEFAULT '' COMMENT '用户名；唯一',\n"
+				+ "  `age` INTEGER DEFAULT 18,\n"
+				+ "  `balance` DECIMAL(10,2) NOT NULL DEFAULT '0.00' COMMENT '余额',\n"
+				+ "  `deleted` BIT(1) NOT NULL DEFAULT b'0',\n"
+				+ "  `status` TINYINT NOT NULL DEFAULT -1 COMMENT '状态',\n"
+				+ "  `remark` VARCHAR(200) DEFAULT 'a;b' COMMENT '备注',\n"
+				+ "  `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP,\n"
+				+ "  PRIMARY KEY USING BTREE (`id`),\n"
+				+ "  UNIQUE KEY `uk_user_name` USING HASH (`user_name`)\n"
+				+ ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='系统用户';\n");
+
+		assertEquals(0, parser.getErrorCount());
+		assertEquals("系统用户", parser.getTableMap().get("sys_user"));
+		assertFields(USER_COLUMNS, parser.getFieldMap().get("sys_user"));
+	}
+
+	@Test
+	public void testPrimaryKeyUsing() throws IOException {
+		DdlParser parser = parse(
+				"CREATE TABLE a (id INT NOT NULL, name VARCHAR(20), PRIMARY KEY USING HASH (id) USING BTREE);\n"
+				+ "CREATE TABLE b (id INT NOT NULL, name VARCHAR(20));\n"
+				+ "ALTER TABLE b ADD CONSTRAINT PRIMARY KEY USING BTREE (id);\n");
+
+		assertEquals(0, parser.getErrorCount());
+		assertEquals(Arrays.asList("a", "b"), new ArrayList<String>(parser.getTableMap().keySet()));
+		assertEquals(keyTypeOf(parser, "a", "id"), keyTypeOf(parser, "b", "id"));
+		assertEquals("PrimaryKey", keyTypeOf(parser, "b", "id"));
+	}
+
+	@Test
+	public void testDelimiterAndIgnoredStatements() throws IOException {
+		DdlParser parser = parse(
+				"SET NAMES utf8mb4;\n"
+				+ "INSERT INTO t VALUES ('CREATE TABLE x (id int);', \"DROP TABLE t;\");\n"
+				+ "CREATE TABLE t (id INT PRIMARY KEY, note TEXT COMMENT 'it''s; \\'ok\\'');\n"
+				+ "DELIMITER $$\n"
+				+ "CREATE PROCEDURE p() BEGIN DROP TABLE t; END$$\n"
+				+ "CREATE TRIGGER tr BEFORE INSERT ON t FOR EACH ROW BEGIN SET @a = 1; END $$\n"
+				+ "DELIMITER ;\n"
+				+ "CREATE TABLE u (id INT PRIMARY KEY)");
+
+		assertEquals(0, parser.getErrorCount());
+		assertEquals(2, parser.getTableCount());
+		// 与表结构无关的语句不计入
+		assertEquals(4, parser.getStatementCount());
+		assertEquals("it's; 'ok'", parser.getFieldMap().get("t").get(1).getComment());
+	}
+
+	@Test
+	public void testAlterRenameAndDrop() throws IOException {
+		DdlParser parser = parse(
+				"CREATE TABLE dept (id INT NOT NULL PRIMARY KEY, name VARCHAR(20) NOT NULL);\n"
+				+ "CREATE TABLE emp (id INT NOT NULL PRIMARY KEY, name VARCHAR(20));\n"
+				+ "ALTER TABLE emp ADD COLUMN dept_id INT NOT NULL AFTER id,\n"
+				+ "  ADD CONSTRAINT fk_emp_dept FOREIGN KEY (dept_id) REFERENCES dept (id),\n"
+				+ "  MODIFY name VARCHAR(50) NOT NULL COMMENT '姓名',\n"
+				+ "  ADD COLUMN code CHAR(8) FIRST,\n"
+				+ "  ALTER COLUMN name SET DEFAULT 'x';\n"
+				+ "RENAME TABLE dept TO department;\n"
+				+ "CREATE TABLE tmp (id INT);\n"
+				+ "DROP TABLE IF EXISTS tmp, missing;\n");
+
+		assertEquals(0, parser.getErrorCount());
+		// 改名后的表排在最后
+		assertEquals(Arrays.asList("emp", "department"), new ArrayList<String>(parser.getTableMap().keySet()));
+
+		assertFields(new String[][]{
+				{"code", "char(8)", "YES", null, "", ""},
+				{"id", "int(11)", "NO", null, "", "PRI"},
+				{"dept_id", "int(11)", "NO", null, "", "MUL"},
+				{"name", "varchar(50)", "NO", "x", "姓名", ""},
+		}, parser.getFieldMap().get("emp"));
+
+		List<ForeignKey> foreignKeys = parser.getForeignKeys();
+		assertEquals(1, foreignKeys.size());
+		assertEquals("dept_id", foreignKeys.get(0).getColumnName());
+		assertEquals("emp", foreignKeys.get(0).getSourceTableName());
+		assertEquals("department", foreignKeys.get(0).getTargetTableName());
+	}
+
+	@Test
+	public void testInvalidStatementIsSkipped() throws IOException {
+		DdlParser parser = parse(
+				"ALTER TABLE missing ADD COLUMN a INT;\n"
+				+ "CREATE TABLE ok (id INT PRIMARY KEY);\n");
+
+		assertEquals(2, parser.getStatementCount());
+		assertEquals(1, parser.getErrorCount());
+		assertEquals(1, parser.getTableCount());
+	}
+
+	private static DdlParser parse(String script) throws IOException {
+		DdlParser parser = new DdlParser();
+		parser.parse(new StringReader(script));
+		return parser;
+	}
+
+	private static String keyTypeOf(DdlParser parser, String table, String column){
+		for(DbField field : parser.getFieldMap().get(table)){
+			if(field.getTableFieldName().equals(column))
+				return field.getKeyType().name();
+		}
+		return null;
+	}
+
+	/**
+	 * 比较解析结果与information_schema的查询结果
+	 */
+	private static void assertFields(String[][] rows, List<DbField> actual){
+		List<DbField> expected = new ArrayList<DbField>();
+		for(String[] row : rows)
+			CodeUtils.addField(expected, row[0], row[1], row[2], row[3], row[4], row[5]);
+
+		assertNotNull(actual);
+		assertEquals(expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++){
+			DbField e = expected.get(i);
+			DbField a = actual.get(i);
+			String name = e.getTableFieldName();
+			assertEquals(name, e.getTableFieldName(), a.getTableFieldName());
+			assertEquals(name, e.getFieldDataType(), a.getFieldDataType());
+			assertEquals(name, e.getLength(), a.getLength());
+			assertEquals(name, e.getNotNull(), a.getNotNull());
+			assertEquals(name, e.getDefaultValue(), a.getDefaultValue());
+			assertEquals(name, e.getComment(), a.getComment());
+			assertEquals(name, e.getKeyType(), a.getKeyType());
+		}
+	}
+}
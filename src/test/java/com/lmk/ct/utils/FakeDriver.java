@@ -0,0 +1,235 @@
+package com.lmk.ct.utils;
+
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * 测试用的JDBC驱动，不连接数据库，记录执行的语句及参数
+ * executeUpdate返回语句中VALUES的行数，并为每行生成一个自增主键；参数中有"FAIL"时执行失败
+ * executeQuery返回一行，列名为c1、c2 ...，值为v1、v2 ...
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class FakeDriver implements Driver {
+
+	/** 连接地址 */
+	public static final String URL = "jdbc:fake:test";
+
+	/** 使执行失败的参数值 */
+	public static final String FAIL = "FAIL";
+
+	/** 执行的语句 */
+	static final List<Execution> executions = Collections.synchronizedList(new ArrayList<Execution>());
+
+	/** 提交次数 */
+	static final AtomicInteger commits = new AtomicInteger();
+
+	/** 每条语句少返回的主键数，模拟INSERT IGNORE等跳过的行 */
+	static volatile int missingKeys = 0;
+
+	/** 查询结果的列数 */
+	static volatile int queryColumns = 1;
+
+	/** 自增主键 */
+	private static final AtomicLong autoId = new AtomicLong();
+
+	static {
+		try {
+			DriverManager.registerDriver(new FakeDriver());
+		} catch (SQLException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * 执行过的语句
+	 */
+	static class Execution {
+		final String sql;
+		/** 每行的参数，executeUpdate只有一行 */
+		final List<Object[]> rows;
+
+		Execution(String sql, List<Object[]> rows) {
+			this.sql = sql;
+			this.rows = rows;
+		}
+
+		int paramCount(){
+			int count = 0;
+			for(Object[] row : rows)
+				count += row.length;
+			return count;
+		}
+	}
+
+	/**
+	 * 清空记录
+	 */
+	static void reset(){
+		executions.clear();
+		commits.set(0);
+		missingKeys = 0;
+		queryColumns = 1;
+		autoId.set(0);
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) throws SQLException {
+		if(!acceptsURL(url))
+			return null;
+		final boolean[] state = {false, true};// closed, autoCommit
+		return (Connection) Proxy.newProxyInstance(FakeDriver.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+			switch (method.getName()){
+				case "close": state[0] = true; return null;
+				case "isClosed": return state[0];
+				case "isValid": return true;
+				case "getAutoCommit": return state[1];
+				case "setAutoCommit": state[1] = (Boolean) args[0]; return null;
+				case "commit": commits.incrementAndGet(); return null;
+				case "prepareStatement": return statement((String) args[0]);
+				default: return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	/**
+	 * 创建语句，参数按占位符的序号记录
+	 */
+	private static PreparedStatement statement(final String sql){
+		final Map<Integer, Object> params = new TreeMap<Integer, Object>();
+		final List<Object[]> batch = new ArrayList<Object[]>();
+		final long[][] keys = {new long[0]};
+		return (PreparedStatement) Proxy.newProxyInstance(FakeDriver.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+			String name = method.getName();
+			if(name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer){
+				params.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+				return null;
+			}
+			switch (name){
+				case "clearParameters": params.clear(); return null;
+				case "addBatch": batch.add(params.values().toArray()); return null;
+				case "executeQuery":
+					executions.add(new Execution(sql, Collections.singletonList(params.values().toArray())));
+					return row(queryColumns);
+				case "executeUpdate": {
+					Object[] row = params.values().toArray();
+					executions.add(new Execution(sql, Collections.singletonList(row)));
+					if(Arrays.asList(row).contains(FAIL))
+						throw new SQLIntegrityConstraintViolationException("执行失败", "23000", 1062);
+					int rows = countRows(sql);
+					keys[0] = nextKeys(rows - missingKeys);
+					return rows;
+				}
+				case "executeBatch": {
+					List<Object[]> rows = new ArrayList<Object[]>(batch);
+					batch.clear();
+					executions.add(new Execution(sql, rows));
+					int[] counts = new int[rows.size()];
+					for(int i = 0; i < rows.size(); i++){
+						if(Arrays.asList(rows.get(i)).contains(FAIL))
+							throw new BatchUpdateException("执行失败", "23000", 1062, Arrays.copyOf(counts, i));
+						counts[i] = 1;
+					}
+					keys[0] = nextKeys(rows.size() - missingKeys);
+					return counts;
+				}
+				case "getGeneratedKeys": return keys(keys[0]);
+				default: return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	/**
+	 * VALUES中的行数，即"),("的个数加一
+	 */
+	private static int countRows(String sql){
+		int rows = 1;
+		for(int i = sql.indexOf("),("); i >= 0; i = sql.indexOf("),(", i + 1))
+			rows++;
+		return rows;
+	}
+
+	private static long[] nextKeys(int count){
+		long[] keys = new long[Math.max(count, 0)];
+		for(int i = 0; i < keys.length; i++)
+			keys[i] = autoId.incrementAndGet();
+		return keys;
+	}
+
+	private static ResultSet keys(final long[] keys){
+		final int[] index = {-1};
+		return (ResultSet) Proxy.newProxyInstance(FakeDriver.class.getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+			switch (method.getName()){
+				case "next": return ++index[0] < keys.length;
+				case "getLong": return keys[index[0]];
+				case "getObject": return keys[index[0]];
+				default: return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private static ResultSet row(final int columns){
+		final ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(FakeDriver.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+			switch (method.getName()){
+				case "getColumnCount": return columns;
+				case "getColumnName": case "getColumnLabel": return "c" + args[0];
+				case "getColumnType": return Types.VARCHAR;
+				default: return defaultValue(method.getReturnType());
+			}
+		});
+		final int[] index = {0};
+		return (ResultSet) Proxy.newProxyInstance(FakeDriver.class.getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+			switch (method.getName()){
+				case "next": return ++index[0] == 1;
+				case "getMetaData": return metaData;
+				case "getObject": case "getString": return "v" + args[0];
+				default: return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private static Object defaultValue(Class<?> type){
+		if(type == boolean.class)
+			return false;
+		if(type == int.class)
+			return 0;
+		if(type == long.class)
+			return 0L;
+		return null;
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return url.startsWith(URL);
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+}
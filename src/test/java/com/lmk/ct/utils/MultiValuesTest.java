@@ -0,0 +1,147 @@
+package com.lmk.ct.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 批量执行时改写为多行VALUES的测试：语句的解析、占位符个数的上限及生成主键数的校验
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class MultiValuesTest {
+
+	@BeforeClass
+	public static void init() {
+		JdbcUtils.setPoolConfig(1, 2, 1000, 600000, false, 0);
+		JdbcUtils.init("test", "test", FakeDriver.URL, FakeDriver.class.getName());
+	}
+
+	@AfterClass
+	public static void shutdown() {
+		JdbcUtils.setBatchConfig(1000, true);
+		JdbcUtils.shutdown();
+	}
+
+	@Before
+	public void reset() {
+		JdbcUtils.setBatchConfig(1000, true);
+		FakeDriver.reset();
+	}
+
+	@Test
+	public void testRewriteToMultiValues() {
+		long[] keys = JdbcUtils.insertBatchLong("INSERT INTO t (a, b) VALUES (?, ?)", rows(3, 2));
+
+		assertArrayEquals(new long[]{1, 2, 3}, keys);
+		assertEquals(1, FakeDriver.executions.size());
+		FakeDriver.Execution execution = FakeDriver.executions.get(0);
+		assertEquals("INSERT INTO t (a, b) VALUES (?, ?),(?, ?),(?, ?)", execution.sql);
+		assertArrayEquals(new Object[]{"r0c0", "r0c1", "r1c0", "r1c1", "r2c0", "r2c1"}, execution.rows.get(0));
+		assertEquals(1, FakeDriver.commits.get());
+	}
+
+	@Test
+	public void testSuffixAndQuotedPlaceholder() {
+		BatchResult result = JdbcUtils.executeBatch("INSERT INTO t (a, b) VALUES (?, 'a?b') ON DUPLICATE KEY UPDATE b = VALUES(b)", rows(2, 1), false, null);
+
+		assertTrue(result.isSuccess());
+		assertEquals(2, result.getAffectedRows());
+		assertEquals("INSERT INTO t (a, b) VALUES (?, 'a?b'),(?, 'a?b') ON DUPLICATE KEY UPDATE b = VALUES(b)", FakeDriver.executions.get(0).sql);
+	}
+
+	@Test
+	public void testNotRewritten() {
+		String[] sqls = {
+				"UPDATE t SET a = ? WHERE b = ?",
+				"INSERT INTO t (a, b) SELECT ?, ? FROM dual",
+				"INSERT INTO t (a, b) VALUES (?, ?) ON DUPLICATE KEY UPDATE b = ?, a = ?",
+				"INSERT INTO t (a, b) VALUES ('x', 'y')",
+		};
+		for(String sql : sqls){
+			FakeDriver.reset();
+			int paramCount = sql.contains("?") ? sql.length() - sql.replace("?", "").length() : 0;
+			BatchResult result = JdbcUtils.executeBatch(sql, rows(3, paramCount), false, null);
+
+			assertTrue(sql, result.isSuccess());
+			assertEquals(sql, 1, FakeDriver.executions.size());
+			assertEquals(sql, sql, FakeDriver.executions.get(0).sql);
+			assertEquals(sql, 3, FakeDriver.executions.get(0).rows.size());
+		}
+	}
+
+	@Test
+	public void testRewriteDisabled() {
+		JdbcUtils.setBatchConfig(1000, false);
+		BatchResult result = JdbcUtils.executeBatch("INSERT INTO t (a) VALUES (?)", rows(3, 1), false, null);
+
+		assertTrue(result.isSuccess());
+		assertEquals("INSERT INTO t (a) VALUES (?)", FakeDriver.executions.get(0).sql);
+		assertEquals(3, FakeDriver.executions.get(0).rows.size());
+	}
+
+	@Test
+	public void testPlaceholderLimit() {
+		// 每行3个参数，一条语句最多65535 / 3 = 21845行
+		int rowCount = 50000;
+		BatchResult result = JdbcUtils.executeBatch("INSERT INTO t (a, b, c) VALUES (?, ?, ?)", rows(rowCount, 3), rowCount, false, null);
+
+		assertTrue(result.isSuccess());
+		assertEquals(rowCount, result.getAffectedRows());
+		assertEquals(3, FakeDriver.executions.size());
+		int total = 0;
+		for(FakeDriver.Execution execution : FakeDriver.executions){
+			assertTrue(execution.paramCount() <= 65535);
+			total += execution.paramCount();
+		}
+		assertEquals(21845 * 3, FakeDriver.executions.get(0).paramCount());
+		assertEquals(rowCount * 3, total);
+		assertEquals(1, result.getChunks());
+	}
+
+	@Test
+	public void testGeneratedKeyCountMismatch() {
+		// 少返回一个主键时无法确定主键与行的对应关系，整批回滚
+		FakeDriver.missingKeys = 1;
+		assertNull(JdbcUtils.insertBatchLong("INSERT IGNORE INTO t (a) VALUES (?)", rows(3, 1)));
+		assertNull(JdbcUtils.insertBatch("INSERT IGNORE INTO t (a) VALUES (?)", rows(3, 1)));
+		assertEquals(0, FakeDriver.commits.get());
+
+		FakeDriver.reset();
+		assertEquals(Arrays.<Object>asList(1L, 2L, 3L), JdbcUtils.insertBatch("INSERT INTO t (a) VALUES (?)", rows(3, 1)));
+		assertEquals(1, FakeDriver.commits.get());
+	}
+
+	@Test
+	public void testParamCountMismatch() {
+		List<String[]> rows = rows(3, 2);
+		rows.set(1, new String[]{"only one"});
+		BatchResult result = JdbcUtils.executeBatch("INSERT INTO t (a, b) VALUES (?, ?)", rows, false, null);
+
+		assertFalse(result.isSuccess());
+		assertEquals(3, result.getFailedRows());
+		assertTrue(result.getFailures().get(0).getCause().getMessage().contains("第1行"));
+		assertEquals(0, FakeDriver.commits.get());
+	}
+
+	/**
+	 * 生成参数，第i行第j个参数为"r{i}c{j}"
+	 */
+	private static List<String[]> rows(int rowCount, int paramCount) {
+		List<String[]> rows = new ArrayList<String[]>(rowCount);
+		for(int i = 0; i < rowCount; i++){
+			String[] row = new String[paramCount];
+			for(int j = 0; j < paramCount; j++)
+				row[j] = "r" + i + "c" + j;
+			rows.add(row);
+		}
+		return rows;
+	}
+}
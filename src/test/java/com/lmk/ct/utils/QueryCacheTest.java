@@ -0,0 +1,98 @@
+package com.lmk.ct.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * QueryCache的测试：表名标签的解析、不能可靠打标签的语句及超出最大权重的结果不被缓存
+ * @author LaoMake
+ * @since 1.0
+ *
+ */
+public class QueryCacheTest {
+
+	@BeforeClass
+	public static void init() {
+		JdbcUtils.setPoolConfig(1, 2, 1000, 600000, false, 0);
+		JdbcUtils.init("test", "test", FakeDriver.URL, FakeDriver.class.getName());
+	}
+
+	@AfterClass
+	public static void shutdown() {
+		JdbcUtils.shutdown();
+	}
+
+	@Before
+	public void reset() {
+		FakeDriver.reset();
+	}
+
+	@Test
+	public void testParseTags() {
+		assertTags("SELECT name FROM sys_dict WHERE code = ?", "sys_dict");
+		assertTags("select * from `shop`.`T_User` u", "shop.t_user");
+		assertTags("SELECT a.x, b.y FROM a, b AS bb, db.c cc WHERE a.id = b.id ORDER BY a.x, b.y", "a", "b", "db.c");
+		assertTags("SELECT * FROM a LEFT JOIN b ON a.id = b.aid INNER JOIN c USING (id), d WHERE a.x IN (?, ?)", "a", "b", "c", "d");
+		assertTags("SELECT * FROM a USE INDEX (i1, i2), b PARTITION (p0, p1) WHERE 1 = 1", "a", "b");
+		assertTags("SELECT EXTRACT(YEAR FROM d), TRIM(LEADING 'x' FROM s) FROM t", "t");
+		assertTags("SELECT 'FROM x, y' AS s FROM t -- FROM z\n", "t");
+		assertTags("SELECT a FROM t1 UNION ALL SELECT a FROM t2", "t1", "t2");
+		assertTags("SELECT NOW() FROM DUAL");
+
+		assertNull(QueryCache.parseTags("SELECT * FROM (SELECT * FROM a) x"));
+		assertNull(QueryCache.parseTags("SELECT * FROM a WHERE id IN (SELECT aid FROM b)"));
+		assertNull(QueryCache.parseTags("SELECT * FROM a, (SELECT 1) x"));
+		assertNull(QueryCache.parseTags("SELECT * FROM a JOIN LATERAL (SELECT 1) x"));
+		assertNull(QueryCache.parseTags("WITH x AS (SELECT 1) SELECT * FROM x"));
+		assertNull(QueryCache.parseTags("SELECT * FROM JSON_TABLE(?, '$[*]' COLUMNS (a INT PATH '$')) j"));
+	}
+
+	@Test
+	public void testCacheAndInvalidate() {
+		QueryCache cache = new QueryCache(100, 60000);
+		String sql = "SELECT c1 FROM a, b WHERE a.id = ?";
+		assertEquals("v1", cache.queryString(sql, "1"));
+		assertEquals("v1", cache.queryString(sql, "1"));
+		assertEquals(1, FakeDriver.executions.size());
+
+		// 逗号之后的表同样使缓存项失效
+		cache.invalidate("b");
+		assertEquals("v1", cache.queryString(sql, "1"));
+		assertEquals(2, FakeDriver.executions.size());
+	}
+
+	@Test
+	public void testUntaggableNotCached() {
+		QueryCache cache = new QueryCache(100, 60000);
+		String sql = "SELECT c1 FROM a WHERE id IN (SELECT aid FROM b)";
+		cache.queryString(sql);
+		cache.queryString(sql);
+
+		assertEquals(2, FakeDriver.executions.size());
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testOverweightNotCached() {
+		QueryCache cache = new QueryCache(3, 60000);
+		cache.queryString("SELECT c1 FROM a");
+		FakeDriver.queryColumns = 5;
+		assertEquals(5, cache.queryMap("SELECT * FROM b").size());
+
+		// 超出最大权重的结果不被缓存，也不淘汰已有的缓存项
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getWeight());
+		assertEquals(0, cache.getEvictionCount());
+		cache.queryMap("SELECT * FROM b");
+		assertEquals(3, FakeDriver.executions.size());
+	}
+
+	private static void assertTags(String sql, String... tables) {
+		assertArrayEquals(sql, tables, QueryCache.parseTags(sql));
+	}
+}